@@ -0,0 +1,102 @@
+package com.domain.pricehandler.benchmark;
+
+import com.domain.pricehandler.controller.PriceResponseCache;
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.service.PriceServiceImpl;
+import com.domain.pricehandler.service.arbitration.ArbitrationProperties;
+import com.domain.pricehandler.service.arbitration.PriceArbiterImpl;
+import com.domain.pricehandler.service.commission.CommissionEngineImpl;
+import com.domain.pricehandler.service.commission.CommissionProperties;
+import com.domain.pricehandler.service.crossrate.CrossRateEngineImpl;
+import com.domain.pricehandler.service.crossrate.CrossRateProperties;
+import com.domain.pricehandler.service.execution.ExecutionProperties;
+import com.domain.pricehandler.service.execution.FeedExecutors;
+import com.domain.pricehandler.service.history.HistoryProperties;
+import com.domain.pricehandler.service.history.PriceHistoryImpl;
+import com.domain.pricehandler.service.instruments.InstrumentProperties;
+import com.domain.pricehandler.service.instruments.InstrumentRegistrar;
+import com.domain.pricehandler.service.journal.JournalProperties;
+import com.domain.pricehandler.service.journal.PriceJournalImpl;
+import com.domain.pricehandler.service.messaging.PriceFeedListenerImpl;
+import com.domain.pricehandler.service.messaging.PriceTickDecoder;
+import com.domain.pricehandler.service.messaging.PriceTickEncoder;
+import com.domain.pricehandler.service.messaging.ingestion.IngestionProperties;
+import com.domain.pricehandler.service.metrics.FeedMetricsImpl;
+import com.domain.pricehandler.service.replication.PriceReplicatorImpl;
+import com.domain.pricehandler.service.replication.ReplicationProperties;
+import com.domain.pricehandler.service.repository.PriceRepositoryImpl;
+import com.domain.pricehandler.service.staleness.StalenessMonitorImpl;
+import com.domain.pricehandler.service.staleness.StalenessProperties;
+import com.domain.pricehandler.service.streaming.PriceStreamImpl;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.nio.ByteBuffer;
+
+import static com.domain.pricehandler.service.messaging.PriceFeedListenerImpl.newLine;
+
+/**
+ * Wires the same beans application uses, without web server and property binding,
+ * so benchmarks measure the production code paths (margins are the ones from application.properties)
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static AnnotationConfigApplicationContext start() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        CommissionProperties commissionProperties = new CommissionProperties();
+        commissionProperties.setBidMargin(-0.001);
+        commissionProperties.setAskMargin(0.001);
+        context.registerBean(CommissionProperties.class, () -> commissionProperties);
+        context.register(InstrumentProperties.class, InstrumentRegistrar.class);
+        context.register(IngestionProperties.class, CommissionEngineImpl.class, PriceRepositoryImpl.class,
+                PriceStreamImpl.class, PriceServiceImpl.class, PriceFeedListenerImpl.class, PriceResponseCache.class,
+                FeedMetricsImpl.class, StalenessProperties.class, StalenessMonitorImpl.class, JournalProperties.class,
+                PriceJournalImpl.class, ArbitrationProperties.class, PriceArbiterImpl.class, ExecutionProperties.class,
+                FeedExecutors.class, HistoryProperties.class, PriceHistoryImpl.class,
+                CrossRateProperties.class, CrossRateEngineImpl.class, ReplicationProperties.class,
+                PriceReplicatorImpl.class);
+        context.refresh();
+        return context;
+    }
+
+    /**
+     * Message of given number of lines, ids starting with firstId, instruments taken in turn
+     */
+    static String message(int firstId, int lines) {
+        String[][] instruments = {
+                {"EUR/USD", "1.1000", "1.2000"},
+                {"EUR/JPY", "119.60", "119.90"},
+                {"GBP/USD", "1.2500", "1.2560"}};
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            String[] instrument = instruments[i % instruments.length];
+            if (i > 0) {
+                sb.append(newLine);
+            }
+            sb.append(firstId + i).append(", ").append(instrument[0]).append(", ")
+                    .append(instrument[1]).append(',').append(instrument[2])
+                    .append(",01-06-2020 12:01:01:001");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Binary message with the same prices as message(firstId, ticks)
+     */
+    static ByteBuffer binaryMessage(int firstId, int ticks) {
+        InstrumentName[] instrumentNames = {InstrumentName.EUR_USD, InstrumentName.EUR_JPY, InstrumentName.GBP_USD};
+        long[][] mantissas = {{11000, 12000}, {11960, 11990}, {12500, 12560}};
+        int[] scales = {4, 2, 4};
+        ByteBuffer message = ByteBuffer.allocateDirect(ticks * PriceTickDecoder.TICK_SIZE);
+        for (int i = 0; i < ticks; i++) {
+            int instrument = i % instrumentNames.length;
+            PriceTickEncoder.encode(message, firstId + i, instrumentNames[instrument],
+                    mantissas[instrument][0], scales[instrument], mantissas[instrument][1], scales[instrument],
+                    1591012861001L);
+        }
+        message.flip();
+        return message;
+    }
+}
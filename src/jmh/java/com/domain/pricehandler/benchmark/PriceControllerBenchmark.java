@@ -0,0 +1,91 @@
+package com.domain.pricehandler.benchmark;
+
+import com.domain.pricehandler.controller.PriceResponseCache;
+import com.domain.pricehandler.controller.dto.PriceDto;
+import com.domain.pricehandler.controller.dto.PriceDtoMapper;
+import com.domain.pricehandler.controller.dto.PriceJsonEncoder;
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization done by GET endpoints: JSON encoder, cache hit, and Jackson with DTO mapping
+ * (used by stream endpoint) for comparison
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceControllerBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PriceResponseCache cache = new PriceResponseCache();
+
+    private Price price;
+    private List<Price> prices;
+
+    @Setup
+    public void setUp() {
+        List<Price> list = new ArrayList<>();
+        int id = 0;
+        for (InstrumentName instrumentName : InstrumentName.values()) {
+            Price p = new Price();
+            p.setId(++id);
+            p.setInstrumentName(instrumentName);
+            p.setBid(10989);
+            p.setAsk(12012);
+            p.setTimestamp("01-06-2020 12:01:01:001");
+            list.add(p);
+        }
+        price = list.get(0);
+        prices = Collections.unmodifiableList(list);
+    }
+
+    @Benchmark
+    public byte[] encodePrice() {
+        return PriceJsonEncoder.encode(price);
+    }
+
+    @Benchmark
+    public byte[] encodePrices() {
+        return PriceJsonEncoder.encode(prices);
+    }
+
+    @Benchmark
+    public PriceResponseCache.CachedResponse cachedPrice() {
+        return cache.get(price);
+    }
+
+    @Benchmark
+    public PriceResponseCache.CachedResponse cachedPrices() {
+        return cache.get(prices);
+    }
+
+    @Benchmark
+    public PriceDto mapPrice() {
+        return PriceDtoMapper.toDto(price);
+    }
+
+    @Benchmark
+    public byte[] mapAndWritePriceWithJackson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(PriceDtoMapper.toDto(price));
+    }
+}
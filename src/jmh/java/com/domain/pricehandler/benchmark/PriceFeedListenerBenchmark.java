@@ -0,0 +1,127 @@
+package com.domain.pricehandler.benchmark;
+
+import com.domain.pricehandler.service.PriceService;
+import com.domain.pricehandler.service.messaging.PriceFeedListener;
+import com.domain.pricehandler.service.messaging.PriceFeedParser;
+import com.domain.pricehandler.service.messaging.PriceTickDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static com.domain.pricehandler.service.messaging.PriceFeedListenerImpl.newLine;
+
+/**
+ * Whole feed path: parsing, commission, batch reduction, repository update and publishing to (no) subscribers,
+ * and parsing alone to see its share - for text messages and for binary messages with the same prices
+ *
+ * Messages are prepared upfront with growing ids, so every message is applied and none is rejected as stale -
+ * repository is cleared at the start of every iteration and after the last prepared message (once per 4096 calls).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceFeedListenerBenchmark {
+
+    private static final int MESSAGES = 4096;
+
+    @Param({"1", "10", "100"})
+    int batchSize;
+
+    private AnnotationConfigApplicationContext context;
+    private PriceService priceService;
+    private PriceFeedListener listener;
+    private String[] messages;
+    private ByteBuffer[] binaryMessages;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        priceService = context.getBean(PriceService.class);
+        listener = context.getBean(PriceFeedListener.class);
+        messages = new String[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            messages[i] = BenchmarkContext.message(1 + i * batchSize, batchSize);
+        }
+        binaryMessages = new ByteBuffer[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            binaryMessages[i] = BenchmarkContext.binaryMessage(1 + i * batchSize, batchSize);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPrices() {
+        priceService.clearPrices();
+        next = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void onMessage() {
+        listener.onMessage(messages[next]);
+        if (++next == MESSAGES) {
+            // Ids start again, so repository is cleared to keep prices applied
+            resetPrices();
+        }
+    }
+
+    @Benchmark
+    public void onBinaryMessage() {
+        listener.onMessage(binaryMessages[next]);
+        if (++next == MESSAGES) {
+            resetPrices();
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        PriceFeedParser parser = new PriceFeedParser(messages[next], newLine);
+        while (parser.next()) {
+            blackhole.consume(parser.getId());
+            blackhole.consume(parser.getInstrumentName());
+            blackhole.consume(parser.getBidMantissa());
+            blackhole.consume(parser.getAskMantissa());
+            blackhole.consume(parser.getTimestamp());
+        }
+        if (++next == MESSAGES) {
+            next = 0;
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        PriceTickDecoder decoder = new PriceTickDecoder(binaryMessages[next]);
+        while (decoder.next()) {
+            blackhole.consume(decoder.getId());
+            blackhole.consume(decoder.getInstrumentName());
+            blackhole.consume(decoder.getBidMantissa());
+            blackhole.consume(decoder.getAskMantissa());
+            blackhole.consume(decoder.getTimestampMillis());
+        }
+        if (++next == MESSAGES) {
+            next = 0;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.domain.pricehandler.benchmark;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.repository.PriceRepository;
+import com.domain.pricehandler.service.repository.PriceRepositoryImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository alone, with different read/write mixes (groups): reads only, one writer with readers
+ * and two writers (which compete for the same slots) with readers
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceRepositoryBenchmark {
+
+    private static final InstrumentName[] INSTRUMENT_NAMES = InstrumentName.values();
+
+    private PriceRepository repository;
+    private int nextId;
+
+    @Setup
+    public void setUp() {
+        repository = new PriceRepositoryImpl();
+        for (InstrumentName instrumentName : INSTRUMENT_NAMES) {
+            repository.update(price(++nextId, instrumentName));
+        }
+    }
+
+    /**
+     * Ids are shared by writers of group, lost increments only make some updates stale, which is also the case
+     * with real feed
+     */
+    private Price nextPrice() {
+        int id = ++nextId;
+        return price(id, INSTRUMENT_NAMES[id % INSTRUMENT_NAMES.length]);
+    }
+
+    private static Price price(int id, InstrumentName instrumentName) {
+        Price price = new Price();
+        price.setId(id);
+        price.setInstrumentName(instrumentName);
+        price.setBid(10989);
+        price.setAsk(12012);
+        price.setTimestamp("01-06-2020 12:01:01:001");
+        return price;
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(4)
+    public Optional<Price> readOnlyGetByInstrumentName() {
+        return repository.getByInstrumentName(InstrumentName.EUR_USD);
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(4)
+    public Optional<List<Price>> readOnlyGet() {
+        return repository.get();
+    }
+
+    @Benchmark
+    @Group("oneWriter")
+    @GroupThreads(1)
+    public boolean oneWriterUpdate() {
+        return repository.update(nextPrice());
+    }
+
+    @Benchmark
+    @Group("oneWriter")
+    @GroupThreads(4)
+    public Optional<Price> oneWriterGetByInstrumentName() {
+        return repository.getByInstrumentName(InstrumentName.EUR_USD);
+    }
+
+    @Benchmark
+    @Group("oneWriter")
+    @GroupThreads(4)
+    public Optional<List<Price>> oneWriterGet() {
+        return repository.get();
+    }
+
+    @Benchmark
+    @Group("twoWriters")
+    @GroupThreads(2)
+    public boolean twoWritersUpdate() {
+        return repository.update(nextPrice());
+    }
+
+    @Benchmark
+    @Group("twoWriters")
+    @GroupThreads(4)
+    public Optional<List<Price>> twoWritersGet() {
+        return repository.get();
+    }
+}
@@ -0,0 +1,91 @@
+package com.domain.pricehandler.benchmark;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.PriceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * updatePrices (one feed thread) while event loop threads read the prices, as it happens in running application
+ *
+ * Every batch has new price objects with growing ids (as listener creates them), so all of them are applied -
+ * stored prices must not be changed, hence they are not reused.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceServiceBenchmark {
+
+    @Param({"1", "10", "100"})
+    int batchSize;
+
+    private AnnotationConfigApplicationContext context;
+    private PriceService priceService;
+    private InstrumentName[] instrumentNames;
+    private int nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        priceService = context.getBean(PriceService.class);
+        instrumentNames = InstrumentName.values();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Group("updateWithReaders")
+    @GroupThreads(1)
+    public void updatePrices() {
+        List<Price> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            Price price = new Price();
+            price.setId(++nextId);
+            price.setInstrumentName(instrumentNames[i % instrumentNames.length]);
+            price.setBid(10989);
+            price.setAsk(12012);
+            price.setTimestamp("01-06-2020 12:01:01:001");
+            batch.add(price);
+        }
+        priceService.updatePrices(batch);
+    }
+
+    @Benchmark
+    @Group("updateWithReaders")
+    @GroupThreads(3)
+    public Price getPrice() {
+        return priceService.getPrice("EUR/USD").block();
+    }
+
+    @Benchmark
+    @Group("updateWithReaders")
+    @GroupThreads(3)
+    public List<Price> getPricesSnapshot() {
+        return priceService.getPricesSnapshot().block();
+    }
+}
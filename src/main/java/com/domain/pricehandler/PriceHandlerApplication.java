@@ -3,11 +3,9 @@ package com.domain.pricehandler;
 import com.domain.pricehandler.service.messaging.PriceFeedListener;
 import com.domain.pricehandler.service.messaging.PriceFeedListenerImpl;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ConfigurableApplicationContext;
-import org.springframework.context.annotation.Bean;
 
 import java.io.IOException;
 
@@ -41,10 +39,4 @@ public class PriceHandlerApplication {
 		}
 		log.info("Publishing sample price feed: END");
 	}
-
-	// Used in Controller for mapping from internal Price to external PriceDto
-	@Bean
-	public ModelMapper modelMapper() {
-		return new ModelMapper();
-	}
 }
@@ -1,20 +1,42 @@
 package com.domain.pricehandler.controller;
 
+import com.domain.pricehandler.controller.dto.OhlcBarsDto;
 import com.domain.pricehandler.controller.dto.PriceDto;
+import com.domain.pricehandler.controller.dto.PriceDtoMapper;
+import com.domain.pricehandler.controller.dto.PriceField;
+import com.domain.pricehandler.controller.dto.PriceHistoryDto;
+import com.domain.pricehandler.controller.dto.PriceJsonEncoder;
 import com.domain.pricehandler.exceptions.PriceControllerException;
+import com.domain.pricehandler.model.InstrumentName;
 import com.domain.pricehandler.model.Price;
 import com.domain.pricehandler.service.PriceService;
-import org.modelmapper.ModelMapper;
+import com.domain.pricehandler.service.history.BarResolution;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 /**
  * REST endpoint to retrieve prices
  *
@@ -32,35 +54,143 @@ public class PriceController {
     private final static String UNKNOWN_ERROR_CODE = "PRICE_CONTROLLER_000";
     private final static String UNKNOWN_ERROR_MSG = "Unknown Error Occurred";
 
+    // Throttle window of streamed prices can not be shorter than 1ms
+    private final static int MAX_UPDATES_PER_SECOND = 1000;
+
     @Autowired
     private PriceService priceService;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private PriceResponseCache priceResponseCache;
 
-    private PriceDto convertToDto(Price price) {
-        PriceDto dto = modelMapper.map(price, PriceDto.class);
-        return dto;
+    private final DataBufferFactory dataBufferFactory = new DefaultDataBufferFactory();
+
+    // Cached bytes are only wrapped, buffer is created per response as it keeps its own read position
+    private ResponseEntity<DataBuffer> toResponse(PriceResponseCache.CachedResponse cached) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(cached.getEtag())
+                .body(dataBufferFactory.wrap(cached.getBody()));
     }
 
     /**
      *
      * Endpoint for retrieval of single price
      * @param instrumentName instrument for which we want to receive price, expected format is "AAA_BBB".
-     * A shorer form would be AAABBB, but form with '_' is more readable
-     * @return price for instrument
+     * A shorer form would be AAABBB, but form with '_' is more readable. Unsupported instruments have no price.
+     * @return price for instrument, as JSON of PriceDto, with ETag (If-None-Match is answered with 304)
+     */
+    @GetMapping(value = "/{instrumentName}", produces = MediaType.APPLICATION_JSON_VALUE)
+    private Mono<ResponseEntity<DataBuffer>> getPrice(@PathVariable String instrumentName) {
+        try {
+            // Looked up directly in instrument registry, without replacing '_' by '/'
+            InstrumentName name = InstrumentName.valueOfName(instrumentName);
+            if (name == null)
+                return Mono.empty();
+            Mono<Price> price = priceService.getPrice(name);
+            return price.map(p -> toResponse(priceResponseCache.get(p)));
+        } catch (Exception e) {
+            throw PriceControllerException.builder()
+                    .httpStatus(HttpStatus.BAD_REQUEST)
+                    .code(UNKNOWN_ERROR_CODE)
+                    .message(UNKNOWN_ERROR_MSG)
+                    .message(e.getMessage())
+                    .cause(e)
+                    .build();
+        }
+    }
+
+    /**
+     *
+     * /prices endpoint enables retrieval of all prices, or of some instruments only, with some fields only
+     * (eg. /prices?instruments=EUR_USD,GBP_USD&fields=bid,ask)
+     * @param instrumentNames instruments, in format "AAA_BBB", all instruments if not provided
+     * @param fieldNames fields of PriceDto to be returned (instrumentName is returned always), all if not provided
+     * @return available prices, as JSON array of PriceDto. All prices are returned with ETag
+     * (If-None-Match is answered with 304), prices of requested instruments or fields are encoded per request.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    private Mono<ResponseEntity<DataBuffer>> getPrices(
+            @RequestParam(name = "instruments", required = false) List<String> instrumentNames,
+            @RequestParam(name = "fields", required = false) List<String> fieldNames) {
+        try {
+            if (instrumentNames != null || fieldNames != null) {
+                return getPrices(parseInstrumentNames(instrumentNames), parseFields(fieldNames));
+            }
+            Mono<List<Price>> prices = priceService.getPricesSnapshot();
+            return prices.map(list -> toResponse(priceResponseCache.get(list)));
+        } catch (Exception e) {
+            throw PriceControllerException.builder()
+                    .httpStatus(HttpStatus.BAD_REQUEST)
+                    .code(UNKNOWN_ERROR_CODE)
+                    .message(UNKNOWN_ERROR_MSG)
+                    .message(e.getMessage())
+                    .cause(e)
+                    .build();
+        }
+    }
+
+    private Mono<ResponseEntity<DataBuffer>> getPrices(Set<InstrumentName> instrumentNames, Set<PriceField> fields) {
+        Mono<List<Price>> prices = instrumentNames == null
+                ? priceService.getPricesSnapshot()
+                : priceService.getPrices(instrumentNames);
+        return prices.map(list -> ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(dataBufferFactory.wrap(PriceJsonEncoder.encode(list, fields))));
+    }
+
+    // Duplicates are returned once, in order they were requested first
+    private static Set<InstrumentName> parseInstrumentNames(List<String> instrumentNames) {
+        if (instrumentNames == null)
+            return null;
+        Set<InstrumentName> parsed = new LinkedHashSet<>();
+        for (String instrumentName : instrumentNames) {
+            parsed.add(InstrumentName.valueOf(instrumentName));
+        }
+        return parsed;
+    }
+
+    private static Set<PriceField> parseFields(List<String> fieldNames) {
+        if (fieldNames == null)
+            return EnumSet.allOf(PriceField.class);
+        Set<PriceField> parsed = EnumSet.noneOf(PriceField.class);
+        for (String fieldName : fieldNames) {
+            parsed.add(PriceField.valueOfJsonName(fieldName));
+        }
+        return parsed;
+    }
+
+    /**
+     *
+     * /prices/stream endpoint streams prices as server-sent events, to avoid polling of other endpoints.
+     * Last known prices are sent on connect, then updates. Updates are conflated per instrument - consumer which
+     * can not keep up, or asks for limited rate, misses intermediate prices, but it always receives the newest ones.
+     * @param instrumentNames instruments to stream, in format "AAA_BBB", all instruments if not provided
+     * @param maxUpdatesPerSecond maximum number of updates per second per instrument, not limited if not provided
+     * @return stream of prices, event id is price id
      */
-    @GetMapping("/{instrumentName}")
-    private Mono<PriceDto> getPrice(@PathVariable String instrumentName) {
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    private Flux<ServerSentEvent<PriceDto>> streamPrices(
+            @RequestParam(name = "instruments", required = false) List<String> instrumentNames,
+            @RequestParam(name = "maxUpdatesPerSecond", required = false) Integer maxUpdatesPerSecond) {
         try {
-            // Fail fast, just checking length of instrument name. Ideally, this should be regex checking
-            // characters and '_' in the middle
-            if(instrumentName.length() != 7 )
-                throw new Exception("Instrument name not provided in correct format");
-            String instrumentNameWithSlash = instrumentName.replace("_", "/");
-            Mono<Price> price = priceService.getPrice(instrumentNameWithSlash);
-            Mono<PriceDto> mono = price.flatMap(p -> Mono.just(convertToDto(p)));
-            return mono;
+            Duration throttleWindow = Duration.ZERO;
+            if (maxUpdatesPerSecond != null) {
+                if (maxUpdatesPerSecond < 1 || maxUpdatesPerSecond > MAX_UPDATES_PER_SECOND)
+                    throw new Exception("Maximum number of updates per second has to be between 1 and "
+                            + MAX_UPDATES_PER_SECOND);
+                throttleWindow = Duration.ofNanos(TimeUnit.SECONDS.toNanos(1) / maxUpdatesPerSecond);
+            }
+            Set<InstrumentName> filter = new HashSet<>();
+            if (instrumentNames != null) {
+                for (String instrumentName : instrumentNames) {
+                    filter.add(InstrumentName.valueOf(instrumentName));
+                }
+            }
+            return priceService.streamPrices(filter, throttleWindow)
+                    .map(p -> ServerSentEvent.builder(PriceDtoMapper.toDto(p))
+                            .id(String.valueOf(p.getId()))
+                            .build());
         } catch (Exception e) {
             throw PriceControllerException.builder()
                     .httpStatus(HttpStatus.BAD_REQUEST)
@@ -74,15 +204,24 @@ public class PriceController {
 
     /**
      *
-     * /prices endpoint enables retrieval of all prices
-     * @return all available prices
+     * /prices/{instrumentName}/history endpoint returns applied prices of instrument in time range,
+     * as long as they are kept in history (see HistoryProperties)
+     * @param instrumentName instrument in format "AAA_BBB"
+     * @param from start of range, inclusive, as ISO-8601 instant (eg. 2021-06-01T12:00:00Z) or epoch millis,
+     * the oldest kept price if not provided
+     * @param to end of range, inclusive, in the same format as from, the newest price if not provided
+     * @return prices of instrument, oldest first
      */
-    @GetMapping
-    private Flux<PriceDto> getPrices() {
+    @GetMapping(value = "/{instrumentName}/history", produces = MediaType.APPLICATION_JSON_VALUE)
+    private Mono<PriceHistoryDto> getHistory(@PathVariable String instrumentName,
+                                             @RequestParam(name = "from", required = false) String from,
+                                             @RequestParam(name = "to", required = false) String to) {
         try {
-            Flux<Price> prices = priceService.getPrices();
-            Flux<PriceDto> flux = prices.map(p -> convertToDto(p));
-            return flux;
+            InstrumentName name = InstrumentName.valueOfName(instrumentName);
+            if (name == null)
+                return Mono.empty();
+            return priceService.getHistory(name, toMillis(from, 0), toMillis(to, Long.MAX_VALUE))
+                    .map(PriceDtoMapper::toDto);
         } catch (Exception e) {
             throw PriceControllerException.builder()
                     .httpStatus(HttpStatus.BAD_REQUEST)
@@ -93,4 +232,46 @@ public class PriceController {
                     .build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     *
+     * /prices/{instrumentName}/bars endpoint returns OHLC bars of mid price of instrument. Bars are built
+     * as prices are applied, so the cost of request depends on number of returned bars only.
+     * @param instrumentName instrument in format "AAA_BBB"
+     * @param resolution 1s, 1m or 5m, 1m if not provided
+     * @param from bar containing this time is the first one, format as in history endpoint
+     * @param to bars starting later are not returned, format as in history endpoint
+     * @return bars of instrument, oldest first
+     */
+    @GetMapping(value = "/{instrumentName}/bars", produces = MediaType.APPLICATION_JSON_VALUE)
+    private Mono<OhlcBarsDto> getBars(@PathVariable String instrumentName,
+                                      @RequestParam(name = "resolution", defaultValue = "1m") String resolution,
+                                      @RequestParam(name = "from", required = false) String from,
+                                      @RequestParam(name = "to", required = false) String to) {
+        try {
+            InstrumentName name = InstrumentName.valueOfName(instrumentName);
+            if (name == null)
+                return Mono.empty();
+            return priceService.getBars(name, BarResolution.valueOfLabel(resolution),
+                    toMillis(from, 0), toMillis(to, Long.MAX_VALUE))
+                    .map(PriceDtoMapper::toDto);
+        } catch (Exception e) {
+            throw PriceControllerException.builder()
+                    .httpStatus(HttpStatus.BAD_REQUEST)
+                    .code(UNKNOWN_ERROR_CODE)
+                    .message(UNKNOWN_ERROR_MSG)
+                    .message(e.getMessage())
+                    .cause(e)
+                    .build();
+        }
+    }
+
+    // Time parameter is either epoch millis or ISO-8601 instant
+    private static long toMillis(String time, long defaultMillis) {
+        if (time == null || time.isEmpty())
+            return defaultMillis;
+        if (time.chars().allMatch(Character::isDigit))
+            return Long.parseLong(time);
+        return Instant.parse(time).toEpochMilli();
+    }
+}
@@ -0,0 +1,82 @@
+package com.domain.pricehandler.controller;
+
+import com.domain.pricehandler.controller.dto.PriceJsonEncoder;
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cache of JSON responses of GET endpoints, one per instrument plus one for all prices
+ *
+ * Repository replaces price object whenever price is updated, and rebuilds snapshot list of all prices lazily,
+ * on the first read after update. So cached response is valid as long as it was encoded from the very same object -
+ * checking that is one reference comparison, and response is encoded again only after price was actually replaced.
+ */
+@Component
+public class PriceResponseCache {
+
+    private final AtomicReferenceArray<CachedResponse> prices =
+            new AtomicReferenceArray<>(InstrumentName.CAPACITY);
+
+    private volatile CachedResponse allPrices;
+
+    /**
+     * @param price price currently stored in repository
+     * @return JSON of price
+     */
+    public CachedResponse get(Price price) {
+        int index = price.getInstrumentName().id();
+        CachedResponse cached = prices.get(index);
+        if (cached == null || cached.source != price) {
+            cached = new CachedResponse(price, PriceJsonEncoder.encode(price), "\"" + price.getId() + "\"");
+            prices.set(index, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * @param snapshot snapshot of all prices currently stored in repository
+     * @return JSON array of prices
+     */
+    public CachedResponse get(List<Price> snapshot) {
+        CachedResponse cached = allPrices;
+        if (cached == null || cached.source != snapshot) {
+            cached = new CachedResponse(snapshot, PriceJsonEncoder.encode(snapshot), etag(snapshot));
+            allPrices = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Ids only grow, so hash of instrument name and id pairs identifies content of snapshot
+     */
+    private static String etag(List<Price> snapshot) {
+        long hash = 0xcbf29ce484222325L;
+        for (Price price : snapshot) {
+            hash = (hash ^ price.getInstrumentName().id()) * 0x100000001b3L;
+            hash = (hash ^ price.getId()) * 0x100000001b3L;
+        }
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+
+    @Getter
+    public static class CachedResponse {
+
+        // Object response was encoded from, compared by reference
+        private final Object source;
+
+        private final byte[] body;
+
+        private final String etag;
+
+        CachedResponse(Object source, byte[] body, String etag) {
+            this.source = source;
+            this.body = body;
+            this.etag = etag;
+        }
+    }
+}
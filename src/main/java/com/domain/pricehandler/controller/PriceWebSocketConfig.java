@@ -0,0 +1,21 @@
+package com.domain.pricehandler.controller;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Maps WebSocket endpoints, before annotated controllers (/prices/binary would be taken as instrument name)
+ */
+@Configuration
+public class PriceWebSocketConfig {
+
+    @Bean
+    public HandlerMapping priceWebSocketMapping(PriceWebSocketHandler priceWebSocketHandler) {
+        return new SimpleUrlHandlerMapping(Map.of("/prices/binary", priceWebSocketHandler), Ordered.HIGHEST_PRECEDENCE);
+    }
+}
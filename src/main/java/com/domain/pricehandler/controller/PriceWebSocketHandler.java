@@ -0,0 +1,177 @@
+package com.domain.pricehandler.controller;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.PriceService;
+import com.domain.pricehandler.service.messaging.PriceTickDecoder;
+import com.domain.pricehandler.service.messaging.PriceTickEncoder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * /prices/binary endpoint streams prices over WebSocket, as binary messages - one tick per message, in layout
+ * of binary price feed (see PriceTickDecoder), so consumers need no JSON parsing.
+ *
+ * Client controls the stream with text messages, which it can send any time (as over request channel):
+ * SUBSCRIBE EUR_USD,GBP_USD - adds instruments, last prices of subscribed instruments are sent again
+ * UNSUBSCRIBE EUR_USD - removes instruments
+ * REQUEST 100 - allows 100 more ticks to be sent (demand, as reactive streams request-n)
+ * Subscription commands are answered with text message "SUBSCRIBED EUR_USD=0,GBP_USD=2" (instrument ids
+ * used in ticks), invalid commands with "ERROR message" (session is kept open).
+ *
+ * Ticks are sent only as long as client has demand. Prices are conflated per instrument in the meantime
+ * (see PriceStream), so slow consumer gets the newest prices once it asks for them, and nothing is buffered
+ * for it beyond one price per instrument (and one price waiting for demand).
+ */
+@Component
+public class PriceWebSocketHandler implements WebSocketHandler {
+
+    private static final Object CREDIT = new Object();
+
+    @Autowired
+    private PriceService priceService;
+
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        Session state = new Session();
+
+        Mono<Void> commands = session.receive()
+                .filter(message -> message.getType() == WebSocketMessage.Type.TEXT)
+                .doOnNext(message -> state.handle(message.getPayloadAsText()))
+                .doFinally(signal -> state.close())
+                .then();
+
+        // Demand of every subscription is taken over when subscription changes
+        Flux<Price> prices = state.subscriptions.asFlux()
+                .switchMap(instrumentNames -> instrumentNames.isEmpty()
+                        ? Flux.<Price>never()
+                        : priceService.streamPrices(instrumentNames, Duration.ZERO));
+        Flux<Object> credits = state.requests.asFlux()
+                .concatMap(n -> Flux.just(CREDIT).repeat(n - 1));
+        // Every tick takes one credit, prefetch of 1 keeps prices in conflation slots until they can be sent
+        Flux<Price> ticks = Flux.zip(values -> (Price) values[0], 1, prices, credits);
+
+        // Subscription is changed only once its reply is passed on to be sent, so ticks of newly subscribed
+        // instruments never get ahead of the reply telling their ids
+        return session.send(Flux.merge(1, state.replies.asFlux(), ticks)
+                        .map(item -> item instanceof Reply
+                                ? session.textMessage(state.sent((Reply) item))
+                                : session.binaryMessage(factory -> factory.wrap(encode((Price) item)))))
+                .and(commands);
+    }
+
+    private static byte[] encode(Price price) {
+        ByteBuffer buffer = ByteBuffer.allocate(PriceTickDecoder.TICK_SIZE);
+        InstrumentName instrumentName = price.getInstrumentName();
+        PriceTickEncoder.encode(buffer, price.getId(), instrumentName, price.getBid(), instrumentName.scale,
+                price.getAsk(), instrumentName.scale, price.getTimestampMillis());
+        return buffer.array();
+    }
+
+    private static class Reply {
+
+        private final String text;
+
+        // Instruments subscribed once reply is sent, null if subscription does not change
+        private final Set<InstrumentName> subscription;
+
+        Reply(String text, Set<InstrumentName> subscription) {
+            this.text = text;
+            this.subscription = subscription;
+        }
+    }
+
+    /**
+     * State of one session, changed only by commands, which are received one at a time (subscriptions are emitted
+     * by outbound, one reply at a time)
+     */
+    private static class Session {
+
+        private final Set<InstrumentName> instrumentNames = new HashSet<>();
+
+        private final Sinks.Many<Set<InstrumentName>> subscriptions = Sinks.many().unicast().onBackpressureBuffer();
+
+        private final Sinks.Many<Long> requests = Sinks.many().unicast().onBackpressureBuffer();
+
+        private final Sinks.Many<Reply> replies = Sinks.many().unicast().onBackpressureBuffer();
+
+        void handle(String command) {
+            try {
+                String[] parts = command.trim().split("\\s+", 2);
+                String argument = parts.length > 1 ? parts[1] : "";
+                switch (parts[0]) {
+                    case "SUBSCRIBE":
+                        instrumentNames.addAll(parseInstrumentNames(argument));
+                        subscriptionChanged();
+                        break;
+                    case "UNSUBSCRIBE":
+                        instrumentNames.removeAll(parseInstrumentNames(argument));
+                        subscriptionChanged();
+                        break;
+                    case "REQUEST":
+                        long n = Long.parseLong(argument);
+                        if (n < 1)
+                            throw new IllegalArgumentException("Number of requested ticks has to be positive");
+                        requests.tryEmitNext(n);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown command: " + parts[0]);
+                }
+            } catch (RuntimeException e) {
+                replies.tryEmitNext(new Reply("ERROR " + e.getMessage(), null));
+            }
+        }
+
+        private static Set<InstrumentName> parseInstrumentNames(String argument) {
+            if (argument.isEmpty())
+                throw new IllegalArgumentException("Instruments are missing");
+            Set<InstrumentName> parsed = new HashSet<>();
+            for (String name : argument.split(",")) {
+                parsed.add(InstrumentName.valueOf(name.trim()));
+            }
+            return parsed;
+        }
+
+        private void subscriptionChanged() {
+            StringBuilder reply = new StringBuilder("SUBSCRIBED");
+            String separator = " ";
+            for (InstrumentName instrumentName : InstrumentName.values()) {
+                if (instrumentNames.contains(instrumentName)) {
+                    reply.append(separator).append(instrumentName.name()).append('=').append(instrumentName.id());
+                    separator = ",";
+                }
+            }
+            // Copy, as the set is changed by following commands
+            replies.tryEmitNext(new Reply(reply.toString(), Collections.unmodifiableSet(new HashSet<>(instrumentNames))));
+        }
+
+        /**
+         * Called when reply is about to be sent, changes subscription if reply is about it
+         * @return text of reply
+         */
+        String sent(Reply reply) {
+            if (reply.subscription != null) {
+                subscriptions.tryEmitNext(reply.subscription);
+            }
+            return reply.text;
+        }
+
+        void close() {
+            subscriptions.tryEmitComplete();
+            requests.tryEmitComplete();
+            replies.tryEmitComplete();
+        }
+    }
+}
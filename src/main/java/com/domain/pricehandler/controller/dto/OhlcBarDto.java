@@ -0,0 +1,26 @@
+package com.domain.pricehandler.controller.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * OHLC bar of mid price returned by endpoint
+ */
+@Data
+public class OhlcBarDto {
+
+    // Start of bar interval, in the format of price feed
+    String start;
+
+    BigDecimal open;
+
+    BigDecimal high;
+
+    BigDecimal low;
+
+    BigDecimal close;
+
+    // Number of prices the bar was built of
+    int ticks;
+}
@@ -0,0 +1,21 @@
+package com.domain.pricehandler.controller.dto;
+
+import com.domain.pricehandler.model.InstrumentName;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * OHLC bars of one instrument returned by endpoint, oldest bar first
+ */
+@Data
+public class OhlcBarsDto {
+
+    // Published as enum name, eg. EUR_USD
+    InstrumentName instrumentName;
+
+    // Label of resolution, eg. 1m
+    String resolution;
+
+    List<OhlcBarDto> bars;
+}
@@ -0,0 +1,69 @@
+package com.domain.pricehandler.controller.dto;
+
+import com.domain.pricehandler.model.FixedPoint;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.history.OhlcBars;
+import com.domain.pricehandler.service.history.TickHistory;
+import com.domain.pricehandler.service.messaging.FeedTimestamp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps internal Price to external PriceDto
+ *
+ * Hand written instead of reflection based mapping, as it is done for every published price
+ */
+public final class PriceDtoMapper {
+
+    private PriceDtoMapper() {
+    }
+
+    public static PriceDto toDto(Price price) {
+        PriceDto dto = new PriceDto();
+        dto.setInstrumentName(price.getInstrumentName());
+        // Fixed point prices are converted to decimals only when published
+        int scale = price.getInstrumentName().scale;
+        dto.setBid(FixedPoint.toBigDecimal(price.getBid(), scale));
+        dto.setAsk(FixedPoint.toBigDecimal(price.getAsk(), scale));
+        dto.setTimestamp(price.getTimestamp());
+        return dto;
+    }
+
+    public static PriceHistoryDto toDto(TickHistory history) {
+        int scale = history.getInstrumentName().scale;
+        List<PriceTickDto> ticks = new ArrayList<>(history.size());
+        for (int i = 0; i < history.size(); i++) {
+            PriceTickDto tick = new PriceTickDto();
+            tick.setId(history.getId(i));
+            tick.setBid(FixedPoint.toBigDecimal(history.getBid(i), scale));
+            tick.setAsk(FixedPoint.toBigDecimal(history.getAsk(i), scale));
+            tick.setTimestamp(FeedTimestamp.format(history.getTimestampMillis(i)));
+            ticks.add(tick);
+        }
+        PriceHistoryDto dto = new PriceHistoryDto();
+        dto.setInstrumentName(history.getInstrumentName());
+        dto.setTicks(ticks);
+        return dto;
+    }
+
+    public static OhlcBarsDto toDto(OhlcBars ohlcBars) {
+        int scale = ohlcBars.getScale();
+        List<OhlcBarDto> bars = new ArrayList<>(ohlcBars.size());
+        for (int i = 0; i < ohlcBars.size(); i++) {
+            OhlcBarDto bar = new OhlcBarDto();
+            bar.setStart(FeedTimestamp.format(ohlcBars.getStartMillis(i)));
+            bar.setOpen(FixedPoint.toBigDecimal(ohlcBars.getOpen(i), scale));
+            bar.setHigh(FixedPoint.toBigDecimal(ohlcBars.getHigh(i), scale));
+            bar.setLow(FixedPoint.toBigDecimal(ohlcBars.getLow(i), scale));
+            bar.setClose(FixedPoint.toBigDecimal(ohlcBars.getClose(i), scale));
+            bar.setTicks(ohlcBars.getTickCount(i));
+            bars.add(bar);
+        }
+        OhlcBarsDto dto = new OhlcBarsDto();
+        dto.setInstrumentName(ohlcBars.getInstrumentName());
+        dto.setResolution(ohlcBars.getResolution().label);
+        dto.setBars(bars);
+        return dto;
+    }
+}
@@ -0,0 +1,33 @@
+package com.domain.pricehandler.controller.dto;
+
+/**
+ * Fields of PriceDto, which can be requested by GET endpoints (see PriceJsonEncoder.encode with fields)
+ */
+public enum PriceField {
+
+    INSTRUMENT_NAME("instrumentName"),
+    BID("bid"),
+    ASK("ask"),
+    TIMESTAMP("timestamp");
+
+    // Name of field in JSON, and in request parameter
+    public final String jsonName;
+
+    PriceField(String jsonName) {
+        this.jsonName = jsonName;
+    }
+
+    /**
+     * @param jsonName eg. "bid"
+     * @return field
+     * @throws IllegalArgumentException if there is no such field
+     */
+    public static PriceField valueOfJsonName(String jsonName) {
+        for (PriceField field : values()) {
+            if (field.jsonName.equals(jsonName)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported price field: " + jsonName);
+    }
+}
@@ -0,0 +1,18 @@
+package com.domain.pricehandler.controller.dto;
+
+import com.domain.pricehandler.model.InstrumentName;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Price history of one instrument returned by endpoint, oldest tick first
+ */
+@Data
+public class PriceHistoryDto {
+
+    // Published as enum name, eg. EUR_USD
+    InstrumentName instrumentName;
+
+    List<PriceTickDto> ticks;
+}
@@ -0,0 +1,239 @@
+package com.domain.pricehandler.controller.dto;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Writes Price as JSON bytes, in the same form Jackson writes PriceDto:
+ * {"instrumentName":"EUR_USD","bid":1.0989,"ask":1.2012,"timestamp":"01-06-2020 12:01:01:001"}
+ *
+ * Nothing is mapped or reflected on - beginning of JSON up to bid value is pre-encoded per instrument,
+ * decimals are written straight from fixed point values.
+ *
+ * Prices can also be written with requested fields only (instrument name is always written, so prices
+ * in array can be told apart), in the same order as in PriceDto.
+ */
+public final class PriceJsonEncoder {
+
+    // Indexed by instrument id, encoded when instrument is encoded first time
+    private static final AtomicReferenceArray<byte[]> PREFIXES = new AtomicReferenceArray<>(InstrumentName.CAPACITY);
+
+    // As PREFIXES, without bid, for prices written with requested fields
+    private static final AtomicReferenceArray<byte[]> NAME_PREFIXES =
+            new AtomicReferenceArray<>(InstrumentName.CAPACITY);
+
+    private static final byte[] BID = ascii(",\"bid\":");
+
+    private static final byte[] ASK = ascii(",\"ask\":");
+
+    private static final byte[] TIMESTAMP = ascii(",\"timestamp\":");
+
+    private static final byte[] NULL = ascii("null");
+
+    private static final byte[] HEX_DIGITS = ascii("0123456789abcdef");
+
+    // Escapes of control characters, which Jackson writes in short form
+    private static final byte[] SHORT_ESCAPES = new byte[0x20];
+
+    // sign and 19 digits of long, decimal point
+    private static final int MAX_DECIMAL_LENGTH = 21;
+
+    static {
+        SHORT_ESCAPES['\b'] = 'b';
+        SHORT_ESCAPES['\t'] = 't';
+        SHORT_ESCAPES['\n'] = 'n';
+        SHORT_ESCAPES['\f'] = 'f';
+        SHORT_ESCAPES['\r'] = 'r';
+    }
+
+    private PriceJsonEncoder() {
+    }
+
+    /**
+     * @param price
+     * @return JSON object
+     */
+    public static byte[] encode(Price price) {
+        byte[] json = new byte[maxLength(price)];
+        int length = write(price, json, 0);
+        return Arrays.copyOf(json, length);
+    }
+
+    /**
+     * @param prices
+     * @return JSON array
+     */
+    public static byte[] encode(List<Price> prices) {
+        int maxLength = 2;
+        for (Price price : prices) {
+            maxLength += maxLength(price) + 1;
+        }
+        byte[] json = new byte[maxLength];
+        int position = 0;
+        json[position++] = '[';
+        for (int i = 0; i < prices.size(); i++) {
+            if (i > 0) {
+                json[position++] = ',';
+            }
+            position = write(prices.get(i), json, position);
+        }
+        json[position++] = ']';
+        return Arrays.copyOf(json, position);
+    }
+
+    /**
+     * @param prices
+     * @param fields fields to be written, instrument name is written always
+     * @return JSON array
+     */
+    public static byte[] encode(List<Price> prices, Set<PriceField> fields) {
+        int maxLength = 2;
+        for (Price price : prices) {
+            maxLength += maxLength(price) + 1;
+        }
+        byte[] json = new byte[maxLength];
+        int position = 0;
+        json[position++] = '[';
+        for (int i = 0; i < prices.size(); i++) {
+            if (i > 0) {
+                json[position++] = ',';
+            }
+            position = write(prices.get(i), fields, json, position);
+        }
+        json[position++] = ']';
+        return Arrays.copyOf(json, position);
+    }
+
+    private static int maxLength(Price price) {
+        String timestamp = price.getTimestamp();
+        // every timestamp character may need to be escaped as \\uXXXX
+        int timestampLength = timestamp == null ? NULL.length : timestamp.length() * 6 + 2;
+        return prefix(price.getInstrumentName()).length + MAX_DECIMAL_LENGTH
+                + ASK.length + MAX_DECIMAL_LENGTH
+                + TIMESTAMP.length + timestampLength + 1;
+    }
+
+    // Two threads may encode the same prefix at the same time, both results are the same
+    private static byte[] prefix(InstrumentName instrumentName) {
+        byte[] prefix = PREFIXES.get(instrumentName.id());
+        if (prefix == null) {
+            prefix = ascii("{\"instrumentName\":\"" + instrumentName.name() + "\",\"bid\":");
+            PREFIXES.set(instrumentName.id(), prefix);
+        }
+        return prefix;
+    }
+
+    private static int write(Price price, byte[] json, int position) {
+        InstrumentName instrumentName = price.getInstrumentName();
+        position = write(prefix(instrumentName), json, position);
+        position = writeDecimal(price.getBid(), instrumentName.scale, json, position);
+        position = write(ASK, json, position);
+        position = writeDecimal(price.getAsk(), instrumentName.scale, json, position);
+        position = write(TIMESTAMP, json, position);
+        position = writeString(price.getTimestamp(), json, position);
+        json[position++] = '}';
+        return position;
+    }
+
+    private static int write(Price price, Set<PriceField> fields, byte[] json, int position) {
+        InstrumentName instrumentName = price.getInstrumentName();
+        position = write(namePrefix(instrumentName), json, position);
+        if (fields.contains(PriceField.BID)) {
+            position = write(BID, json, position);
+            position = writeDecimal(price.getBid(), instrumentName.scale, json, position);
+        }
+        if (fields.contains(PriceField.ASK)) {
+            position = write(ASK, json, position);
+            position = writeDecimal(price.getAsk(), instrumentName.scale, json, position);
+        }
+        if (fields.contains(PriceField.TIMESTAMP)) {
+            position = write(TIMESTAMP, json, position);
+            position = writeString(price.getTimestamp(), json, position);
+        }
+        json[position++] = '}';
+        return position;
+    }
+
+    private static byte[] namePrefix(InstrumentName instrumentName) {
+        byte[] prefix = NAME_PREFIXES.get(instrumentName.id());
+        if (prefix == null) {
+            prefix = ascii("{\"instrumentName\":\"" + instrumentName.name() + "\"");
+            NAME_PREFIXES.set(instrumentName.id(), prefix);
+        }
+        return prefix;
+    }
+
+    private static int write(byte[] bytes, byte[] json, int position) {
+        System.arraycopy(bytes, 0, json, position, bytes.length);
+        return position + bytes.length;
+    }
+
+    /**
+     * Writes value * 10^-scale in plain notation with exactly scale decimal places, as BigDecimal.toString does
+     */
+    static int writeDecimal(long value, int scale, byte[] json, int position) {
+        if (value < 0) {
+            json[position++] = '-';
+        }
+        // digits are written backwards from the end of the number, long is not negated so Long.MIN_VALUE works
+        int digits = Math.max(digitCount(value), scale + 1);
+        int end = position + digits + (scale > 0 ? 1 : 0);
+        int index = end;
+        for (int i = 0; i < digits; i++) {
+            if (i == scale && scale > 0) {
+                json[--index] = '.';
+            }
+            json[--index] = (byte) ('0' + Math.abs(value % 10));
+            value /= 10;
+        }
+        return end;
+    }
+
+    private static int digitCount(long value) {
+        int count = 1;
+        while (value <= -10 || value >= 10) {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    private static int writeString(String value, byte[] json, int position) {
+        if (value == null) {
+            return write(NULL, json, position);
+        }
+        json[position++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json[position++] = '\\';
+                json[position++] = (byte) c;
+            } else if (c < 0x20 && SHORT_ESCAPES[c] != 0) {
+                json[position++] = '\\';
+                json[position++] = SHORT_ESCAPES[c];
+            } else if (c < 0x20 || c > 0x7e) {
+                // non ASCII characters are escaped as well, so JSON stays ASCII
+                json[position++] = '\\';
+                json[position++] = 'u';
+                json[position++] = HEX_DIGITS[(c >> 12) & 0xf];
+                json[position++] = HEX_DIGITS[(c >> 8) & 0xf];
+                json[position++] = HEX_DIGITS[(c >> 4) & 0xf];
+                json[position++] = HEX_DIGITS[c & 0xf];
+            } else {
+                json[position++] = (byte) c;
+            }
+        }
+        json[position++] = '"';
+        return position;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,21 @@
+package com.domain.pricehandler.controller.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Tick of price history returned by endpoint, instrument name is given once for all ticks (see PriceHistoryDto)
+ */
+@Data
+public class PriceTickDto {
+
+    int id;
+
+    BigDecimal bid;
+
+    BigDecimal ask;
+
+    // In the format of price feed
+    String timestamp;
+}
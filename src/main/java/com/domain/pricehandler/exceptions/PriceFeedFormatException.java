@@ -0,0 +1,11 @@
+package com.domain.pricehandler.exceptions;
+
+/**
+ * Thrown when price feed message can not be parsed
+ */
+public class PriceFeedFormatException extends RuntimeException {
+
+    public PriceFeedFormatException(String message) {
+        super(message);
+    }
+}
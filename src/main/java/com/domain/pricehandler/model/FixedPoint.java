@@ -0,0 +1,184 @@
+package com.domain.pricehandler.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Arithmetic on prices kept as scaled longs, value = mantissa * 10^-scale
+ *
+ * Used instead of BigDecimal through the whole price pipeline, so no objects are created per price
+ * and there is no binary floating point error in margins. Conversion to BigDecimal is done only
+ * when price is published by endpoint.
+ */
+public final class FixedPoint {
+
+    /**
+     * Scale of multipliers (eg. 1 + margin), 9 decimal places are more than enough for any margin
+     */
+    public static final int MULTIPLIER_SCALE = 9;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Converts margin to multiplier (1 + margin) with MULTIPLIER_SCALE.
+     * Done only when configuration is read, BigDecimal.valueOf keeps decimal representation of double
+     * (eg. 0.001 stays 0.001 and not 0.001000000000000000020816...)
+     * @param margin eg. -0.001 for bid reduced by 0.1%
+     * @return multiplier
+     */
+    public static long multiplier(double margin) {
+        return BigDecimal.ONE.add(BigDecimal.valueOf(margin))
+                .setScale(MULTIPLIER_SCALE, RoundingMode.HALF_EVEN)
+                .unscaledValue()
+                .longValueExact();
+    }
+
+    /**
+     * Multiplies value by multiplier and rounds the result to target scale. There is only one rounding,
+     * done at the very end. Product of long mantissa (eg. 119.60123456) and multiplier does not fit in long,
+     * it is computed with BigDecimal then - the only case when objects are created.
+     * @param value mantissa of value
+     * @param valueScale scale of value
+     * @param multiplier multiplier with MULTIPLIER_SCALE
+     * @param targetScale scale of result
+     * @param roundingMode rounding applied to result
+     * @return mantissa of result with target scale
+     * @throws ArithmeticException in case result does not fit in long
+     */
+    public static long multiply(long value, int valueScale, long multiplier, int targetScale, RoundingMode roundingMode) {
+        long product = value * multiplier;
+        int excessScale = valueScale + MULTIPLIER_SCALE - targetScale;
+        if (Math.multiplyHigh(value, multiplier) != product >> 63 || Math.abs(excessScale) >= POWERS_OF_TEN.length) {
+            return toBigDecimal(value, valueScale).multiply(toBigDecimal(multiplier, MULTIPLIER_SCALE))
+                    .setScale(targetScale, roundingMode)
+                    .unscaledValue()
+                    .longValueExact();
+        }
+        if (excessScale <= 0) {
+            return Math.multiplyExact(product, powerOfTen(-excessScale));
+        }
+        return divide(product, powerOfTen(excessScale), roundingMode);
+    }
+
+    /**
+     * Changes scale of value, rounding if scale is decreased
+     * @throws ArithmeticException in case of overflow
+     */
+    public static long rescale(long value, int valueScale, int targetScale, RoundingMode roundingMode) {
+        if (targetScale >= valueScale) {
+            return Math.multiplyExact(value, powerOfTen(targetScale - valueScale));
+        }
+        return divide(value, powerOfTen(valueScale - targetScale), roundingMode);
+    }
+
+    /**
+     * Multiplies two values, each of them taken as it is or as its reciprocal (as legs of cross rate are),
+     * and rounds the result to target scale. There is only one rounding, done at the very end.
+     * @param value1 mantissa of the first value, has to be positive if inverted
+     * @param scale1 scale of the first value
+     * @param invert1 true - reciprocal of the first value is taken
+     * @param value2 mantissa of the second value, has to be positive if inverted
+     * @param scale2 scale of the second value
+     * @param invert2 true - reciprocal of the second value is taken
+     * @param targetScale scale of result
+     * @param roundingMode rounding applied to result
+     * @return mantissa of result with target scale
+     * @throws ArithmeticException in case of overflow, or reciprocal of value which is not positive
+     */
+    public static long cross(long value1, int scale1, boolean invert1, long value2, int scale2, boolean invert2,
+                             int targetScale, RoundingMode roundingMode) {
+        long numerator = 1;
+        long denominator = 1;
+        // Power of ten result is multiplied by, (v1 / 10^s1) * (v2 / 10^s2) * 10^ts = v1 * v2 * 10^(ts - s1 - s2)
+        int exponent = targetScale;
+        if (invert1) {
+            denominator = positive(value1);
+            exponent += scale1;
+        } else {
+            numerator = value1;
+            exponent -= scale1;
+        }
+        if (invert2) {
+            denominator = Math.multiplyExact(denominator, positive(value2));
+            exponent += scale2;
+        } else {
+            numerator = Math.multiplyExact(numerator, value2);
+            exponent -= scale2;
+        }
+        if (exponent >= 0) {
+            numerator = Math.multiplyExact(numerator, powerOfTen(exponent));
+        } else {
+            denominator = Math.multiplyExact(denominator, powerOfTen(-exponent));
+        }
+        return divide(numerator, denominator, roundingMode);
+    }
+
+    private static long positive(long value) {
+        if (value <= 0) {
+            throw new ArithmeticException("Reciprocal of value which is not positive: " + value);
+        }
+        return value;
+    }
+
+    public static BigDecimal toBigDecimal(long value, int scale) {
+        return BigDecimal.valueOf(value, scale);
+    }
+
+    public static long powerOfTen(int exponent) {
+        if (exponent < 0 || exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("Scale out of range: " + exponent);
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+
+    /**
+     * Integer division with explicit rounding, divisor has to be positive
+     */
+    static long divide(long dividend, long divisor, RoundingMode roundingMode) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        // -1 or 1, division truncates towards zero, so the exact result is between quotient and quotient + sign
+        long sign = dividend < 0 ? -1 : 1;
+        long doubledRemainder = Math.abs(remainder) * 2;
+        boolean awayFromZero;
+        switch (roundingMode) {
+            case UP:
+                awayFromZero = true;
+                break;
+            case DOWN:
+                awayFromZero = false;
+                break;
+            case CEILING:
+                awayFromZero = sign > 0;
+                break;
+            case FLOOR:
+                awayFromZero = sign < 0;
+                break;
+            case HALF_UP:
+                awayFromZero = doubledRemainder >= divisor;
+                break;
+            case HALF_DOWN:
+                awayFromZero = doubledRemainder > divisor;
+                break;
+            case HALF_EVEN:
+                awayFromZero = doubledRemainder > divisor || (doubledRemainder == divisor && (quotient & 1) != 0);
+                break;
+            default:
+                throw new ArithmeticException("Rounding necessary");
+        }
+        return awayFromZero ? quotient + sign : quotient;
+    }
+}
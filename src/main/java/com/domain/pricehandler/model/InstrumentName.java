@@ -1,44 +1,193 @@
 package com.domain.pricehandler.model;
 
-import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.Map;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- * Enum with Supported instrument names
+ * Supported instrument names, registered at runtime (from configuration or on first sight in price feed)
+ *
+ * Every instrument is interned - there is only one instance per label, so instances can be compared with ==.
+ * Instruments get dense ids in order of registration, so prices can be kept in arrays indexed by id
+ * (arrays sized by CAPACITY never need to grow).
+ *
+ * Instrument is identified by label (eg. "EUR/USD", as in price feed) or name (eg. "EUR_USD", as in endpoints
+ * and JSON). Lookups by either of them are done in open addressing hash table, directly on characters,
+ * so they do not create any objects.
  */
-public enum InstrumentName {
-    EUR_USD("EUR/USD"),
-    EUR_JPY("EUR/JPY"),
-    GBP_USD("GBP/USD");
+public final class InstrumentName {
+
+    /**
+     * Maximum number of instruments, ids are always lower
+     */
+    public static final int CAPACITY = 1024;
+
+    // Power of two, at most half full
+    private static final int TABLE_SIZE = Integer.highestOneBit(CAPACITY * 2 - 1) * 2;
+
+    private static final int MAX_SCALE = 18;
+
+    private static final AtomicReferenceArray<InstrumentName> BY_ID = new AtomicReferenceArray<>(CAPACITY);
+
+    private static final AtomicReferenceArray<InstrumentName> TABLE = new AtomicReferenceArray<>(TABLE_SIZE);
+
+    // Written only under lock of class, after instrument is visible in arrays
+    private static volatile int count;
 
-    // enumSet added to support checking if requested instrument name is in enum
-    private static EnumSet<InstrumentName> enumSet;
+    public static final InstrumentName EUR_USD = register("EUR/USD", 4);
+    public static final InstrumentName EUR_JPY = register("EUR/JPY", 2);
+    public static final InstrumentName GBP_USD = register("GBP/USD", 4);
 
     public final String label;
 
-    private InstrumentName(String label) {
+    // Number of decimal places (pips) prices of this instrument are kept and published with
+    public final int scale;
+
+    private final int id;
+
+    private final String name;
+
+    private InstrumentName(String label, int scale, int id) {
         this.label = label;
+        this.scale = scale;
+        this.id = id;
+        this.name = label.replace('/', '_');
     }
 
-    private static final Map<String, InstrumentName> BY_LABEL = new HashMap<>();
+    /**
+     * @return dense id, lower than count()
+     */
+    public int id() {
+        return id;
+    }
 
-    static {
-        for (InstrumentName i: values()) {
-            BY_LABEL.put(i.label, i);
+    /**
+     * @return name, label with '/' replaced by '_'
+     */
+    @JsonValue
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Registers instrument, if it is not registered already
+     * @param label eg. "USD/JPY", can not contain '_', ',' nor whitespace
+     * @param scale number of decimal places prices are kept with, ignored if instrument is registered already
+     * @return instrument name
+     * @throws IllegalArgumentException if label or scale is not valid
+     * @throws IllegalStateException if CAPACITY instruments are registered already
+     */
+    public static synchronized InstrumentName register(String label, int scale) {
+        InstrumentName registered = lookup(label, 0, label.length(), false);
+        if (registered != null) {
+            return registered;
+        }
+        validate(label, scale);
+        if (count == CAPACITY) {
+            throw new IllegalStateException("Maximum number of instruments reached: " + CAPACITY);
+        }
+        InstrumentName instrumentName = new InstrumentName(label, scale, count);
+        BY_ID.set(instrumentName.id, instrumentName);
+        int index = hash(label, 0, label.length());
+        while (TABLE.get(index) != null) {
+            index = (index + 1) & (TABLE_SIZE - 1);
         }
+        TABLE.set(index, instrumentName);
+        count = instrumentName.id + 1;
+        return instrumentName;
+    }
+
+    private static void validate(String label, int scale) {
+        if (label.isEmpty()) {
+            throw new IllegalArgumentException("Instrument label can not be empty");
+        }
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            if (c <= ' ' || c > '~' || c == '_' || c == ',') {
+                throw new IllegalArgumentException("Instrument label contains unsupported character: " + label);
+            }
+        }
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("Scale of instrument has to be between 0 and " + MAX_SCALE);
+        }
+    }
 
-        enumSet = EnumSet.allOf(InstrumentName.class);
+    /**
+     * @return number of registered instruments
+     */
+    public static int count() {
+        return count;
     }
 
     /**
-     * Returns instrument name enum if supported
+     * @param id
+     * @return instrument name, null if no instrument has given id
+     */
+    public static InstrumentName byId(int id) {
+        return id >= 0 && id < CAPACITY ? BY_ID.get(id) : null;
+    }
+
+    /**
+     * @return all registered instruments, ordered by id (array is created on every call)
+     */
+    public static InstrumentName[] values() {
+        int registered = count;
+        InstrumentName[] values = new InstrumentName[registered];
+        for (int i = 0; i < registered; i++) {
+            values[i] = BY_ID.get(i);
+        }
+        return values;
+    }
+
+    /**
+     * Returns instrument name if supported
      * @param label
      * @return
      */
     public static Optional<InstrumentName> valueOfLabel(String label) {
-        return Optional.ofNullable(BY_LABEL.get(label));
+        return Optional.ofNullable(lookup(label, 0, label.length(), false));
+    }
+
+    /**
+     * Returns instrument name if supported, without creating String out of the label
+     * @param chars characters containing the label
+     * @param start index of the first character of the label
+     * @param end index after the last character of the label
+     * @return instrument name, or null if not supported
+     */
+    public static InstrumentName valueOfLabel(CharSequence chars, int start, int end) {
+        return lookup(chars, start, end, false);
+    }
+
+    /**
+     * Returns instrument name if supported, '_' and '/' are both accepted as separator (eg. "EUR_USD", "EUR/USD")
+     * @param name
+     * @return instrument name, or null if not supported
+     */
+    public static InstrumentName valueOfName(CharSequence name) {
+        return lookup(name, 0, name.length(), true);
+    }
+
+    /**
+     * Same as valueOfName, but fails for unsupported names (as Enum.valueOf)
+     * @param name
+     * @return instrument name
+     * @throws IllegalArgumentException if instrument is not supported
+     */
+    @JsonCreator
+    public static InstrumentName valueOf(String name) {
+        InstrumentName instrumentName = valueOfName(name);
+        if (instrumentName == null) {
+            throw new IllegalArgumentException("Unsupported instrument name: " + name);
+        }
+        return instrumentName;
     }
 
     /**
@@ -47,6 +196,43 @@ public enum InstrumentName {
      * @return
      */
     public static boolean contains(InstrumentName instrumentName) {
-        return enumSet.contains(instrumentName);
+        return instrumentName != null && BY_ID.get(instrumentName.id) == instrumentName;
+    }
+
+    private static InstrumentName lookup(CharSequence chars, int start, int end, boolean underscoreAsSlash) {
+        int index = hash(chars, start, end);
+        InstrumentName candidate;
+        while ((candidate = TABLE.get(index)) != null) {
+            if (matches(candidate.label, chars, start, end, underscoreAsSlash)) {
+                return candidate;
+            }
+            index = (index + 1) & (TABLE_SIZE - 1);
+        }
+        return null;
+    }
+
+    // '_' is hashed as '/', so label and name of instrument have the same hash
+    private static int hash(CharSequence chars, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            hash = 31 * hash + (c == '_' ? '/' : c);
+        }
+        hash ^= hash >>> 16;
+        return hash & (TABLE_SIZE - 1);
+    }
+
+    private static boolean matches(String label, CharSequence chars, int start, int end, boolean underscoreAsSlash) {
+        int length = end - start;
+        if (label.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(start + i);
+            if (c != label.charAt(i) && !(underscoreAsSlash && c == '_' && label.charAt(i) == '/')) {
+                return false;
+            }
+        }
+        return true;
     }
 }
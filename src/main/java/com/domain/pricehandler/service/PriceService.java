@@ -1,11 +1,18 @@
 package com.domain.pricehandler.service;
 
+import com.domain.pricehandler.model.InstrumentName;
 import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.commission.CommissionTable;
+import com.domain.pricehandler.service.history.BarResolution;
+import com.domain.pricehandler.service.history.OhlcBars;
+import com.domain.pricehandler.service.history.TickHistory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service Interface for storing and retrieving prices
@@ -14,13 +21,74 @@ public interface PriceService {
 
     public Mono<Price> getPrice(String instrumentName);
 
+    public Mono<Price> getPrice(InstrumentName instrumentName);
+
     public Flux<Price> getPrices();
 
+    /**
+     * Returns all prices as immutable snapshot, the same list object is returned until prices are updated
+     * (or get stale)
+     * @return
+     */
+    public Mono<List<Price>> getPricesSnapshot();
+
+    /**
+     * Returns prices of given instruments, looked up one by one (snapshot of all prices is not read)
+     * @param instrumentNames
+     * @return prices which are not stale, in order of instruments, instruments without price are skipped
+     */
+    public Mono<List<Price>> getPrices(Collection<InstrumentName> instrumentNames);
+
     public void updatePrices(List<Price> prices);
 
-    public void clearPrices();
+    /**
+     * Applies prices replicated from leader node: they are stored if newer, as in updatePrices,
+     * but crosses are not derived, as leader replicates them too
+     * @param prices prices indexed by instrument id, null entries are skipped.
+     *               Entries which were not stored are set to null (as in PriceRepository.updateAll).
+     * @return number of stored prices
+     */
+    public int applyReplicatedPrices(Price[] prices);
+
+    /**
+     * Returns counters of prices passed to updatePrices
+     * @return
+     */
+    public PriceUpdateStatistics getUpdateStatistics();
 
-    public BigDecimal calculatePriceBid(BigDecimal priceFeedBid);
+    /**
+     * Returns applied prices of instrument in time range (within retention of history)
+     * @param instrumentName
+     * @param fromMillis inclusive
+     * @param toMillis inclusive
+     * @return empty if instrument has no history (or history is disabled)
+     */
+    public Mono<TickHistory> getHistory(InstrumentName instrumentName, long fromMillis, long toMillis);
+
+    /**
+     * Returns OHLC bars of mid price of instrument, bar containing fromMillis is the first one
+     * @param instrumentName
+     * @param resolution
+     * @param fromMillis
+     * @param toMillis inclusive
+     * @return empty if instrument has no history (or history is disabled)
+     */
+    public Mono<OhlcBars> getBars(InstrumentName instrumentName, BarResolution resolution,
+                                  long fromMillis, long toMillis);
+
+    /**
+     * Streams last known prices followed by updates of them, conflated per instrument
+     * @param instrumentNames instruments to stream, empty set means all instruments
+     * @param throttleWindow every instrument is sent at most once per window, Duration.ZERO for no throttling
+     * @return
+     */
+    public Flux<Price> streamPrices(Set<InstrumentName> instrumentNames, Duration throttleWindow);
+
+    public void clearPrices();
 
-    public BigDecimal calculatePriceAsk(BigDecimal priceFeedAsk);
+    /**
+     * Returns commission to be applied to prices from price feed
+     * @return commission table, to be used for the whole price feed message
+     */
+    public CommissionTable getCommissionTable();
 }
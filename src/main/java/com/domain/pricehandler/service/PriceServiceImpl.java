@@ -2,118 +2,295 @@ package com.domain.pricehandler.service;
 
 import com.domain.pricehandler.model.InstrumentName;
 import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.commission.CommissionEngine;
+import com.domain.pricehandler.service.commission.CommissionTable;
+import com.domain.pricehandler.service.crossrate.CrossRateEngine;
+import com.domain.pricehandler.service.history.BarResolution;
+import com.domain.pricehandler.service.history.OhlcBars;
+import com.domain.pricehandler.service.history.PriceHistory;
+import com.domain.pricehandler.service.history.TickHistory;
+import com.domain.pricehandler.service.journal.PriceJournal;
+import com.domain.pricehandler.service.metrics.FeedMetrics;
+import com.domain.pricehandler.service.replication.PriceReplicator;
 import com.domain.pricehandler.service.repository.PriceRepository;
+import com.domain.pricehandler.service.staleness.StalenessMonitor;
+import com.domain.pricehandler.service.streaming.PriceStream;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.math.BigDecimal;
-import java.util.Comparator;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
-@ConfigurationProperties(prefix = "commission")
 @Slf4j
 public class PriceServiceImpl implements PriceService {
 
-    // Value is read from properties config
-    Double bidMargin;
-
-    // Value is read from properties config
-    Double askMargin;
+    private final PriceUpdateStatistics updateStatistics = new PriceUpdateStatistics();
 
     @Autowired
     private PriceRepository priceRepository;
 
+    // Margins are read from properties config
+    @Autowired
+    private CommissionEngine commissionEngine;
+
+    @Autowired
+    private PriceStream priceStream;
+
+    @Autowired
+    private FeedMetrics feedMetrics;
+
+    @Autowired
+    private StalenessMonitor stalenessMonitor;
+
+    @Autowired
+    private PriceJournal priceJournal;
+
+    @Autowired
+    private PriceHistory priceHistory;
+
+    @Autowired
+    private CrossRateEngine crossRateEngine;
+
+    @Autowired
+    private PriceReplicator priceReplicator;
+
     /**
-     * Returning stored prices for given instrument
+     * Returning stored prices for given instrument, unless it is stale
      * @param instrumentNameAsString
      * @return
      */
     @Override
     public Mono<Price> getPrice(String instrumentNameAsString) {
         Optional<InstrumentName> opt = InstrumentName.valueOfLabel(instrumentNameAsString);
-        return opt.map(instrumentName -> {
-            Optional<Price> optPrice = priceRepository.getByInstrumentName(instrumentName);
-            return optPrice.map(price -> Mono.just(price))
-                    .orElseGet(() -> Mono.empty());
-        }).orElseGet(() -> {
+        return opt.map(instrumentName -> getPrice(instrumentName)).orElseGet(() -> {
             // Logging added in expected rare test cases only to minimize effect on service responsiveness
             log.warn("Unsupported instrument name requested: ignoring request");
             return Mono.empty();
         });
     }
 
+    @Override
+    public Mono<Price> getPrice(InstrumentName instrumentName) {
+        Optional<Price> optPrice = priceRepository.getByInstrumentName(instrumentName)
+                .filter(price -> !stalenessMonitor.isStale(price));
+        return optPrice.map(price -> Mono.just(price))
+                .orElseGet(() -> Mono.empty());
+    }
+
     /**
-     * Returning all stored prices
+     * Returning all stored prices, which are not stale, straight from repository snapshot (never copied).
+     * Price which got stale since the last sweep is skipped, and sweep is requested.
      * @return
      */
     @Override
     public Flux<Price> getPrices() {
-        Optional<List<Price>> opt = priceRepository.get();
-        return opt.map(list -> Flux.fromIterable(list))
-                .orElseGet(() -> Flux.empty());
+        return priceRepository.findAll().filter(price -> {
+            if (stalenessMonitor.isStale(price)) {
+                stalenessMonitor.requestSweep();
+                return false;
+            }
+            return true;
+        });
     }
 
-    // This method could be moved to utils (not created due to time constraints)
-    private static <T> Predicate<T> distinctByKey(
-            Function<? super T, ?> keyExtractor) {
+    /**
+     * Returning all stored prices, which are not stale, as repository snapshot, without copying
+     * (unless a price got stale since the last sweep)
+     * @return
+     */
+    @Override
+    public Mono<List<Price>> getPricesSnapshot() {
+        Optional<List<Price>> opt = getFreshSnapshot();
+        return opt.map(list -> Mono.just(list))
+                .orElseGet(() -> Mono.empty());
+    }
+
+    @Override
+    public Mono<List<Price>> getPrices(Collection<InstrumentName> instrumentNames) {
+        List<Price> prices = new ArrayList<>(instrumentNames.size());
+        for (InstrumentName instrumentName : instrumentNames) {
+            Optional<Price> price = priceRepository.getByInstrumentName(instrumentName);
+            if (price.isPresent()) {
+                if (stalenessMonitor.isStale(price.get())) {
+                    stalenessMonitor.requestSweep();
+                } else {
+                    prices.add(price.get());
+                }
+            }
+        }
+        return Mono.just(prices);
+    }
 
-        Map<Object, Boolean> seen = new ConcurrentHashMap<>();
-        return t -> seen.putIfAbsent(keyExtractor.apply(t), Boolean.TRUE) == null;
+    /**
+     * Sweeper removes stale prices from snapshot in background. If price got stale since the last sweep,
+     * it is filtered out of returned list, and sweep is requested - this is called on event loops,
+     * which only read the repository, never write to it (see FeedExecutors).
+     */
+    private Optional<List<Price>> getFreshSnapshot() {
+        Optional<List<Price>> opt = priceRepository.get();
+        if (opt.isPresent() && stalenessMonitor.containsStale(opt.get())) {
+            stalenessMonitor.requestSweep();
+            List<Price> fresh = new ArrayList<>(opt.get().size());
+            for (Price price : opt.get()) {
+                if (!stalenessMonitor.isStale(price)) {
+                    fresh.add(price);
+                }
+            }
+            opt = Optional.of(Collections.unmodifiableList(fresh));
+        }
+        return opt;
     }
 
     /**
-     *  Algorithm used to update prices:
+     *  Algorithm used to update prices, in one pass over prices:
      *  1. Filter by supported instrument name
-     *  2. Sort prices by id descending
-     *  3. Filter unique by instrument name (checking starting with highest id)
+     *  2. Keep price with the highest id per instrument name (in array indexed by instrument id)
+     *  3. Store kept prices which are newer than stored ones (repository does the check atomically, for all at once)
+     *  4. Derive and store crosses depending on stored prices, they are handled as stored prices from now on
+     *  5. Replicate stored prices to followers, if node is replication leader
+     *  6. Journal stored prices, so they can be restored after restart
+     *  7. Record stored prices in history (ticks and OHLC bars)
+     *  8. Publish stored prices to stream subscribers
      * @param prices
      */
     @Override
     public void updatePrices(List<Price> prices) {
-        List<Price> sortedPrices = prices.stream()
-                .filter(p -> InstrumentName.contains(p.getInstrumentName()))
-                .sorted(Comparator.comparingInt(Price::getId))
-                .filter(distinctByKey(p -> p.getInstrumentName()))
-                .collect(Collectors.toList());
-
-        for(Price p: sortedPrices) {
-            Optional<Price> currentPrice = priceRepository.getByInstrumentName(p.getInstrumentName());
-            if(currentPrice.isEmpty() || currentPrice.get().getId() < p.getId()) {
-                priceRepository.update(p);
+        Price[] latestPrices = new Price[InstrumentName.count()];
+        int unsupported = 0;
+        int superseded = 0;
+        int candidates = 0;
+
+        for (Price p : prices) {
+            InstrumentName instrumentName = p.getInstrumentName();
+            if (!InstrumentName.contains(instrumentName)) {
+                unsupported++;
+                feedMetrics.count(FeedMetrics.Outcome.RECEIVED, null);
+                feedMetrics.count(FeedMetrics.Outcome.REJECTED, null);
+                continue;
+            }
+            feedMetrics.count(FeedMetrics.Outcome.RECEIVED, instrumentName);
+            int index = instrumentName.id();
+            if (index >= latestPrices.length) {
+                // Registered while batch was being processed
+                latestPrices = Arrays.copyOf(latestPrices, InstrumentName.count());
+            }
+            Price latest = latestPrices[index];
+            if (latest == null) {
+                latestPrices[index] = p;
+                candidates++;
+            } else {
+                superseded++;
+                if (latest.getId() < p.getId()) {
+                    latestPrices[index] = p;
+                }
             }
         }
+
+        // Repository clears prices it did not store, so every price of batch is either the stored one, or stale
+        int applied = store(latestPrices, candidates > 0, true);
+        for (Price p : prices) {
+            InstrumentName instrumentName = p.getInstrumentName();
+            if (InstrumentName.contains(instrumentName)) {
+                feedMetrics.count(latestPrices[instrumentName.id()] == p ? FeedMetrics.Outcome.APPLIED
+                        : FeedMetrics.Outcome.STALE, instrumentName);
+            }
+        }
+
+        int stale = candidates - applied;
+        updateStatistics.record(prices.size(), unsupported, superseded, stale, applied);
+        if (log.isDebugEnabled()) {
+            log.debug("Prices updated: received {}, unsupported {}, superseded in batch {}, stale {}, applied {}",
+                    prices.size(), unsupported, superseded, stale, applied);
+        }
     }
 
-    public void clearPrices() {
-        priceRepository.clear();
+    /**
+     * Steps 3-8 of updatePrices
+     * @param storedPrices prices indexed by instrument id, entries which were not stored are set to null
+     * @param any false if there is no price in array, repository is not updated then
+     * @param deriveCrosses
+     * @return number of stored prices
+     */
+    private int store(Price[] storedPrices, boolean any, boolean deriveCrosses) {
+        long start = System.nanoTime();
+        int applied = any ? priceRepository.updateAll(storedPrices) : 0;
+        long stored = System.nanoTime();
+        feedMetrics.recordLatency(FeedMetrics.Stage.REPOSITORY_UPDATE, stored - start);
+        if (applied > 0 && deriveCrosses && crossRateEngine.isEnabled()) {
+            crossRateEngine.derive(storedPrices);
+            long derived = System.nanoTime();
+            feedMetrics.recordLatency(FeedMetrics.Stage.CROSS_RATES, derived - stored);
+            stored = derived;
+        }
+        if (applied > 0 && priceReplicator.isEnabled()) {
+            priceReplicator.replicate(storedPrices);
+            long replicated = System.nanoTime();
+            feedMetrics.recordLatency(FeedMetrics.Stage.REPLICATION, replicated - stored);
+            stored = replicated;
+        }
+        if (applied > 0 && priceJournal.isEnabled()) {
+            priceJournal.append(storedPrices);
+            long journaled = System.nanoTime();
+            feedMetrics.recordLatency(FeedMetrics.Stage.JOURNAL, journaled - stored);
+            stored = journaled;
+        }
+        if (applied > 0 && priceHistory.isEnabled()) {
+            priceHistory.record(storedPrices);
+            long recorded = System.nanoTime();
+            feedMetrics.recordLatency(FeedMetrics.Stage.HISTORY, recorded - stored);
+            stored = recorded;
+        }
+        for (int i = 0; i < storedPrices.length; i++) {
+            if (storedPrices[i] != null) {
+                priceStream.publish(storedPrices[i]);
+            }
+        }
+        feedMetrics.recordLatency(FeedMetrics.Stage.FAN_OUT, System.nanoTime() - stored);
+        return applied;
     }
 
-    public void setBidMargin(final double bidMargin) {
-        this.bidMargin = bidMargin;
+    @Override
+    public int applyReplicatedPrices(Price[] prices) {
+        return store(prices, true, false);
     }
 
-    public void setAskMargin(final double askMargin) {
-        this.askMargin = askMargin;
+    @Override
+    public PriceUpdateStatistics getUpdateStatistics() {
+        return updateStatistics;
     }
 
     @Override
-    public BigDecimal calculatePriceBid(BigDecimal priceFeedBid) {
-        return priceFeedBid.multiply(new BigDecimal(1+bidMargin));
+    public Mono<TickHistory> getHistory(InstrumentName instrumentName, long fromMillis, long toMillis) {
+        return Mono.justOrEmpty(priceHistory.getTicks(instrumentName, fromMillis, toMillis));
+    }
+
+    @Override
+    public Mono<OhlcBars> getBars(InstrumentName instrumentName, BarResolution resolution,
+                                  long fromMillis, long toMillis) {
+        return Mono.justOrEmpty(priceHistory.getBars(instrumentName, resolution, fromMillis, toMillis));
+    }
+
+    @Override
+    public Flux<Price> streamPrices(Set<InstrumentName> instrumentNames, Duration throttleWindow) {
+        return priceStream.subscribe(instrumentNames, throttleWindow);
+    }
+
+    public void clearPrices() {
+        priceRepository.clear();
     }
 
     @Override
-    public BigDecimal calculatePriceAsk(BigDecimal priceFeedAsk) {
-        return priceFeedAsk.multiply(new BigDecimal(1+askMargin));
+    public CommissionTable getCommissionTable() {
+        return commissionEngine.getCommissionTable();
     }
 }
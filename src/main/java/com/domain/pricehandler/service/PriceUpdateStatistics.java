@@ -0,0 +1,48 @@
+package com.domain.pricehandler.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of prices passed to price service, since start of the service:
+ * - received: all prices passed for update
+ * - unsupported: prices of unsupported instrument names
+ * - superseded: prices dropped because the same batch contained newer price of the same instrument
+ * - stale: prices dropped because repository already contained the same or newer price
+ * - applied: prices stored in repository
+ */
+public class PriceUpdateStatistics {
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder unsupported = new LongAdder();
+    private final LongAdder superseded = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+
+    void record(int received, int unsupported, int superseded, int stale, int applied) {
+        this.received.add(received);
+        this.unsupported.add(unsupported);
+        this.superseded.add(superseded);
+        this.stale.add(stale);
+        this.applied.add(applied);
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getUnsupported() {
+        return unsupported.sum();
+    }
+
+    public long getSuperseded() {
+        return superseded.sum();
+    }
+
+    public long getStale() {
+        return stale.sum();
+    }
+
+    public long getApplied() {
+        return applied.sum();
+    }
+}
@@ -0,0 +1,31 @@
+package com.domain.pricehandler.service.arbitration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Arbitration of price feed sources (liquidity providers), eg:
+ * feed.arbitration.sources=LP1,LP2
+ * feed.arbitration.maxSilence=2s
+ *
+ * Sources can also be registered at runtime (see PriceArbiter.register).
+ */
+@Component
+@ConfigurationProperties(prefix = "feed.arbitration")
+@Data
+public class ArbitrationProperties {
+
+    // Sources registered on startup
+    List<String> sources = new ArrayList<>();
+
+    // Source which did not send anything for this long is stale, and its quotes are not used until it sends again
+    Duration maxSilence = Duration.ofSeconds(5);
+
+    // How often sources are checked for silence in background
+    Duration checkInterval = Duration.ofSeconds(1);
+}
@@ -0,0 +1,125 @@
+package com.domain.pricehandler.service.arbitration;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Price feed source (eg. liquidity provider), with its own sequence of ids
+ *
+ * State of source is written by arbiter only (under its lock), getters can be read by any thread:
+ * - received: prices received from source
+ * - outOfOrder: prices dropped, as they were not newer than the last price of their instrument from source
+ * - contributed: prices which became part of best bid/offer
+ * - failovers: number of times source went stale
+ */
+public class FeedSource {
+
+    private final String name;
+
+    private final int id;
+
+    // Indexed by instrument id, Integer.MIN_VALUE if nothing was received yet
+    private final int[] lastIds = new int[InstrumentName.CAPACITY];
+
+    // The last price of every instrument, null if there is none (or source went stale since)
+    private final Price[] quotes = new Price[InstrumentName.CAPACITY];
+
+    private volatile long lastReceivedMillis;
+
+    private volatile boolean stale;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder outOfOrder = new LongAdder();
+    private final LongAdder contributed = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+
+    FeedSource(String name, int id, long nowMillis) {
+        this.name = name;
+        this.id = id;
+        this.lastReceivedMillis = nowMillis;
+        Arrays.fill(lastIds, Integer.MIN_VALUE);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return dense id, in order of registration
+     */
+    public int getId() {
+        return id;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public long getLastReceivedMillis() {
+        return lastReceivedMillis;
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getOutOfOrder() {
+        return outOfOrder.sum();
+    }
+
+    public long getContributed() {
+        return contributed.sum();
+    }
+
+    public long getFailovers() {
+        return failovers.sum();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Records price as the last one of its instrument, unless it is not newer than that one
+     * @param price
+     * @return false if price is out of order
+     */
+    boolean accept(Price price) {
+        received.increment();
+        int index = price.getInstrumentName().id();
+        if (price.getId() <= lastIds[index]) {
+            outOfOrder.increment();
+            return false;
+        }
+        lastIds[index] = price.getId();
+        quotes[index] = price;
+        return true;
+    }
+
+    Price getQuote(int instrumentId) {
+        return quotes[instrumentId];
+    }
+
+    void received(long nowMillis) {
+        lastReceivedMillis = nowMillis;
+        stale = false;
+    }
+
+    void contributed() {
+        contributed.increment();
+    }
+
+    /**
+     * Quotes are dropped, and sequence is reset - source going silent is expected to start over (eg. reconnect)
+     */
+    void markStale() {
+        stale = true;
+        failovers.increment();
+        Arrays.fill(quotes, null);
+        Arrays.fill(lastIds, Integer.MIN_VALUE);
+    }
+}
@@ -0,0 +1,55 @@
+package com.domain.pricehandler.service.arbitration;
+
+import com.domain.pricehandler.model.Price;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Combines prices of many feed sources into one best bid/offer (BBO) per instrument:
+ * the highest bid and the lowest ask among sources which are not stale
+ */
+public interface PriceArbiter {
+
+    /**
+     * Registers source, if it is not registered already
+     * @param name
+     * @return source
+     * @throws IllegalStateException if maximum number of sources is registered already
+     */
+    public FeedSource register(String name);
+
+    /**
+     * @param name
+     * @return source, null if not registered
+     */
+    public FeedSource getSource(String name);
+
+    /**
+     * @return registered sources, in order of registration
+     */
+    public List<FeedSource> getSources();
+
+    /**
+     * Replaces prices received from source with best bid/offer prices they resulted in, in place.
+     * Out of order prices are dropped, as well as prices which did not change best bid/offer.
+     * BBO prices have ids of their own (growing per instrument), so they can be passed to price service.
+     * @param source
+     * @param prices prices from index from are arbitrated, the ones before are left as they are
+     * @param from
+     */
+    public void arbitrate(FeedSource source, List<Price> prices, int from);
+
+    /**
+     * Marks sources which are silent for too long as stale, and passes best bid/offer prices of other sources
+     * to failover applier where stale ones had the best quote
+     * @return number of sources which went stale
+     */
+    public int checkSources();
+
+    /**
+     * @param applier applies best bid/offer prices of failover, it is called on thread checking sources.
+     *                By default prices are passed to price service right there.
+     */
+    public void setFailoverApplier(Consumer<List<Price>> applier);
+}
@@ -0,0 +1,351 @@
+package com.domain.pricehandler.service.arbitration;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.PriceService;
+import com.domain.pricehandler.service.repository.PriceRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Best bid/offer of every instrument is kept as source holding the best bid and source holding the best ask
+ * (with their values), and updated as every price arrives:
+ * - price better than the best one takes over, price of other source which is not better changes nothing
+ * - price of source holding the best bid (or ask) replaces it, only if it got worse the other sources are scanned
+ * So update is O(1), except for the holder backing off, which scans MAX_SOURCES at most (never instruments).
+ *
+ * Sources are checked for silence in background - stale source loses its quotes, and instruments it held
+ * the best bid or ask of are arbitrated again among the other sources right away (failover). With async ingestion
+ * the failover prices are submitted to ingestion, so they are applied by the feed thread like any other ones
+ * (see PriceFeedListenerImpl). Otherwise price service is called on checker thread, as it is by every thread
+ * feeding sources - it is safe to be called from many threads.
+ *
+ * Sources can be fed from many threads, arbitration is done under lock of arbiter (it is short, and sources
+ * are usually fed by one ingestion thread anyway).
+ */
+@Component
+@Slf4j
+public class PriceArbiterImpl implements PriceArbiter, MeterBinder {
+
+    public static final int MAX_SOURCES = 64;
+
+    private static final int NONE = -1;
+
+    private final PriceRepository priceRepository;
+
+    private final PriceService priceService;
+
+    private final ArbitrationProperties properties;
+
+    private final long maxSilenceMillis;
+
+    private final FeedSource[] sources = new FeedSource[MAX_SOURCES];
+
+    private volatile int sourceCount;
+
+    private final Map<String, FeedSource> sourcesByName = new ConcurrentHashMap<>();
+
+    // Indexed by instrument id, source ids holding the best bid and ask (NONE if no source has a quote)
+    private final int[] bidSources = new int[InstrumentName.CAPACITY];
+    private final int[] askSources = new int[InstrumentName.CAPACITY];
+
+    private final long[] bestBids = new long[InstrumentName.CAPACITY];
+    private final long[] bestAsks = new long[InstrumentName.CAPACITY];
+
+    // The last id given to best bid/offer price of instrument, 0 if none was given yet
+    private final int[] compositeIds = new int[InstrumentName.CAPACITY];
+
+    // Registries meters are bound to, so sources registered later can be bound as well
+    private final List<MeterRegistry> registries = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService checker;
+
+    private volatile Consumer<List<Price>> failoverApplier;
+
+    @Autowired
+    public PriceArbiterImpl(ArbitrationProperties properties, PriceRepository priceRepository,
+                            PriceService priceService) {
+        this.properties = properties;
+        this.priceRepository = priceRepository;
+        this.priceService = priceService;
+        this.maxSilenceMillis = properties.getMaxSilence().toMillis();
+        this.failoverApplier = priceService::updatePrices;
+        Arrays.fill(bidSources, NONE);
+        Arrays.fill(askSources, NONE);
+    }
+
+    @PostConstruct
+    public void registerSources() {
+        properties.getSources().forEach(this::register);
+    }
+
+    @PreDestroy
+    public synchronized void stopChecker() {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+    }
+
+    @Override
+    public synchronized FeedSource register(String name) {
+        FeedSource source = sourcesByName.get(name);
+        if (source != null) {
+            return source;
+        }
+        if (sourceCount == MAX_SOURCES) {
+            throw new IllegalStateException("Maximum number of price feed sources reached: " + MAX_SOURCES);
+        }
+        source = new FeedSource(name, sourceCount, System.currentTimeMillis());
+        sources[source.getId()] = source;
+        sourcesByName.put(name, source);
+        sourceCount = source.getId() + 1;
+        for (MeterRegistry registry : registries) {
+            bind(registry, source);
+        }
+        // Nothing to check until the first source is registered
+        if (checker == null) {
+            startChecker();
+        }
+        log.info("Price feed source {} registered", name);
+        return source;
+    }
+
+    private void startChecker() {
+        checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "price-feed-arbitration");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = properties.getCheckInterval().toMillis();
+        checker.scheduleWithFixedDelay(this::checkSourcesSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public FeedSource getSource(String name) {
+        return sourcesByName.get(name);
+    }
+
+    @Override
+    public List<FeedSource> getSources() {
+        return List.of(Arrays.copyOf(sources, sourceCount));
+    }
+
+    @Override
+    public synchronized void arbitrate(FeedSource source, List<Price> prices, int from) {
+        if (source.isStale()) {
+            log.info("Price feed source {} is live again", source);
+        }
+        source.received(System.currentTimeMillis());
+        int arbitrated = from;
+        for (int i = from; i < prices.size(); i++) {
+            Price price = prices.get(i);
+            if (!InstrumentName.contains(price.getInstrumentName()) || !source.accept(price)) {
+                continue;
+            }
+            Price composite = update(source, price);
+            if (composite != null) {
+                prices.set(arbitrated++, composite);
+            }
+        }
+        prices.subList(arbitrated, prices.size()).clear();
+    }
+
+    /**
+     * @return best bid/offer price, null if price of source did not change it
+     */
+    private Price update(FeedSource source, Price price) {
+        int index = price.getInstrumentName().id();
+        boolean changed = false;
+        boolean rescan = false;
+
+        if (bidSources[index] == NONE || price.getBid() > bestBids[index]) {
+            bidSources[index] = source.getId();
+            bestBids[index] = price.getBid();
+            changed = true;
+        } else if (bidSources[index] == source.getId()) {
+            // Even the same bid is published, as timestamp of best bid/offer is refreshed
+            rescan = price.getBid() < bestBids[index];
+            bestBids[index] = price.getBid();
+            changed = true;
+        }
+        if (askSources[index] == NONE || price.getAsk() < bestAsks[index]) {
+            askSources[index] = source.getId();
+            bestAsks[index] = price.getAsk();
+            changed = true;
+        } else if (askSources[index] == source.getId()) {
+            rescan |= price.getAsk() > bestAsks[index];
+            bestAsks[index] = price.getAsk();
+            changed = true;
+        }
+
+        if (!changed) {
+            return null;
+        }
+        if (rescan) {
+            rescan(index);
+        }
+        if (bidSources[index] == source.getId() || askSources[index] == source.getId()) {
+            source.contributed();
+        }
+        return composite(index);
+    }
+
+    // Scans quotes of all sources which are not stale
+    private void rescan(int index) {
+        bidSources[index] = NONE;
+        askSources[index] = NONE;
+        for (int id = 0; id < sourceCount; id++) {
+            Price quote = sources[id].getQuote(index);
+            if (quote == null) {
+                continue;
+            }
+            if (bidSources[index] == NONE || quote.getBid() > bestBids[index]) {
+                bidSources[index] = id;
+                bestBids[index] = quote.getBid();
+            }
+            if (askSources[index] == NONE || quote.getAsk() < bestAsks[index]) {
+                askSources[index] = id;
+                bestAsks[index] = quote.getAsk();
+            }
+        }
+    }
+
+    /**
+     * Timestamp is the one of older quote, so best bid/offer gets stale as soon as one of its sides does
+     */
+    private Price composite(int index) {
+        Price bid = sources[bidSources[index]].getQuote(index);
+        Price ask = sources[askSources[index]].getQuote(index);
+        Price older = bid.getTimestampMillis() <= ask.getTimestampMillis() ? bid : ask;
+
+        Price composite = new Price();
+        composite.setId(nextCompositeId(bid.getInstrumentName()));
+        composite.setInstrumentName(bid.getInstrumentName());
+        composite.setBid(bestBids[index]);
+        composite.setAsk(bestAsks[index]);
+        composite.setTimestamp(older.getTimestamp());
+        composite.setTimestampMillis(older.getTimestampMillis());
+        return composite;
+    }
+
+    // Continues after price stored already (eg. restored from journal), so the first one is not rejected as older
+    private int nextCompositeId(InstrumentName instrumentName) {
+        int index = instrumentName.id();
+        if (compositeIds[index] == 0) {
+            compositeIds[index] = priceRepository.getByInstrumentName(instrumentName).map(Price::getId).orElse(0);
+        }
+        return ++compositeIds[index];
+    }
+
+    @Override
+    public int checkSources() {
+        return checkSources(System.currentTimeMillis());
+    }
+
+    @Override
+    public void setFailoverApplier(Consumer<List<Price>> applier) {
+        this.failoverApplier = applier;
+    }
+
+    /**
+     * Best bid/offer prices are passed to failover applier outside of lock of arbiter
+     * @param nowMillis
+     * @return number of sources which went stale
+     */
+    public int checkSources(long nowMillis) {
+        List<Price> composites = new ArrayList<>();
+        int marked = 0;
+        synchronized (this) {
+            for (int id = 0; id < sourceCount; id++) {
+                FeedSource source = sources[id];
+                if (source.isStale() || nowMillis - source.getLastReceivedMillis() <= maxSilenceMillis) {
+                    continue;
+                }
+                source.markStale();
+                marked++;
+                log.warn("Price feed source {} is silent for more than {}, failing over to other sources",
+                        source, Duration.ofMillis(maxSilenceMillis));
+                failOver(source, composites);
+            }
+        }
+        if (!composites.isEmpty()) {
+            failoverApplier.accept(composites);
+        }
+        return marked;
+    }
+
+    private void failOver(FeedSource source, List<Price> composites) {
+        int count = InstrumentName.count();
+        for (int index = 0; index < count; index++) {
+            if (bidSources[index] != source.getId() && askSources[index] != source.getId()) {
+                continue;
+            }
+            rescan(index);
+            if (bidSources[index] != NONE) {
+                composites.add(composite(index));
+            } else {
+                log.warn("No price feed source left for {}, its price gets stale", InstrumentName.byId(index));
+            }
+        }
+    }
+
+    // Exception would stop scheduled checks
+    private void checkSourcesSafely() {
+        try {
+            checkSources();
+        } catch (RuntimeException e) {
+            log.error("Price feed sources check failed", e);
+        }
+    }
+
+    @Override
+    public synchronized void bindTo(MeterRegistry registry) {
+        registries.add(registry);
+        for (int id = 0; id < sourceCount; id++) {
+            bind(registry, sources[id]);
+        }
+    }
+
+    private static void bind(MeterRegistry registry, FeedSource source) {
+        counter(registry, source, "received", FeedSource::getReceived);
+        counter(registry, source, "out-of-order", FeedSource::getOutOfOrder);
+        counter(registry, source, "contributed", FeedSource::getContributed);
+        FunctionCounter.builder("price.feed.source.failovers", source, FeedSource::getFailovers)
+                .tag("source", source.getName())
+                .description("Number of times price feed source went stale")
+                .register(registry);
+        Gauge.builder("price.feed.source.stale", source, s -> s.isStale() ? 1 : 0)
+                .tag("source", source.getName())
+                .description("1 if price feed source is stale, its quotes are not used")
+                .register(registry);
+    }
+
+    private static void counter(MeterRegistry registry, FeedSource source, String outcome,
+                                ToDoubleFunction<FeedSource> count) {
+        FunctionCounter.builder("price.feed.source.prices", source, count)
+                .tag("source", source.getName())
+                .tag("outcome", outcome)
+                .description("Number of prices received from price feed source")
+                .register(registry);
+    }
+}
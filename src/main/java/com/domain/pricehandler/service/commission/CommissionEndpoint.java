@@ -0,0 +1,121 @@
+package com.domain.pricehandler.service.commission;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * /actuator/commission changes margins at runtime, without restart, eg.:
+ * POST /actuator/commission {"bidMargin": -0.002, "askMargin": 0.002} - default margins
+ * POST /actuator/commission {"instrument": "EUR_JPY", "bidMargin": -0.003} - margin of instrument
+ * Margin which is not given stays as it is. GET returns margins currently in force.
+ *
+ * Changed configuration is reloaded by commission engine, so price feed is never paused (see CommissionEngine).
+ * Changes are kept in memory only, configuration is read again on restart.
+ *
+ * Anybody who can call it reprices every quote, so it is not exposed by default. Operators enable it with
+ * management.endpoints.web.exposure.include=health,metrics,commission, and then it has to be served
+ * on management port of its own (management.server.port, kept off the network clients reach),
+ * otherwise application does not start.
+ */
+@Component
+@Endpoint(id = "commission")
+@Slf4j
+public class CommissionEndpoint {
+
+    private final CommissionEngine commissionEngine;
+
+    // Configuration currently in force, never changed, replaced by changed copy
+    private CommissionProperties current;
+
+    @Autowired
+    public CommissionEndpoint(CommissionEngine commissionEngine, CommissionProperties properties,
+                              Environment environment) {
+        this.commissionEngine = commissionEngine;
+        this.current = copy(properties);
+        checkNotExposedOnServerPort(environment);
+    }
+
+    /**
+     * @throws IllegalStateException if endpoint is exposed over HTTP on the port prices are served on
+     */
+    static void checkNotExposedOnServerPort(Environment environment) {
+        Set<String> exposed = Binder.get(environment)
+                .bind("management.endpoints.web.exposure.include", Bindable.setOf(String.class))
+                .orElse(Collections.emptySet());
+        if ((exposed.contains("commission") || exposed.contains("*"))
+                && ManagementPortType.get(environment) == ManagementPortType.SAME) {
+            throw new IllegalStateException("/actuator/commission changes margins, it can be exposed only on "
+                    + "management port of its own, set management.server.port");
+        }
+    }
+
+    @ReadOperation
+    public synchronized CommissionProperties margins() {
+        return current;
+    }
+
+    /**
+     * @param instrument instrument name, eg. EUR_JPY, default margins are changed if not given
+     * @param bidMargin
+     * @param askMargin
+     * @return margins in force after change
+     */
+    @WriteOperation
+    public synchronized CommissionProperties update(@Nullable String instrument, @Nullable Double bidMargin,
+                                                    @Nullable Double askMargin) {
+        CommissionProperties changed = copy(current);
+        if (instrument == null) {
+            if (bidMargin != null) {
+                changed.setBidMargin(bidMargin);
+            }
+            if (askMargin != null) {
+                changed.setAskMargin(askMargin);
+            }
+        } else {
+            CommissionProperties.Margin margin = changed.getInstruments()
+                    .computeIfAbsent(instrument, name -> new CommissionProperties.Margin());
+            if (bidMargin != null) {
+                margin.setBidMargin(bidMargin);
+            }
+            if (askMargin != null) {
+                margin.setAskMargin(askMargin);
+            }
+        }
+        try {
+            commissionEngine.reload(changed);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+        current = changed;
+        log.info("Commission changed: instrument {}, bid margin {}, ask margin {}",
+                instrument != null ? instrument : "default", bidMargin, askMargin);
+        return current;
+    }
+
+    private static CommissionProperties copy(CommissionProperties properties) {
+        CommissionProperties copy = new CommissionProperties();
+        copy.setBidMargin(properties.getBidMargin());
+        copy.setAskMargin(properties.getAskMargin());
+        for (Map.Entry<String, CommissionProperties.Margin> entry : properties.getInstruments().entrySet()) {
+            CommissionProperties.Margin margin = new CommissionProperties.Margin();
+            margin.setBidMargin(entry.getValue().getBidMargin());
+            margin.setAskMargin(entry.getValue().getAskMargin());
+            copy.getInstruments().put(entry.getKey(), margin);
+        }
+        return copy;
+    }
+}
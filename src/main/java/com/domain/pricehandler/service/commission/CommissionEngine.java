@@ -0,0 +1,21 @@
+package com.domain.pricehandler.service.commission;
+
+/**
+ * Provides commission table currently in force
+ */
+public interface CommissionEngine {
+
+    /**
+     * Returns commission table currently in force, it should be read once and used for the whole price feed message
+     * @return
+     */
+    public CommissionTable getCommissionTable();
+
+    /**
+     * Replaces commission table with one built out of given configuration. Prices being processed
+     * keep using the previous table, next ones use the new one - price feed is never paused.
+     * @param properties
+     * @throws IllegalArgumentException if configuration is incorrect, previous table stays in force in such case
+     */
+    public void reload(CommissionProperties properties);
+}
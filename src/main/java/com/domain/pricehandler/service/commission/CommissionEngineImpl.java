@@ -0,0 +1,34 @@
+package com.domain.pricehandler.service.commission;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+/**
+ * Table is swapped with single volatile write, readers never wait for reload
+ */
+@Component
+@DependsOn("instrumentRegistrar")
+@Slf4j
+public class CommissionEngineImpl implements CommissionEngine {
+
+    private volatile CommissionTable commissionTable;
+
+    @Autowired
+    public CommissionEngineImpl(CommissionProperties properties) {
+        this.commissionTable = CommissionTable.of(properties);
+    }
+
+    @Override
+    public CommissionTable getCommissionTable() {
+        return commissionTable;
+    }
+
+    @Override
+    public void reload(CommissionProperties properties) {
+        CommissionTable reloaded = CommissionTable.of(properties);
+        commissionTable = reloaded;
+        log.info("Commission margins reloaded");
+    }
+}
@@ -0,0 +1,39 @@
+package com.domain.pricehandler.service.commission;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Commission configuration, eg:
+ * commission.bidMargin=-0.001
+ * commission.askMargin=0.001
+ * commission.instruments.EUR_JPY.bidMargin=-0.002
+ *
+ * Margins configured for instrument override default ones, missing margin of instrument falls back to default.
+ * Instruments are identified by name, they have to be supported (eg. configured in instruments.scales).
+ */
+@Component
+@ConfigurationProperties(prefix = "commission")
+@Data
+public class CommissionProperties {
+
+    // Default margin, applied to all instruments without their own margin
+    double bidMargin;
+
+    // Default margin, applied to all instruments without their own margin
+    double askMargin;
+
+    Map<String, Margin> instruments = new HashMap<>();
+
+    @Data
+    public static class Margin {
+
+        Double bidMargin;
+
+        Double askMargin;
+    }
+}
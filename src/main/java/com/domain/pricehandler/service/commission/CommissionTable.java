@@ -0,0 +1,88 @@
+package com.domain.pricehandler.service.commission;
+
+import com.domain.pricehandler.model.FixedPoint;
+import com.domain.pricehandler.model.InstrumentName;
+
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable table of commission multipliers (1 + margin), indexed by instrument id
+ *
+ * Multipliers are precomputed when configuration is read, so applying commission is only integer arithmetic.
+ * Bid and ask multipliers are kept in the same table, so whoever holds a table always applies
+ * consistent pair of margins, even if configuration is changed in the meantime.
+ */
+public final class CommissionTable {
+
+    private final long[] bidMultipliers;
+
+    private final long[] askMultipliers;
+
+    private CommissionTable(long[] bidMultipliers, long[] askMultipliers) {
+        this.bidMultipliers = bidMultipliers;
+        this.askMultipliers = askMultipliers;
+    }
+
+    /**
+     * Builds table out of configuration. Instruments registered later get default margins, so table is
+     * built for all ids up to InstrumentName.CAPACITY.
+     * @param properties
+     * @return
+     * @throws IllegalArgumentException if any margin would make price zero or negative,
+     * or margins are configured for unsupported instrument
+     */
+    public static CommissionTable of(CommissionProperties properties) {
+        long[] bidMultipliers = new long[InstrumentName.CAPACITY];
+        long[] askMultipliers = new long[InstrumentName.CAPACITY];
+        Arrays.fill(bidMultipliers, toMultiplier("all instruments", properties.getBidMargin()));
+        Arrays.fill(askMultipliers, toMultiplier("all instruments", properties.getAskMargin()));
+        for (Map.Entry<String, CommissionProperties.Margin> entry : properties.getInstruments().entrySet()) {
+            InstrumentName instrumentName = InstrumentName.valueOfName(entry.getKey());
+            if (instrumentName == null) {
+                throw new IllegalArgumentException("Margins configured for unsupported instrument " + entry.getKey());
+            }
+            CommissionProperties.Margin margin = entry.getValue();
+            if (margin.getBidMargin() != null) {
+                bidMultipliers[instrumentName.id()] = toMultiplier(instrumentName.label, margin.getBidMargin());
+            }
+            if (margin.getAskMargin() != null) {
+                askMultipliers[instrumentName.id()] = toMultiplier(instrumentName.label, margin.getAskMargin());
+            }
+        }
+        return new CommissionTable(bidMultipliers, askMultipliers);
+    }
+
+    private static long toMultiplier(String instruments, double margin) {
+        long multiplier = FixedPoint.multiplier(margin);
+        if (multiplier <= 0) {
+            throw new IllegalArgumentException("Incorrect margin " + margin + " for " + instruments);
+        }
+        return multiplier;
+    }
+
+    /**
+     * Applies commission to bid from price feed, bid is rounded down, so rounding never works against the bank
+     * @param instrumentName
+     * @param priceFeedBid price feed bid mantissa
+     * @param priceFeedBidScale price feed bid scale
+     * @return bid with scale of instrument name
+     */
+    public long calculatePriceBid(InstrumentName instrumentName, long priceFeedBid, int priceFeedBidScale) {
+        return FixedPoint.multiply(priceFeedBid, priceFeedBidScale, bidMultipliers[instrumentName.id()],
+                instrumentName.scale, RoundingMode.FLOOR);
+    }
+
+    /**
+     * Applies commission to ask from price feed, ask is rounded up, so rounding never works against the bank
+     * @param instrumentName
+     * @param priceFeedAsk price feed ask mantissa
+     * @param priceFeedAskScale price feed ask scale
+     * @return ask with scale of instrument name
+     */
+    public long calculatePriceAsk(InstrumentName instrumentName, long priceFeedAsk, int priceFeedAskScale) {
+        return FixedPoint.multiply(priceFeedAsk, priceFeedAskScale, askMultipliers[instrumentName.id()],
+                instrumentName.scale, RoundingMode.CEILING);
+    }
+}
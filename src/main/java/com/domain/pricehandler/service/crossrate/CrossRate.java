@@ -0,0 +1,35 @@
+package com.domain.pricehandler.service.crossrate;
+
+import com.domain.pricehandler.model.InstrumentName;
+
+/**
+ * Cross and its two legs: cross = leg1 * leg2, where leg which is inverted is taken as its reciprocal
+ * (eg. USD/JPY = 1 / EUR/USD * EUR/JPY)
+ */
+final class CrossRate {
+
+    final InstrumentName instrumentName;
+
+    final InstrumentName leg1;
+
+    final boolean invert1;
+
+    final InstrumentName leg2;
+
+    final boolean invert2;
+
+    CrossRate(InstrumentName instrumentName, InstrumentName leg1, boolean invert1,
+              InstrumentName leg2, boolean invert2) {
+        this.instrumentName = instrumentName;
+        this.leg1 = leg1;
+        this.invert1 = invert1;
+        this.leg2 = leg2;
+        this.invert2 = invert2;
+    }
+
+    @Override
+    public String toString() {
+        return instrumentName.label + " = " + (invert1 ? "1 / " : "") + leg1.label
+                + (invert2 ? " / " : " * ") + leg2.label;
+    }
+}
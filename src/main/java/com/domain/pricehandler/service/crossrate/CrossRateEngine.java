@@ -0,0 +1,31 @@
+package com.domain.pricehandler.service.crossrate;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+
+import java.util.List;
+
+/**
+ * Derives prices of crosses from prices of their legs (see CrossRateProperties)
+ */
+public interface CrossRateEngine {
+
+    /**
+     * @return false if no cross is configured
+     */
+    public boolean isEnabled();
+
+    /**
+     * @return crosses, in order they are derived
+     */
+    public List<InstrumentName> getCrosses();
+
+    /**
+     * Derives crosses depending on stored prices (directly or through other crosses) and stores them
+     * in repository. Crosses with a leg without price are skipped.
+     * @param prices prices just stored in repository, indexed by instrument id (as left by PriceRepository.updateAll).
+     *               Stored prices of crosses are added to the array, so they are published along with their legs.
+     * @return number of stored prices of crosses
+     */
+    public int derive(Price[] prices);
+}
@@ -0,0 +1,282 @@
+package com.domain.pricehandler.service.crossrate;
+
+import com.domain.pricehandler.model.FixedPoint;
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.repository.PriceChange;
+import com.domain.pricehandler.service.repository.PriceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Crosses are resolved on startup into dependency graph - for every instrument, indexes of crosses it is a leg of.
+ * Crosses are kept in order they depend on each other (legs first), so when prices are stored, crosses
+ * depending on them are marked, and derived in one pass over crosses, marking further crosses as they go.
+ * Only affected crosses are derived, and nothing is allocated unless some cross is.
+ *
+ * Bid of cross is derived from bids of legs, ask from asks - except for inverted leg, whose ask gives bid
+ * (1 / ask is the lower value) and the other way round. Bid is rounded down and ask up, so the spread
+ * of cross is never narrower than its legs give.
+ *
+ * Cross gets the timestamp of its older leg, so it gets stale with it. Leg marked as stale (see StalenessMonitor)
+ * is watched in repository, and crosses depending on it are marked as stale right away.
+ *
+ * Prices are derived under lock of engine, one batch at a time (it is short, and there is one feed thread
+ * usually anyway).
+ */
+@Component
+@DependsOn("instrumentRegistrar")
+@Slf4j
+public class CrossRateEngineImpl implements CrossRateEngine {
+
+    private final PriceRepository priceRepository;
+
+    private final CrossRate[] crosses;
+
+    // Indexed by instrument id, indexes of crosses instrument is a leg of, null if none
+    private final int[][] dependents = new int[InstrumentName.CAPACITY][];
+
+    // Crosses to be derived in current batch, indexed as crosses
+    private final boolean[] affected;
+
+    // The last id given to price of cross, indexed as crosses
+    private final int[] lastIds;
+
+    private Disposable staleLegs;
+
+    @Autowired
+    public CrossRateEngineImpl(CrossRateProperties properties, PriceRepository priceRepository) {
+        this.priceRepository = priceRepository;
+        this.crosses = resolve(properties.getInstruments());
+        this.affected = new boolean[crosses.length];
+        this.lastIds = new int[crosses.length];
+        for (int c = 0; c < crosses.length; c++) {
+            addDependent(crosses[c].leg1, c);
+            addDependent(crosses[c].leg2, c);
+        }
+    }
+
+    private void addDependent(InstrumentName leg, int cross) {
+        int[] current = dependents[leg.id()];
+        int[] updated = current == null ? new int[1] : Arrays.copyOf(current, current.length + 1);
+        updated[updated.length - 1] = cross;
+        dependents[leg.id()] = updated;
+    }
+
+    /**
+     * Legs are looked up among instruments registered so far (crosses excluded), then among crosses
+     * resolved before
+     */
+    private static CrossRate[] resolve(List<String> names) {
+        Set<String> crossLabels = new HashSet<>();
+        for (String name : names) {
+            crossLabels.add(name.replace('_', '/'));
+        }
+        List<InstrumentName> legs = new ArrayList<>();
+        for (InstrumentName instrumentName : InstrumentName.values()) {
+            if (!crossLabels.contains(instrumentName.label)) {
+                legs.add(instrumentName);
+            }
+        }
+        List<CrossRate> resolved = new ArrayList<>();
+        for (String name : names) {
+            CrossRate cross = resolve(name.replace('_', '/'), legs);
+            resolved.add(cross);
+            legs.add(cross.instrumentName);
+            log.info("Cross rate {}", cross);
+        }
+        return resolved.toArray(new CrossRate[0]);
+    }
+
+    private static CrossRate resolve(String label, List<InstrumentName> legs) {
+        String[] currencies = currencies(label);
+        if (currencies == null) {
+            throw new IllegalArgumentException("Cross rate has to be in format AAA_BBB: " + label);
+        }
+        for (InstrumentName leg1 : legs) {
+            String[] currencies1 = currencies(leg1.label);
+            if (currencies1 == null) {
+                continue;
+            }
+            // Leg1 gives base currency of cross in common currency
+            boolean invert1 = !currencies1[0].equals(currencies[0]);
+            if (invert1 && !currencies1[1].equals(currencies[0])) {
+                continue;
+            }
+            String common = invert1 ? currencies1[0] : currencies1[1];
+            if (common.equals(currencies[1])) {
+                continue;
+            }
+            for (InstrumentName leg2 : legs) {
+                String[] currencies2 = currencies(leg2.label);
+                if (currencies2 == null) {
+                    continue;
+                }
+                // Leg2 gives common currency in quote currency of cross
+                boolean direct = currencies2[0].equals(common) && currencies2[1].equals(currencies[1]);
+                boolean inverted = currencies2[1].equals(common) && currencies2[0].equals(currencies[1]);
+                if (direct || inverted) {
+                    int scale = direct ? leg2.scale : Math.max(leg1.scale, leg2.scale);
+                    InstrumentName instrumentName = InstrumentName.register(label, scale);
+                    return new CrossRate(instrumentName, leg1, invert1, leg2, inverted);
+                }
+            }
+        }
+        throw new IllegalArgumentException("Cross rate " + label + " can not be derived from supported instruments");
+    }
+
+    // Base and quote currency, null if label is not in format AAA/BBB
+    private static String[] currencies(String label) {
+        String[] currencies = label.split("/");
+        return currencies.length == 2 && !currencies[0].isEmpty() && !currencies[1].isEmpty() ? currencies : null;
+    }
+
+    @PostConstruct
+    public void watchStaleLegs() {
+        if (crosses.length == 0) {
+            return;
+        }
+        Set<InstrumentName> legs = new HashSet<>();
+        for (CrossRate cross : crosses) {
+            legs.add(cross.leg1);
+            legs.add(cross.leg2);
+        }
+        // Crosses marked as stale here are watched as well, if they are legs of other crosses
+        staleLegs = priceRepository.watch(legs)
+                .filter(change -> change.getType() == PriceChange.Type.STALE)
+                .subscribe(change -> markDependentsStale(change.getInstrumentName()),
+                        e -> log.error("Watching of stale legs of cross rates failed", e));
+    }
+
+    @PreDestroy
+    public void stopWatching() {
+        if (staleLegs != null) {
+            staleLegs.dispose();
+        }
+    }
+
+    private void markDependentsStale(InstrumentName leg) {
+        for (int c : dependents[leg.id()]) {
+            InstrumentName instrumentName = crosses[c].instrumentName;
+            priceRepository.getByInstrumentName(instrumentName).ifPresent(price -> {
+                if (priceRepository.markStale(price)) {
+                    log.warn("Price of {} is stale, as price of its leg {} is", instrumentName, leg);
+                }
+            });
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return crosses.length > 0;
+    }
+
+    @Override
+    public List<InstrumentName> getCrosses() {
+        List<InstrumentName> instrumentNames = new ArrayList<>(crosses.length);
+        for (CrossRate cross : crosses) {
+            instrumentNames.add(cross.instrumentName);
+        }
+        return instrumentNames;
+    }
+
+    @Override
+    public synchronized int derive(Price[] prices) {
+        boolean anyAffected = false;
+        for (int i = 0; i < prices.length; i++) {
+            if (prices[i] != null) {
+                anyAffected |= markDependents(i);
+            }
+        }
+        if (!anyAffected) {
+            return 0;
+        }
+        Price[] derived = new Price[InstrumentName.count()];
+        for (int c = 0; c < crosses.length; c++) {
+            if (!affected[c]) {
+                continue;
+            }
+            affected[c] = false;
+            Price price = derive(c, derived);
+            if (price != null) {
+                derived[price.getInstrumentName().id()] = price;
+                markDependents(price.getInstrumentName().id());
+            }
+        }
+        int stored = priceRepository.updateAll(derived);
+        for (int i = 0; i < derived.length && i < prices.length; i++) {
+            if (derived[i] != null) {
+                prices[i] = derived[i];
+            }
+        }
+        return stored;
+    }
+
+    private boolean markDependents(int index) {
+        int[] crossIndexes = dependents[index];
+        if (crossIndexes == null) {
+            return false;
+        }
+        for (int c : crossIndexes) {
+            affected[c] = true;
+        }
+        return true;
+    }
+
+    /**
+     * @param derived crosses derived in current batch, they are used instead of stored ones
+     * @return price of cross, null if a leg has no price (or it is stale)
+     */
+    private Price derive(int index, Price[] derived) {
+        CrossRate cross = crosses[index];
+        Price price1 = leg(cross.leg1, derived);
+        Price price2 = leg(cross.leg2, derived);
+        if (price1 == null || price2 == null) {
+            return null;
+        }
+        int scale = cross.instrumentName.scale;
+        long bid;
+        long ask;
+        try {
+            bid = FixedPoint.cross(cross.invert1 ? price1.getAsk() : price1.getBid(), cross.leg1.scale, cross.invert1,
+                    cross.invert2 ? price2.getAsk() : price2.getBid(), cross.leg2.scale, cross.invert2,
+                    scale, RoundingMode.FLOOR);
+            ask = FixedPoint.cross(cross.invert1 ? price1.getBid() : price1.getAsk(), cross.leg1.scale, cross.invert1,
+                    cross.invert2 ? price2.getBid() : price2.getAsk(), cross.leg2.scale, cross.invert2,
+                    scale, RoundingMode.CEILING);
+        } catch (ArithmeticException e) {
+            log.warn("Price of {} can not be derived: {}", cross, e.getMessage());
+            return null;
+        }
+        // Ids of legs may not grow across instruments (eg. prices of arbitrated sources), ids of cross always do
+        int id = Math.max(Math.max(price1.getId(), price2.getId()), lastIds[index] + 1);
+        lastIds[index] = id;
+        Price older = price1.getTimestampMillis() <= price2.getTimestampMillis() ? price1 : price2;
+
+        Price price = new Price();
+        price.setId(id);
+        price.setInstrumentName(cross.instrumentName);
+        price.setBid(bid);
+        price.setAsk(ask);
+        price.setTimestamp(older.getTimestamp());
+        price.setTimestampMillis(older.getTimestampMillis());
+        return price;
+    }
+
+    private Price leg(InstrumentName leg, Price[] derived) {
+        Price price = derived[leg.id()];
+        return price != null ? price : priceRepository.getByInstrumentName(leg).orElse(null);
+    }
+}
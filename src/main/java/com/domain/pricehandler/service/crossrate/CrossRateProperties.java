@@ -0,0 +1,26 @@
+package com.domain.pricehandler.service.crossrate;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Instruments derived from prices of other instruments (crosses), eg:
+ * cross-rates.instruments=USD_JPY,GBP_JPY
+ *
+ * Every cross is derived from two legs sharing a currency, found among instruments registered on startup
+ * and crosses listed before it (so GBP/JPY above is derived from GBP/USD and USD/JPY).
+ * Cross which is not registered yet gets scale of its leg with the same quote currency - to set its scale,
+ * or to configure its commission or staleness, it has to be listed in instruments.scales as well.
+ */
+@Component
+@ConfigurationProperties(prefix = "cross-rates")
+@Data
+public class CrossRateProperties {
+
+    // Crosses, in format "AAA_BBB", resolved in this order
+    List<String> instruments = new ArrayList<>();
+}
@@ -0,0 +1,20 @@
+package com.domain.pricehandler.service.execution;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Threads price feed is processed on, eg:
+ * feed.execution.fanOutThreads=2
+ *
+ * Feed thread itself is configured by feed.ingestion.async (see IngestionProperties).
+ */
+@Component
+@ConfigurationProperties(prefix = "feed.execution")
+@Data
+public class ExecutionProperties {
+
+    // Threads prices are sent to stream subscribers on, 0 - sent on the feed thread which stored them
+    int fanOutThreads = 2;
+}
@@ -0,0 +1,98 @@
+package com.domain.pricehandler.service.execution;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threading model of price feed:
+ * - feed thread: parses messages and stores prices (the caller of listener, or price-feed-ingestion thread
+ * with async ingestion) - it only puts prices into conflation slots of stream subscribers
+ * - fan-out threads (price-fan-out): send prices from conflation slots to subscribers, so serialization
+ * of slow subscribers never delays the feed thread
+ * - Netty event loops: serve requests out of immutable repository snapshots, they never write
+ *
+ * Pools are plain ThreadPoolExecutors wrapped as Reactor schedulers, so their saturation is exported
+ * the same way for every stage: executor.queued, executor.active, executor.completed (tag name).
+ */
+@Component
+@Slf4j
+public class FeedExecutors implements MeterBinder {
+
+    public static final String FAN_OUT = "price-fan-out";
+
+    // null if prices are sent on the feed thread
+    private final ThreadPoolExecutor fanOutExecutor;
+
+    private final Scheduler fanOutScheduler;
+
+    @Autowired
+    public FeedExecutors(ExecutionProperties properties) {
+        if (properties.getFanOutThreads() > 0) {
+            fanOutExecutor = newExecutor(FAN_OUT, properties.getFanOutThreads());
+            fanOutScheduler = Schedulers.fromExecutorService(fanOutExecutor, FAN_OUT);
+            log.info("Price fan-out runs on {} threads", properties.getFanOutThreads());
+        } else {
+            fanOutExecutor = null;
+            fanOutScheduler = Schedulers.immediate();
+        }
+    }
+
+    /**
+     * Pool of daemon threads with unbounded queue - tasks of the pools are bounded by their callers
+     * (eg. one pending drain per subscriber)
+     * @param name prefix of thread names, and name tag of metrics
+     * @param threads
+     * @return
+     */
+    public static ThreadPoolExecutor newExecutor(String name, int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Binds saturation metrics of executor, see class comment
+     * @param registry
+     * @param executor
+     * @param name
+     */
+    public static void bindExecutor(MeterRegistry registry, ThreadPoolExecutor executor, String name) {
+        new ExecutorServiceMetrics(executor, name, Tags.empty()).bindTo(registry);
+    }
+
+    /**
+     * @return scheduler prices are sent to stream subscribers on, immediate if there are no fan-out threads
+     */
+    public Scheduler getFanOutScheduler() {
+        return fanOutScheduler;
+    }
+
+    @PreDestroy
+    public void stop() {
+        fanOutScheduler.dispose();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (fanOutExecutor != null) {
+            bindExecutor(registry, fanOutExecutor, FAN_OUT);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.domain.pricehandler.service.history;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolutions OHLC bars are kept in, every one of them is maintained as prices are applied
+ */
+public enum BarResolution {
+    SECOND("1s", TimeUnit.SECONDS.toMillis(1)),
+    MINUTE("1m", TimeUnit.MINUTES.toMillis(1)),
+    FIVE_MINUTES("5m", TimeUnit.MINUTES.toMillis(5));
+
+    public final String label;
+
+    public final long millis;
+
+    BarResolution(String label, long millis) {
+        this.label = label;
+        this.millis = millis;
+    }
+
+    /**
+     * @param label eg. "1m"
+     * @return resolution
+     * @throws IllegalArgumentException if there is no such resolution
+     */
+    public static BarResolution valueOfLabel(String label) {
+        for (BarResolution resolution : values()) {
+            if (resolution.label.equals(label)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported bar resolution: " + label + ", expected 1s, 1m or 5m");
+    }
+}
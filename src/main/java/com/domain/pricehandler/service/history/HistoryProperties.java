@@ -0,0 +1,33 @@
+package com.domain.pricehandler.service.history;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * History of applied prices, eg:
+ * history.enabled=true
+ * history.ticks=4096
+ * history.retention=15m
+ * history.bars=1024
+ *
+ * Memory is taken per instrument, on its first price: ticks * 28 bytes, and bars * 44 bytes per bar resolution.
+ */
+@Component
+@ConfigurationProperties(prefix = "history")
+@Data
+public class HistoryProperties {
+
+    boolean enabled = true;
+
+    // Number of the latest ticks kept per instrument, rounded up to power of two
+    int ticks = 4096;
+
+    // Ticks older than this are not returned, even if they are still kept
+    Duration retention = Duration.ofMinutes(15);
+
+    // Number of the latest bars kept per instrument and resolution, rounded up to power of two
+    int bars = 1024;
+}
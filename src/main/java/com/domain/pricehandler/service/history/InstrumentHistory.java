@@ -0,0 +1,233 @@
+package com.domain.pricehandler.service.history;
+
+import com.domain.pricehandler.model.InstrumentName;
+
+import java.lang.invoke.VarHandle;
+import java.util.function.Supplier;
+
+/**
+ * Ticks and bars of one instrument, in rings of primitive columns (no object per tick)
+ *
+ * Written by threads applying prices, one at a time (under lock of this object). Read by event loops without
+ * the lock, as sequence lock: sequence is odd while written, reader copies what it needs and retries if
+ * sequence changed in the meantime. Only after a few failed attempts (writer keeps writing) reader takes
+ * the lock. So queries never stall price feed, and reading is O(log n) search plus copy of the result.
+ *
+ * Ticks are kept in order they are applied (ids grow), their timestamps are expected to grow as well -
+ * time ranges are searched by binary search over them.
+ */
+final class InstrumentHistory {
+
+    private static final int OPTIMISTIC_READS = 3;
+
+    private final InstrumentName instrumentName;
+
+    private final int tickMask;
+
+    private final int[] ids;
+    private final long[] bids;
+    private final long[] asks;
+    private final long[] timestampMillis;
+
+    // Number of ticks ever written, index of tick in columns is written & tickMask
+    private long written;
+
+    private final BarSeries[] bars;
+
+    private volatile long sequence;
+
+    InstrumentHistory(InstrumentName instrumentName, int tickCapacity, int barCapacity) {
+        this.instrumentName = instrumentName;
+        int capacity = powerOfTwo(tickCapacity);
+        this.tickMask = capacity - 1;
+        this.ids = new int[capacity];
+        this.bids = new long[capacity];
+        this.asks = new long[capacity];
+        this.timestampMillis = new long[capacity];
+        BarResolution[] resolutions = BarResolution.values();
+        this.bars = new BarSeries[resolutions.length];
+        for (BarResolution resolution : resolutions) {
+            bars[resolution.ordinal()] = new BarSeries(resolution, powerOfTwo(barCapacity));
+        }
+    }
+
+    static int powerOfTwo(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("History capacity has to be between 1 and 2^30");
+        }
+        return capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    synchronized void record(int id, long bid, long ask, long millis) {
+        long current = sequence;
+        sequence = current + 1;
+        // Columns are not written before odd sequence is visible
+        VarHandle.storeStoreFence();
+
+        int index = (int) (written & tickMask);
+        ids[index] = id;
+        bids[index] = bid;
+        asks[index] = ask;
+        timestampMillis[index] = millis;
+        written++;
+        // Mid price with scale of instrument + 1, exact: (bid + ask) / 2 = (bid + ask) * 5 / 10
+        long mid = (bid + ask) * 5;
+        for (BarSeries series : bars) {
+            series.record(millis, mid);
+        }
+
+        sequence = current + 2;
+    }
+
+    /**
+     * @param fromMillis inclusive
+     * @param toMillis inclusive
+     */
+    TickHistory ticks(long fromMillis, long toMillis) {
+        return read(() -> {
+            long end = written;
+            long begin = Math.max(0, end - ids.length);
+            long first = search(timestampMillis, tickMask, begin, end, fromMillis);
+            long last = toMillis == Long.MAX_VALUE ? end : search(timestampMillis, tickMask, first, end, toMillis + 1);
+            int size = (int) (last - first);
+            int[] rangeIds = new int[size];
+            long[] rangeBids = new long[size];
+            long[] rangeAsks = new long[size];
+            long[] rangeMillis = new long[size];
+            for (int i = 0; i < size; i++) {
+                int index = (int) ((first + i) & tickMask);
+                rangeIds[i] = ids[index];
+                rangeBids[i] = bids[index];
+                rangeAsks[i] = asks[index];
+                rangeMillis[i] = timestampMillis[index];
+            }
+            return new TickHistory(instrumentName, rangeIds, rangeBids, rangeAsks, rangeMillis);
+        });
+    }
+
+    /**
+     * @param fromMillis bar containing this time is the first one
+     * @param toMillis inclusive, the last bar starts at this time at the latest
+     */
+    OhlcBars bars(BarResolution resolution, long fromMillis, long toMillis) {
+        return read(() -> bars[resolution.ordinal()].copy(instrumentName, fromMillis, toMillis));
+    }
+
+    private <T> T read(Supplier<T> copy) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+            long before = sequence;
+            if ((before & 1) == 0) {
+                // Copy of torn columns is possible, it is thrown away below (indexes are always in bounds)
+                T result = copy.get();
+                // Columns are read before sequence is read again
+                VarHandle.loadLoadFence();
+                if (sequence == before) {
+                    return result;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        synchronized (this) {
+            return copy.get();
+        }
+    }
+
+    /**
+     * @return index of the first value not lower than key, in ring between begin and end (values grow)
+     */
+    private static long search(long[] values, int mask, long begin, long end, long key) {
+        long low = begin;
+        long high = end;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (values[(int) (middle & mask)] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Bars of one resolution. Tick updates the current bar, or starts a new one - O(1).
+     * Ticks older than the current bar are not applied to bars (they are kept as ticks).
+     */
+    private static final class BarSeries {
+
+        private final BarResolution resolution;
+
+        private final int mask;
+
+        private final long[] startMillis;
+        private final long[] opens;
+        private final long[] highs;
+        private final long[] lows;
+        private final long[] closes;
+        private final int[] tickCounts;
+
+        private long written;
+
+        BarSeries(BarResolution resolution, int capacity) {
+            this.resolution = resolution;
+            this.mask = capacity - 1;
+            this.startMillis = new long[capacity];
+            this.opens = new long[capacity];
+            this.highs = new long[capacity];
+            this.lows = new long[capacity];
+            this.closes = new long[capacity];
+            this.tickCounts = new int[capacity];
+        }
+
+        void record(long millis, long mid) {
+            long start = millis - Math.floorMod(millis, resolution.millis);
+            if (written > 0) {
+                int current = (int) ((written - 1) & mask);
+                if (start == startMillis[current]) {
+                    highs[current] = Math.max(highs[current], mid);
+                    lows[current] = Math.min(lows[current], mid);
+                    closes[current] = mid;
+                    tickCounts[current]++;
+                    return;
+                }
+                if (start < startMillis[current]) {
+                    return;
+                }
+            }
+            int index = (int) (written & mask);
+            startMillis[index] = start;
+            opens[index] = mid;
+            highs[index] = mid;
+            lows[index] = mid;
+            closes[index] = mid;
+            tickCounts[index] = 1;
+            written++;
+        }
+
+        OhlcBars copy(InstrumentName instrumentName, long fromMillis, long toMillis) {
+            long end = written;
+            long begin = Math.max(0, end - startMillis.length);
+            long fromStart = fromMillis - Math.floorMod(fromMillis, resolution.millis);
+            long first = search(startMillis, mask, begin, end, fromStart);
+            long last = toMillis == Long.MAX_VALUE ? end : search(startMillis, mask, first, end, toMillis + 1);
+            int size = (int) (last - first);
+            long[] rangeStarts = new long[size];
+            long[] rangeOpens = new long[size];
+            long[] rangeHighs = new long[size];
+            long[] rangeLows = new long[size];
+            long[] rangeCloses = new long[size];
+            int[] rangeCounts = new int[size];
+            for (int i = 0; i < size; i++) {
+                int index = (int) ((first + i) & mask);
+                rangeStarts[i] = startMillis[index];
+                rangeOpens[i] = opens[index];
+                rangeHighs[i] = highs[index];
+                rangeLows[i] = lows[index];
+                rangeCloses[i] = closes[index];
+                rangeCounts[i] = tickCounts[index];
+            }
+            return new OhlcBars(instrumentName, resolution, rangeStarts, rangeOpens, rangeHighs, rangeLows,
+                    rangeCloses, rangeCounts);
+        }
+    }
+}
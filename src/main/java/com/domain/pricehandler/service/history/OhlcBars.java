@@ -0,0 +1,83 @@
+package com.domain.pricehandler.service.history;
+
+import com.domain.pricehandler.model.InstrumentName;
+
+/**
+ * OHLC bars of mid price of one instrument in time range, oldest first - a copy, in columns as they are kept
+ *
+ * Mid price is (bid + ask) / 2, kept exactly as fixed point value with scale of instrument + 1 (see getScale).
+ * Bars exist only for intervals instrument had ticks in.
+ */
+public final class OhlcBars {
+
+    private final InstrumentName instrumentName;
+
+    private final BarResolution resolution;
+
+    private final long[] startMillis;
+
+    private final long[] opens;
+
+    private final long[] highs;
+
+    private final long[] lows;
+
+    private final long[] closes;
+
+    private final int[] tickCounts;
+
+    OhlcBars(InstrumentName instrumentName, BarResolution resolution, long[] startMillis, long[] opens,
+             long[] highs, long[] lows, long[] closes, int[] tickCounts) {
+        this.instrumentName = instrumentName;
+        this.resolution = resolution;
+        this.startMillis = startMillis;
+        this.opens = opens;
+        this.highs = highs;
+        this.lows = lows;
+        this.closes = closes;
+        this.tickCounts = tickCounts;
+    }
+
+    public InstrumentName getInstrumentName() {
+        return instrumentName;
+    }
+
+    public BarResolution getResolution() {
+        return resolution;
+    }
+
+    /**
+     * @return scale of open, high, low and close values
+     */
+    public int getScale() {
+        return instrumentName.scale + 1;
+    }
+
+    public int size() {
+        return startMillis.length;
+    }
+
+    public long getStartMillis(int index) {
+        return startMillis[index];
+    }
+
+    public long getOpen(int index) {
+        return opens[index];
+    }
+
+    public long getHigh(int index) {
+        return highs[index];
+    }
+
+    public long getLow(int index) {
+        return lows[index];
+    }
+
+    public long getClose(int index) {
+        return closes[index];
+    }
+
+    public int getTickCount(int index) {
+        return tickCounts[index];
+    }
+}
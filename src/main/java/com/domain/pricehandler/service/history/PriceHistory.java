@@ -0,0 +1,39 @@
+package com.domain.pricehandler.service.history;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+
+/**
+ * Recent history of applied prices, per instrument: the latest ticks, and OHLC bars maintained as prices
+ * are applied (queries never aggregate ticks)
+ */
+public interface PriceHistory {
+
+    /**
+     * @return false if history is not kept (records are ignored, queries return nothing)
+     */
+    public boolean isEnabled();
+
+    /**
+     * Records applied prices
+     * @param prices prices indexed by instrument id, null entries are skipped (as in PriceRepository.updateAll)
+     */
+    public void record(Price[] prices);
+
+    /**
+     * @param instrumentName
+     * @param fromMillis inclusive, ticks older than retention are not returned anyway
+     * @param toMillis inclusive
+     * @return ticks, null if instrument has no history
+     */
+    public TickHistory getTicks(InstrumentName instrumentName, long fromMillis, long toMillis);
+
+    /**
+     * @param instrumentName
+     * @param resolution
+     * @param fromMillis bar containing this time is the first one returned
+     * @param toMillis inclusive, bars starting later are not returned
+     * @return bars, null if instrument has no history
+     */
+    public OhlcBars getBars(InstrumentName instrumentName, BarResolution resolution, long fromMillis, long toMillis);
+}
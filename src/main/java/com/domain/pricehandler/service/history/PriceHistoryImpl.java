@@ -0,0 +1,78 @@
+package com.domain.pricehandler.service.history;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * History of every instrument is created on its first price, so memory is taken only by instruments
+ * which are quoted (see HistoryProperties)
+ */
+@Component
+public class PriceHistoryImpl implements PriceHistory {
+
+    private final HistoryProperties properties;
+
+    private final long retentionMillis;
+
+    // Indexed by instrument id
+    private final AtomicReferenceArray<InstrumentHistory> histories = new AtomicReferenceArray<>(InstrumentName.CAPACITY);
+
+    @Autowired
+    public PriceHistoryImpl(HistoryProperties properties) {
+        this.properties = properties;
+        this.retentionMillis = properties.getRetention().toMillis();
+        // Fails on startup rather than on the first price
+        InstrumentHistory.powerOfTwo(properties.getTicks());
+        InstrumentHistory.powerOfTwo(properties.getBars());
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    @Override
+    public void record(Price[] prices) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        for (int i = 0; i < prices.length; i++) {
+            Price price = prices[i];
+            if (price != null) {
+                history(i, price.getInstrumentName())
+                        .record(price.getId(), price.getBid(), price.getAsk(), price.getTimestampMillis());
+            }
+        }
+    }
+
+    // Two threads may create history of the same instrument at the same time, only one of them is kept
+    private InstrumentHistory history(int index, InstrumentName instrumentName) {
+        InstrumentHistory history = histories.get(index);
+        if (history == null) {
+            histories.compareAndSet(index, null,
+                    new InstrumentHistory(instrumentName, properties.getTicks(), properties.getBars()));
+            history = histories.get(index);
+        }
+        return history;
+    }
+
+    @Override
+    public TickHistory getTicks(InstrumentName instrumentName, long fromMillis, long toMillis) {
+        InstrumentHistory history = histories.get(instrumentName.id());
+        if (history == null) {
+            return null;
+        }
+        long retainedFrom = System.currentTimeMillis() - retentionMillis;
+        return history.ticks(Math.max(fromMillis, retainedFrom), toMillis);
+    }
+
+    @Override
+    public OhlcBars getBars(InstrumentName instrumentName, BarResolution resolution, long fromMillis, long toMillis) {
+        InstrumentHistory history = histories.get(instrumentName.id());
+        return history != null ? history.bars(resolution, fromMillis, toMillis) : null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.domain.pricehandler.service.history;
+
+import com.domain.pricehandler.model.InstrumentName;
+
+/**
+ * Ticks of one instrument in time range, oldest first - a copy, in columns as they are kept
+ *
+ * Bid and ask are fixed point values with scale of instrument, as in Price.
+ */
+public final class TickHistory {
+
+    private final InstrumentName instrumentName;
+
+    private final int[] ids;
+
+    private final long[] bids;
+
+    private final long[] asks;
+
+    private final long[] timestampMillis;
+
+    TickHistory(InstrumentName instrumentName, int[] ids, long[] bids, long[] asks, long[] timestampMillis) {
+        this.instrumentName = instrumentName;
+        this.ids = ids;
+        this.bids = bids;
+        this.asks = asks;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public InstrumentName getInstrumentName() {
+        return instrumentName;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    public long getBid(int index) {
+        return bids[index];
+    }
+
+    public long getAsk(int index) {
+        return asks[index];
+    }
+
+    public long getTimestampMillis(int index) {
+        return timestampMillis[index];
+    }
+}
@@ -0,0 +1,27 @@
+package com.domain.pricehandler.service.instruments;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Instruments supported in addition to built-in ones (see InstrumentName), eg:
+ * instruments.scales.USD_JPY=2
+ * instruments.scales.GBP_JPY=2
+ * instruments.registerOnFirstSight=true
+ */
+@Component
+@ConfigurationProperties(prefix = "instruments")
+@Data
+public class InstrumentProperties {
+
+    // Scale (number of decimal places prices are kept with) per instrument name
+    Map<String, Integer> scales = new LinkedHashMap<>();
+
+    // true - instruments which are not configured are registered when they are first seen in price feed,
+    // with scale of that price, false - prices of such instruments are skipped
+    boolean registerOnFirstSight = false;
+}
@@ -0,0 +1,33 @@
+package com.domain.pricehandler.service.instruments;
+
+import com.domain.pricehandler.model.InstrumentName;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+
+/**
+ * Registers configured instruments at startup. Components which resolve configuration per instrument
+ * (eg. commission margins) depend on this bean, so configured instruments are known to them.
+ */
+@Component("instrumentRegistrar")
+@Slf4j
+public class InstrumentRegistrar {
+
+    @Autowired
+    private InstrumentProperties instrumentProperties;
+
+    @PostConstruct
+    public void registerConfiguredInstruments() {
+        for (Map.Entry<String, Integer> entry : instrumentProperties.getScales().entrySet()) {
+            InstrumentName instrumentName = InstrumentName.register(entry.getKey().replace('_', '/'), entry.getValue());
+            if (instrumentName.scale != entry.getValue()) {
+                log.warn("Instrument {} is registered already with scale {}, configured scale {} is ignored",
+                        instrumentName, instrumentName.scale, entry.getValue());
+            }
+        }
+        log.info("Supported instruments: {}", InstrumentName.count());
+    }
+}
@@ -0,0 +1,144 @@
+package com.domain.pricehandler.service.journal;
+
+import com.domain.pricehandler.model.FixedPoint;
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary format of journal and snapshot files - header followed by fixed size records.
+ *
+ * Record layout (offset, size):
+ * 0   4   id
+ * 4   1   committed flag, written last, so record which was not written completely is not read
+ * 5   1   scale of bid and ask
+ * 6   1   label length
+ * 7   1   timestamp length
+ * 8   8   bid
+ * 16  8   ask
+ * 24  8   timestamp millis
+ * 32  24  label (ASCII), eg. "EUR/USD"
+ * 56  24  timestamp (ASCII), as received
+ *
+ * Instrument is stored by label and scale, not by id - ids depend on order of registration,
+ * so they can differ after restart.
+ */
+final class JournalFormat {
+
+    static final int RECORD_SIZE = 80;
+
+    // Header takes one record, so records stay aligned
+    static final int HEADER_SIZE = RECORD_SIZE;
+
+    static final int MAX_LABEL_LENGTH = 24;
+
+    static final int MAX_TIMESTAMP_LENGTH = 24;
+
+    private static final int MAGIC = 0x504A4E4C;
+
+    private static final int VERSION = 1;
+
+    private static final byte COMMITTED = 1;
+
+    private static final int ID = 0;
+    private static final int FLAG = 4;
+    private static final int SCALE = 5;
+    private static final int LABEL_LENGTH = 6;
+    private static final int TIMESTAMP_LENGTH = 7;
+    private static final int BID = 8;
+    private static final int ASK = 16;
+    private static final int TIMESTAMP_MILLIS = 24;
+    private static final int LABEL = 32;
+    private static final int TIMESTAMP = 56;
+
+    private JournalFormat() {
+    }
+
+    static void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, RECORD_SIZE);
+    }
+
+    static boolean isValidHeader(ByteBuffer buffer) {
+        return buffer.limit() >= HEADER_SIZE
+                && buffer.getInt(0) == MAGIC
+                && buffer.getInt(4) == VERSION
+                && buffer.getInt(8) == RECORD_SIZE;
+    }
+
+    static int recordOffset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    /**
+     * @param price
+     * @return false if label or timestamp of price is too long to be journaled
+     */
+    static boolean fits(Price price) {
+        return price.getInstrumentName().label.length() <= MAX_LABEL_LENGTH
+                && price.getTimestamp() != null && price.getTimestamp().length() <= MAX_TIMESTAMP_LENGTH;
+    }
+
+    static void write(ByteBuffer buffer, int offset, Price price) {
+        InstrumentName instrumentName = price.getInstrumentName();
+        buffer.putInt(offset + ID, price.getId());
+        buffer.put(offset + SCALE, (byte) instrumentName.scale);
+        buffer.put(offset + LABEL_LENGTH, (byte) instrumentName.label.length());
+        buffer.put(offset + TIMESTAMP_LENGTH, (byte) price.getTimestamp().length());
+        buffer.putLong(offset + BID, price.getBid());
+        buffer.putLong(offset + ASK, price.getAsk());
+        buffer.putLong(offset + TIMESTAMP_MILLIS, price.getTimestampMillis());
+        putAscii(buffer, offset + LABEL, instrumentName.label);
+        putAscii(buffer, offset + TIMESTAMP, price.getTimestamp());
+        buffer.put(offset + FLAG, COMMITTED);
+    }
+
+    static boolean isCommitted(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + FLAG) == COMMITTED;
+    }
+
+    static void clearCommitted(ByteBuffer buffer, int offset) {
+        buffer.put(offset + FLAG, (byte) 0);
+    }
+
+    /**
+     * Reads committed record. Instrument which is not supported (anymore) is registered with journaled scale,
+     * if instrument is supported with different scale, bid and ask are rescaled as commission would round them.
+     * @param buffer
+     * @param offset
+     * @return price
+     * @throws IllegalArgumentException if instrument can not be registered
+     * @throws IllegalStateException if maximum number of instruments is reached
+     */
+    static Price read(ByteBuffer buffer, int offset) {
+        int scale = buffer.get(offset + SCALE);
+        String label = getAscii(buffer, offset + LABEL, buffer.get(offset + LABEL_LENGTH));
+        InstrumentName instrumentName = InstrumentName.register(label, scale);
+
+        Price price = new Price();
+        price.setId(buffer.getInt(offset + ID));
+        price.setInstrumentName(instrumentName);
+        price.setBid(FixedPoint.rescale(buffer.getLong(offset + BID), scale, instrumentName.scale, RoundingMode.FLOOR));
+        price.setAsk(FixedPoint.rescale(buffer.getLong(offset + ASK), scale, instrumentName.scale, RoundingMode.CEILING));
+        price.setTimestamp(getAscii(buffer, offset + TIMESTAMP, buffer.get(offset + TIMESTAMP_LENGTH)));
+        price.setTimestampMillis(buffer.getLong(offset + TIMESTAMP_MILLIS));
+        return price;
+    }
+
+    private static void putAscii(ByteBuffer buffer, int offset, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            buffer.put(offset + i, (byte) value.charAt(i));
+        }
+    }
+
+    private static String getAscii(ByteBuffer buffer, int offset, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (buffer.get(offset + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,26 @@
+package com.domain.pricehandler.service.journal;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Journal configuration, eg:
+ * journal.enabled=true
+ * journal.directory=/var/lib/price-handler
+ * journal.capacity=100000
+ */
+@Component
+@ConfigurationProperties(prefix = "journal")
+@Data
+public class JournalProperties {
+
+    // Applied prices are journaled, and restored on startup, only if enabled
+    boolean enabled = false;
+
+    // Directory of journal and snapshot files, created if it does not exist
+    String directory = "journal";
+
+    // Number of prices each of two journal files holds, full one is compacted into snapshot in background
+    int capacity = 100_000;
+}
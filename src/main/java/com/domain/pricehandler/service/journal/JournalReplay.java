@@ -0,0 +1,98 @@
+package com.domain.pricehandler.service.journal;
+
+import com.domain.pricehandler.PriceHandlerApplication;
+import com.domain.pricehandler.model.FixedPoint;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.PriceService;
+import com.domain.pricehandler.service.PriceUpdateStatistics;
+import com.domain.pricehandler.service.messaging.PriceFeedListener;
+import com.domain.pricehandler.service.messaging.PriceFeedListenerImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offline tool re-feeding journal (or snapshot) through price feed listener, for testing, eg:
+ * java -cp price-handler.jar -Dloader.main=com.domain.pricehandler.service.journal.JournalReplay
+ *      org.springframework.boot.loader.PropertiesLauncher journal/prices.journal 100
+ *
+ * Prices are journaled with commission applied, so to get the same prices, replay with zero margins
+ * (--commission.bidMargin=0 --commission.askMargin=0 after the other arguments).
+ */
+@Slf4j
+public final class JournalReplay {
+
+    private JournalReplay() {
+    }
+
+    /**
+     * @param args journal file, optionally number of prices per message (1 by default), then application properties
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: JournalReplay <journal file> [prices per message] [--property=value ...]");
+            System.exit(1);
+        }
+        Path file = Paths.get(args[0]);
+        int pricesPerMessage = args.length > 1 && !args[1].startsWith("--") ? Integer.parseInt(args[1]) : 1;
+
+        // Without web server, and without journaling replayed prices into the journal being read
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PriceHandlerApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("journal.enabled=false")
+                .run(args)) {
+            PriceFeedListener listener = (PriceFeedListener) context.getBean("priceFeedReceiver");
+            int replayed = replay(file, listener, pricesPerMessage);
+            PriceUpdateStatistics statistics = context.getBean(PriceService.class).getUpdateStatistics();
+            log.info("Replayed {} prices: applied {}, stale {}, superseded {}, unsupported {}", replayed,
+                    statistics.getApplied(), statistics.getStale(), statistics.getSuperseded(),
+                    statistics.getUnsupported());
+        }
+    }
+
+    /**
+     * Formats journaled prices as price feed messages, and passes them to listener in journal order
+     * @param file journal or snapshot file
+     * @param listener
+     * @param pricesPerMessage number of prices (lines) per message
+     * @return number of replayed prices
+     * @throws IOException
+     */
+    public static int replay(Path file, PriceFeedListener listener, int pricesPerMessage) throws IOException {
+        if (pricesPerMessage < 1) {
+            throw new IllegalArgumentException("Number of prices per message has to be positive");
+        }
+        List<String> lines = new ArrayList<>(pricesPerMessage);
+        int replayed = PriceJournalReader.read(file, price -> {
+            lines.add(toLine(price));
+            if (lines.size() == pricesPerMessage) {
+                listener.onMessage(String.join(PriceFeedListenerImpl.newLine, lines));
+                lines.clear();
+            }
+        });
+        if (!lines.isEmpty()) {
+            listener.onMessage(String.join(PriceFeedListenerImpl.newLine, lines));
+        }
+        return replayed;
+    }
+
+    /**
+     * @param price
+     * @return price feed line, eg. "106, EUR/USD, 1.0989,1.2012,01-06-2020 12:01:01:001"
+     */
+    static String toLine(Price price) {
+        int scale = price.getInstrumentName().scale;
+        return price.getId() + ", " + price.getInstrumentName().label + ", "
+                + FixedPoint.toBigDecimal(price.getBid(), scale).toPlainString() + ","
+                + FixedPoint.toBigDecimal(price.getAsk(), scale).toPlainString() + ","
+                + price.getTimestamp();
+    }
+}
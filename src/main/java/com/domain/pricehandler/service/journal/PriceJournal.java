@@ -0,0 +1,26 @@
+package com.domain.pricehandler.service.journal;
+
+import com.domain.pricehandler.model.Price;
+
+/**
+ * Journal of applied prices, so repository can be restored after restart without waiting for price feed
+ * to publish every instrument again
+ */
+public interface PriceJournal {
+
+    /**
+     * @return false if prices are not journaled (appends are ignored)
+     */
+    public boolean isEnabled();
+
+    /**
+     * Appends applied prices to journal
+     * @param prices prices indexed by instrument id, null entries are skipped (as in PriceRepository.updateAll)
+     */
+    public void append(Price[] prices);
+
+    /**
+     * Writes the newest journaled price of every instrument into snapshot, and empties journal
+     */
+    public void compact();
+}
@@ -0,0 +1,298 @@
+package com.domain.pricehandler.service.journal;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.metrics.FeedMetrics;
+import com.domain.pricehandler.service.repository.PriceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applied prices are appended to memory-mapped journal file, as fixed size records (see JournalFormat).
+ * Appending is a few writes to memory - the OS writes pages to disk, so journaled prices survive crash of the process,
+ * but not of the machine (journal is not forced to disk on every append).
+ *
+ * Journal is made of two files (segments), prices are appended to one of them. When it is full, appending goes on
+ * in the other one, and the full one is compacted on compaction thread: the newest price of every instrument
+ * is written to snapshot file, and the segment is emptied. So feed thread never writes nor forces snapshot -
+ * it waits for compaction only if the other segment fills up before compaction of the full one finished.
+ * Snapshot is replaced atomically, and journal records are invalidated only after that, so there is always
+ * snapshot and journal to restore from. Journal records older than snapshot do no harm on restore,
+ * as the newest id wins (so does the order segments are read in).
+ *
+ * On startup snapshot and both segments are read into repository (the newest price per instrument),
+ * then they are compacted, so journal starts empty.
+ */
+@Component
+@DependsOn("instrumentRegistrar")
+@Slf4j
+public class PriceJournalImpl implements PriceJournal {
+
+    public static final String JOURNAL_FILE = "prices.journal";
+
+    public static final String SNAPSHOT_FILE = "prices.snapshot";
+
+    private static final String THREAD_NAME = "price-journal-compaction";
+
+    private final PriceRepository priceRepository;
+
+    private final FeedMetrics feedMetrics;
+
+    private final boolean enabled;
+
+    private final Path directory;
+
+    private final int capacity;
+
+    // The newest journaled price per instrument id, they make up snapshot
+    private final Price[] latestPrices = new Price[InstrumentName.CAPACITY];
+
+    private final Segment[] segments = new Segment[2];
+
+    // Segment prices are appended to, null if journal is not open
+    private Segment journal;
+
+    private ExecutorService compactor;
+
+    // Compaction of the other segment, null if it is empty
+    private Future<?> compaction;
+
+    @Autowired
+    public PriceJournalImpl(JournalProperties properties, PriceRepository priceRepository, FeedMetrics feedMetrics) {
+        this.priceRepository = priceRepository;
+        this.feedMetrics = feedMetrics;
+        this.enabled = properties.isEnabled();
+        this.directory = Paths.get(properties.getDirectory());
+        this.capacity = properties.getCapacity();
+        if (capacity < 1 || (long) JournalFormat.recordOffset(0) + (long) capacity * JournalFormat.RECORD_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal capacity has to be between 1 and "
+                    + (Integer.MAX_VALUE - JournalFormat.HEADER_SIZE) / JournalFormat.RECORD_SIZE);
+        }
+    }
+
+    /**
+     * @param segment 0 or 1
+     * @return name of journal file of segment, the first one is named as journal of single file
+     */
+    public static String journalFile(int segment) {
+        return segment == 0 ? JOURNAL_FILE : JOURNAL_FILE + "." + segment;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Restores repository from snapshot and journal, and opens journal for appending
+     * @throws IOException
+     */
+    @PostConstruct
+    public synchronized void restore() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        int read = PriceJournalReader.read(directory.resolve(SNAPSHOT_FILE), this::keepLatest);
+        for (int i = 0; i < segments.length; i++) {
+            read += PriceJournalReader.read(directory.resolve(journalFile(i)), this::keepLatest);
+        }
+        int restored = priceRepository.updateAll(latestPrices.clone());
+
+        writeSnapshot(latestPrices);
+        // Snapshot has all journaled prices now, so journal can start over (it is recreated, as its capacity could change)
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(directory.resolve(journalFile(i)), capacity);
+        }
+        journal = segments[0];
+        compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        log.info("Restored {} prices out of {} journaled ones in {} ms", restored, read,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            awaitCompaction();
+            compactor.shutdown();
+            for (Segment segment : segments) {
+                segment.close();
+            }
+            journal = null;
+        }
+    }
+
+    @Override
+    public synchronized void append(Price[] prices) {
+        if (journal == null) {
+            return;
+        }
+        for (Price price : prices) {
+            if (price == null) {
+                continue;
+            }
+            if (!JournalFormat.fits(price)) {
+                log.warn("Price {} not journaled, its label or timestamp is too long", price.getId());
+                continue;
+            }
+            if (journal.size == capacity) {
+                swap();
+            }
+            JournalFormat.write(journal.buffer, JournalFormat.recordOffset(journal.size), price);
+            journal.size++;
+            keepLatest(price);
+        }
+    }
+
+    /**
+     * Compacts all journaled prices, and waits until snapshot is written
+     */
+    @Override
+    public synchronized void compact() {
+        if (journal == null) {
+            return;
+        }
+        swap();
+        awaitCompaction();
+    }
+
+    // Appending goes on in the other segment, the current one is compacted on compaction thread
+    private void swap() {
+        awaitCompaction();
+        Segment full = journal;
+        // Copy, as appending goes on - snapshot has to have the newest prices of the full segment at least
+        Price[] snapshot = latestPrices.clone();
+        journal = other();
+        compaction = compactor.submit(() -> compact(full, snapshot));
+    }
+
+    private void awaitCompaction() {
+        if (compaction != null) {
+            try {
+                compaction.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for price journal compaction", e);
+            } catch (ExecutionException e) {
+                log.error("Price journal compaction failed, retrying on feed thread", e.getCause());
+            }
+            compaction = null;
+        }
+        // Not emptied if compaction failed, it is retried with the newest prices then
+        Segment other = other();
+        if (other.size != 0) {
+            compact(other, latestPrices);
+        }
+    }
+
+    private Segment other() {
+        return journal == segments[0] ? segments[1] : segments[0];
+    }
+
+    private void compact(Segment segment, Price[] snapshot) {
+        long start = System.nanoTime();
+        try {
+            writeSnapshot(snapshot);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Price journal snapshot could not be written", e);
+        }
+        // From the first record, so journal is never left with a gap before committed records
+        for (int i = 0; i < segment.size; i++) {
+            JournalFormat.clearCommitted(segment.buffer, JournalFormat.recordOffset(i));
+        }
+        long nanos = System.nanoTime() - start;
+        feedMetrics.recordLatency(FeedMetrics.Stage.JOURNAL_COMPACTION, nanos);
+        log.debug("Price journal of {} prices compacted in {} us", segment.size, TimeUnit.NANOSECONDS.toMicros(nanos));
+        segment.size = 0;
+    }
+
+    private void writeSnapshot(Price[] prices) throws IOException {
+        int count = 0;
+        for (Price price : prices) {
+            if (price != null) {
+                count++;
+            }
+        }
+        ByteBuffer snapshot = ByteBuffer.allocate(JournalFormat.recordOffset(count));
+        JournalFormat.writeHeader(snapshot);
+        int index = 0;
+        for (Price price : prices) {
+            if (price != null) {
+                JournalFormat.write(snapshot, JournalFormat.recordOffset(index++), price);
+            }
+        }
+
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (snapshot.hasRemaining()) {
+                file.write(snapshot);
+            }
+            file.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Newest id wins, as in repository
+    private void keepLatest(Price price) {
+        int index = price.getInstrumentName().id();
+        Price latest = latestPrices[index];
+        if (latest == null || latest.getId() < price.getId()) {
+            latestPrices[index] = price;
+        }
+    }
+
+    /**
+     * Journal file, size is written by feed thread, and by compaction thread while feed thread appends
+     * to the other segment (compaction is awaited before the segment is appended to again)
+     */
+    private static final class Segment {
+
+        private final FileChannel channel;
+
+        private final MappedByteBuffer buffer;
+
+        // Number of records in segment
+        private int size;
+
+        private Segment(Path file, int capacity) throws IOException {
+            Files.deleteIfExists(file);
+            channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, JournalFormat.recordOffset(capacity));
+            JournalFormat.writeHeader(buffer);
+        }
+
+        private void close() throws IOException {
+            buffer.force();
+            channel.close();
+        }
+    }
+}
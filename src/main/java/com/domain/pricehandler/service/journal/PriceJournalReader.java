@@ -0,0 +1,56 @@
+package com.domain.pricehandler.service.journal;
+
+import com.domain.pricehandler.model.Price;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Reads prices of journal or snapshot file, in order they were written
+ */
+@Slf4j
+public final class PriceJournalReader {
+
+    private PriceJournalReader() {
+    }
+
+    /**
+     * Reads committed records, up to the first one which is not committed
+     * @param file journal or snapshot file
+     * @param consumer called for every price
+     * @return number of read prices, 0 if file does not exist
+     * @throws IOException if file can not be read or it is not journal file
+     */
+    public static int read(Path file, Consumer<Price> consumer) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return 0;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (!JournalFormat.isValidHeader(buffer)) {
+                throw new IOException("Not a price journal, or journal of other version: " + file);
+            }
+            int read = 0;
+            int offset = JournalFormat.recordOffset(0);
+            while (offset + JournalFormat.RECORD_SIZE <= buffer.limit() && JournalFormat.isCommitted(buffer, offset)) {
+                try {
+                    consumer.accept(JournalFormat.read(buffer, offset));
+                    read++;
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    log.warn("Journaled price skipped, its instrument can not be registered: {}", e.getMessage());
+                }
+                offset += JournalFormat.RECORD_SIZE;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.domain.pricehandler.service.messaging;
+
+import com.domain.pricehandler.exceptions.PriceFeedFormatException;
+
+/**
+ * Parser of price feed timestamps, in format dd-MM-yyyy HH:mm:ss:SSS (UTC)
+ *
+ * Used instead of DateTimeFormatter, as it is called for every price - it reads digits in place
+ * and computes epoch millis directly, without creating any objects.
+ * Timestamps of binary feed are formatted the other way round, to be published in the same format.
+ */
+public final class FeedTimestamp {
+
+    private static final int LENGTH = "dd-MM-yyyy HH:mm:ss:SSS".length();
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private FeedTimestamp() {
+    }
+
+    /**
+     * @param text text containing timestamp
+     * @param start index of the first character of timestamp
+     * @param end index after the last character of timestamp
+     * @return epoch millis
+     * @throws PriceFeedFormatException if timestamp is not in expected format or is not a valid date and time
+     */
+    public static long parseEpochMillis(CharSequence text, int start, int end) {
+        if (end - start != LENGTH
+                || text.charAt(start + 2) != '-' || text.charAt(start + 5) != '-'
+                || text.charAt(start + 10) != ' '
+                || text.charAt(start + 13) != ':' || text.charAt(start + 16) != ':' || text.charAt(start + 19) != ':') {
+            throw new PriceFeedFormatException("Timestamp not in format dd-MM-yyyy HH:mm:ss:SSS");
+        }
+        int day = digits(text, start, 2);
+        int month = digits(text, start + 3, 2);
+        int year = digits(text, start + 6, 4);
+        int hour = digits(text, start + 11, 2);
+        int minute = digits(text, start + 14, 2);
+        int second = digits(text, start + 17, 2);
+        int millis = digits(text, start + 20, 3);
+
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            throw new PriceFeedFormatException("Timestamp is not a valid date and time");
+        }
+        long epochDay = epochDay(year, month, day);
+        return epochDay * MILLIS_PER_DAY + ((hour * 60L + minute) * 60 + second) * 1000 + millis;
+    }
+
+    /**
+     * @param epochMillis
+     * @return timestamp in format dd-MM-yyyy HH:mm:ss:SSS
+     * @throws PriceFeedFormatException if year of timestamp does not have 4 digits
+     */
+    public static String format(long epochMillis) {
+        long epochDay = Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(epochMillis, MILLIS_PER_DAY);
+
+        // Inverse of epochDay
+        long shifted = epochDay + 719_468;
+        long era = Math.floorDiv(shifted, 146_097);
+        int dayOfEra = (int) (shifted - era * 146_097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = era * 400 + yearOfEra + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            throw new PriceFeedFormatException("Timestamp out of supported range: " + epochMillis);
+        }
+
+        char[] chars = new char[LENGTH];
+        putDigits(chars, 0, day, 2);
+        chars[2] = '-';
+        putDigits(chars, 3, month, 2);
+        chars[5] = '-';
+        putDigits(chars, 6, (int) year, 4);
+        chars[10] = ' ';
+        putDigits(chars, 11, millisOfDay / 3_600_000, 2);
+        chars[13] = ':';
+        putDigits(chars, 14, millisOfDay / 60_000 % 60, 2);
+        chars[16] = ':';
+        putDigits(chars, 17, millisOfDay / 1000 % 60, 2);
+        chars[19] = ':';
+        putDigits(chars, 20, millisOfDay % 1000, 3);
+        return new String(chars);
+    }
+
+    private static void putDigits(char[] chars, int start, int value, int count) {
+        for (int i = start + count - 1; i >= start; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new PriceFeedFormatException("Timestamp not in format dd-MM-yyyy HH:mm:ss:SSS");
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Days since 1970-01-01 of proleptic Gregorian date, years are counted from March, so leap day is
+     * the last day of year (year has 4 digits here, so it is never negative)
+     */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468;
+    }
+}
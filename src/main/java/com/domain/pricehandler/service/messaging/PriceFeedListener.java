@@ -1,9 +1,34 @@
 package com.domain.pricehandler.service.messaging;
 
+import com.domain.pricehandler.service.arbitration.FeedSource;
+
+import java.nio.ByteBuffer;
+
 /**
  * Responsible for receiving price feeds
  */
 public interface PriceFeedListener {
 
     public void onMessage(String message );
+
+    /**
+     * Binary price feed message, ticks in format of PriceTickDecoder
+     * @param message ticks from position to limit, position is not changed
+     */
+    public void onMessage(ByteBuffer message);
+
+    /**
+     * Message of one of many sources, which have their own ids - prices are arbitrated into best bid/offer
+     * (see PriceArbiter) before they are passed to price service
+     * @param source
+     * @param message
+     */
+    public void onMessage(FeedSource source, String message);
+
+    /**
+     * Binary message of one of many sources, as onMessage(FeedSource, String)
+     * @param source
+     * @param message ticks from position to limit, position is not changed
+     */
+    public void onMessage(FeedSource source, ByteBuffer message);
 }
@@ -1,63 +1,342 @@
 package com.domain.pricehandler.service.messaging;
 
+import com.domain.pricehandler.exceptions.PriceFeedFormatException;
 import com.domain.pricehandler.model.InstrumentName;
 import com.domain.pricehandler.model.Price;
 import com.domain.pricehandler.service.PriceService;
+import com.domain.pricehandler.service.arbitration.FeedSource;
+import com.domain.pricehandler.service.arbitration.PriceArbiter;
+import com.domain.pricehandler.service.commission.CommissionTable;
+import com.domain.pricehandler.service.instruments.InstrumentProperties;
+import com.domain.pricehandler.service.messaging.ingestion.IngestionProperties;
+import com.domain.pricehandler.service.metrics.FeedMetrics;
+import com.domain.pricehandler.service.messaging.ingestion.PriceFeedIngestion;
+import com.domain.pricehandler.service.staleness.StalenessMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
-import java.util.Arrays;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
+/**
+ * By default messages are parsed and applied on the caller thread. With feed.ingestion.async=true, they are
+ * only put into ring buffer and applied by dedicated thread (see PriceFeedIngestion) - in such case onMessage
+ * has to be called by one thread at a time, and incorrect messages are logged and skipped instead of thrown.
+ *
+ * Text messages (CSV lines) and binary messages (ticks, see PriceTickDecoder) result in the same prices.
+ * Messages of feed sources are arbitrated (see PriceArbiter) after conversion, on the same thread.
+ * Failover prices of arbiter are applied by ingestion thread, if ingestion is async.
+ *
+ * Timestamps of text messages have to be in format dd-MM-yyyy HH:mm:ss:SSS only if staleness is monitored,
+ * otherwise timestamp which can not be parsed is kept as it is, and receive time is used as its epoch millis.
+ */
 @Component("priceFeedReceiver")
 @Slf4j
-public class PriceFeedListenerImpl implements PriceFeedListener {
+public class PriceFeedListenerImpl implements PriceFeedListener, MeterBinder {
 
     @Autowired
     PriceService priceService;
 
+    @Autowired
+    IngestionProperties ingestionProperties;
+
+    @Autowired
+    FeedMetrics feedMetrics;
+
+    @Autowired
+    InstrumentProperties instrumentProperties;
+
+    @Autowired
+    PriceArbiter priceArbiter;
+
+    @Autowired
+    StalenessMonitor stalenessMonitor;
+
     public static final String newLine = System.getProperty("line.separator");
 
+    // Messages are String (text feed), ByteBuffer (binary feed), or SourceMessage wrapping one of them
+    private PriceFeedIngestion<Object> ingestion;
+
+    @PostConstruct
+    public void startIngestion() {
+        if (ingestionProperties.isAsync()) {
+            ingestion = new PriceFeedIngestion<>(ingestionProperties, this::convertMessageToPrices, priceService::updatePrices);
+            ingestion.start();
+            // Failover prices are applied by ingestion thread too, in order with prices of feed
+            priceArbiter.setFailoverApplier(ingestion::submitPrices);
+        }
+    }
+
+    @PreDestroy
+    public void stopIngestion() throws InterruptedException {
+        if (ingestion != null) {
+            ingestion.stop();
+        }
+    }
+
     public void onMessage(String message) {
-        String[] lines = message.split(newLine);
-        List<Price> prices = Arrays
-                .stream(lines)
-                .map(l -> {
-                    try {
-                        return convertMessageToPrice(l);
-                    } catch (Exception e) {
-                        throw new RuntimeException("Message convertion failed due to incorrect message Format");
-                    }
-                })
-                .collect(Collectors.toList());
+        if (ingestion != null) {
+            ingestion.submit(message);
+            return;
+        }
+        List<Price> prices = new ArrayList<>();
+        convertMessageToPrices(message, prices);
         priceService.updatePrices(prices);
     }
 
+    public void onMessage(ByteBuffer message) {
+        if (ingestion != null) {
+            ingestion.submit(copy(message));
+            return;
+        }
+        List<Price> prices = new ArrayList<>();
+        convertTicksToPrices(message, prices);
+        priceService.updatePrices(prices);
+    }
+
+    public void onMessage(FeedSource source, String message) {
+        if (ingestion != null) {
+            ingestion.submit(new SourceMessage(source, message));
+            return;
+        }
+        List<Price> prices = new ArrayList<>();
+        convertMessageToPrices(message, prices);
+        priceArbiter.arbitrate(source, prices, 0);
+        priceService.updatePrices(prices);
+    }
+
+    public void onMessage(FeedSource source, ByteBuffer message) {
+        if (ingestion != null) {
+            ingestion.submit(new SourceMessage(source, copy(message)));
+            return;
+        }
+        List<Price> prices = new ArrayList<>();
+        convertTicksToPrices(message, prices);
+        priceArbiter.arbitrate(source, prices, 0);
+        priceService.updatePrices(prices);
+    }
+
+    // Caller can reuse its buffer once message is submitted, so it is copied
+    private static ByteBuffer copy(ByteBuffer message) {
+        ByteBuffer copy = ByteBuffer.allocate(message.remaining()).order(message.order());
+        copy.put(message.duplicate()).flip();
+        return copy;
+    }
+
     /**
-     * Splits message and builds Price object
-     * @param line
+     * Asynchronous ingestion, null if messages are applied on the caller thread
      * @return
-     * @throws Exception - this should be amended to specific exception
      */
-    private Price convertMessageToPrice(String line) throws Exception {
-        String[] fields = line.trim().split("\\s*,\\s*");
+    public PriceFeedIngestion<Object> getIngestion() {
+        return ingestion;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (ingestion != null) {
+            ingestion.bindTo(registry);
+        }
+    }
+
+    /**
+     * Prices of source message are arbitrated right away, batch can contain prices of other messages already
+     */
+    private void convertMessageToPrices(Object message, List<Price> prices) {
+        if (message instanceof SourceMessage) {
+            SourceMessage sourceMessage = (SourceMessage) message;
+            int from = prices.size();
+            convertMessageToPrices(sourceMessage.message, prices);
+            priceArbiter.arbitrate(sourceMessage.source, prices, from);
+        } else if (message instanceof ByteBuffer) {
+            convertTicksToPrices((ByteBuffer) message, prices);
+        } else {
+            convertMessageToPrices((String) message, prices);
+        }
+    }
 
+    /**
+     * Parses message and adds its prices to given list
+     *
+     * Parsing and commission are done line by line, their latencies are summed up and recorded once per message
+     * @param message
+     * @param prices
+     */
+    private void convertMessageToPrices(String message, List<Price> prices) {
+        try {
+            long parseNanos = 0;
+            long commissionNanos = 0;
+            long start = System.nanoTime();
+            PriceFeedParser parser = new PriceFeedParser(message, newLine);
+            // Read once, so all prices of message get the same margins, even if they are being reloaded
+            CommissionTable commission = priceService.getCommissionTable();
+            while (parser.next()) {
+                long parsed = System.nanoTime();
+                parseNanos += parsed - start;
+                // Unsupported instrument names would be filtered out by price service anyway,
+                // they are skipped here as there is no scale to apply commission with
+                InstrumentName instrumentName = parser.getInstrumentName();
+                if (instrumentName == null && instrumentProperties.isRegisterOnFirstSight()) {
+                    instrumentName = registerInstrument(parser);
+                }
+                if (instrumentName != null) {
+                    prices.add(convertMessageToPrice(parser, instrumentName, commission));
+                } else {
+                    feedMetrics.count(FeedMetrics.Outcome.RECEIVED, null);
+                    feedMetrics.count(FeedMetrics.Outcome.REJECTED, null);
+                }
+                start = System.nanoTime();
+                commissionNanos += start - parsed;
+            }
+            parseNanos += System.nanoTime() - start;
+            feedMetrics.recordLatency(FeedMetrics.Stage.PARSE, parseNanos);
+            feedMetrics.recordLatency(FeedMetrics.Stage.COMMISSION, commissionNanos);
+        } catch (Exception e) {
+            // Lines of incorrect message are not known, so whole message counts as one rejected price
+            feedMetrics.count(FeedMetrics.Outcome.RECEIVED, null);
+            feedMetrics.count(FeedMetrics.Outcome.REJECTED, null);
+            throw new RuntimeException("Message convertion failed due to incorrect message Format");
+        }
+    }
+
+    /**
+     * Decodes binary message and adds its prices to given list, the same way as text message
+     * @param message
+     * @param prices
+     */
+    private void convertTicksToPrices(ByteBuffer message, List<Price> prices) {
+        try {
+            long parseNanos = 0;
+            long commissionNanos = 0;
+            long start = System.nanoTime();
+            PriceTickDecoder decoder = new PriceTickDecoder(message);
+            CommissionTable commission = priceService.getCommissionTable();
+            // Ticks of message often have the same timestamp, so it is formatted once for them
+            long timestampMillis = 0;
+            String timestamp = null;
+            while (decoder.next()) {
+                long parsed = System.nanoTime();
+                parseNanos += parsed - start;
+                InstrumentName instrumentName = decoder.getInstrumentName();
+                if (instrumentName != null) {
+                    if (timestamp == null || decoder.getTimestampMillis() != timestampMillis) {
+                        timestampMillis = decoder.getTimestampMillis();
+                        timestamp = FeedTimestamp.format(timestampMillis);
+                    }
+                    prices.add(convertTickToPrice(decoder, instrumentName, timestamp, commission));
+                } else {
+                    feedMetrics.count(FeedMetrics.Outcome.RECEIVED, null);
+                    feedMetrics.count(FeedMetrics.Outcome.REJECTED, null);
+                }
+                start = System.nanoTime();
+                commissionNanos += start - parsed;
+            }
+            parseNanos += System.nanoTime() - start;
+            feedMetrics.recordLatency(FeedMetrics.Stage.PARSE, parseNanos);
+            feedMetrics.recordLatency(FeedMetrics.Stage.COMMISSION, commissionNanos);
+        } catch (Exception e) {
+            feedMetrics.count(FeedMetrics.Outcome.RECEIVED, null);
+            feedMetrics.count(FeedMetrics.Outcome.REJECTED, null);
+            throw new RuntimeException("Message convertion failed due to incorrect message Format");
+        }
+    }
+
+    /**
+     * Registers instrument seen first time in price feed, with scale of its first price
+     * @param parser
+     * @return instrument name, null if it can not be registered
+     */
+    private InstrumentName registerInstrument(PriceFeedParser parser) {
+        String label = parser.getInstrumentLabel();
+        try {
+            InstrumentName instrumentName = InstrumentName.register(label,
+                    Math.max(parser.getBidScale(), parser.getAskScale()));
+            log.info("Registered instrument {} with scale {}, first seen in price feed",
+                    instrumentName.label, instrumentName.scale);
+            return instrumentName;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.warn("Instrument {} can not be registered: {}", label, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Builds Price object out of line parser is positioned on
+     * @param parser
+     * @param instrumentName
+     * @param commission
+     * @return
+     */
+    private Price convertMessageToPrice(PriceFeedParser parser, InstrumentName instrumentName, CommissionTable commission) {
         Price price = new Price();
 
-        price.setId(Integer.valueOf(fields[0]));
+        price.setId(parser.getId());
+        price.setInstrumentName(instrumentName);
+
+        price.setBid(commission.calculatePriceBid(instrumentName, parser.getBidMantissa(), parser.getBidScale()));
+        price.setAsk(commission.calculatePriceAsk(instrumentName, parser.getAskMantissa(), parser.getAskScale()));
+
+        price.setTimestamp(parser.getTimestamp());
+        price.setTimestampMillis(timestampMillis(parser));
 
-        Optional<InstrumentName> opt = InstrumentName.valueOfLabel(fields[1]);
-        opt.ifPresent(instrument -> price.setInstrumentName(instrument));
+        return price;
+    }
 
-        price.setBid(priceService.calculatePriceBid(new BigDecimal(fields[2])));
-        price.setAsk(priceService.calculatePriceAsk(new BigDecimal(fields[3])));
+    /**
+     * @param parser
+     * @return epoch millis of timestamp, receive time if it can not be parsed and staleness is not monitored
+     * @throws PriceFeedFormatException if timestamp can not be parsed and staleness is monitored
+     */
+    private long timestampMillis(PriceFeedParser parser) {
+        try {
+            return parser.getTimestampMillis();
+        } catch (PriceFeedFormatException e) {
+            if (stalenessMonitor.isEnabled()) {
+                throw e;
+            }
+            return System.currentTimeMillis();
+        }
+    }
 
-        price.setTimestamp(fields[4]);
+    /**
+     * Builds Price object out of tick decoder is positioned on
+     * @param decoder
+     * @param instrumentName
+     * @param timestamp timestamp of tick, formatted as in text feed
+     * @param commission
+     * @return
+     */
+    private Price convertTickToPrice(PriceTickDecoder decoder, InstrumentName instrumentName, String timestamp,
+                                     CommissionTable commission) {
+        Price price = new Price();
+
+        price.setId(decoder.getId());
+        price.setInstrumentName(instrumentName);
+
+        price.setBid(commission.calculatePriceBid(instrumentName, decoder.getBidMantissa(), decoder.getBidScale()));
+        price.setAsk(commission.calculatePriceAsk(instrumentName, decoder.getAskMantissa(), decoder.getAskScale()));
+
+        price.setTimestamp(timestamp);
+        price.setTimestampMillis(decoder.getTimestampMillis());
 
         return price;
     }
+
+    private static final class SourceMessage {
+
+        final FeedSource source;
+
+        // String or ByteBuffer
+        final Object message;
+
+        SourceMessage(FeedSource source, Object message) {
+            this.source = source;
+            this.message = message;
+        }
+    }
 }
@@ -0,0 +1,318 @@
+package com.domain.pricehandler.service.messaging;
+
+import com.domain.pricehandler.exceptions.PriceFeedFormatException;
+import com.domain.pricehandler.model.InstrumentName;
+
+/**
+ * Single pass tokenizer of price feed message, in format (one price per line):
+ * id, instrument name, bid, ask, timestamp
+ *
+ * Message is read in place - no lines, fields or numbers are extracted as Strings, no arrays or Optionals
+ * are created. Parser is positioned on one line at a time, values of the current line are available through getters.
+ * Validation follows previous split based implementation:
+ * - whitespace around the line and around commas is ignored, fields after the fifth one are ignored
+ * - id has to be an int, bid and ask have to be decimals (exponent is allowed)
+ * - unsupported instrument name is not an error, instrument name is null in such case
+ * - empty lines are an error, unless they are at the end of the message
+ *
+ * Parser is not thread safe, new one should be created for every message
+ */
+public class PriceFeedParser {
+
+    private static final long MAX_MANTISSA_BEFORE_DIGIT = Long.MAX_VALUE / 10;
+
+    // mantissa can not have more than 19 digits anyway, so this only guards scale from overflowing
+    private static final int MAX_EXPONENT = 100;
+
+    private final CharSequence message;
+    private final String lineSeparator;
+    private int position;
+
+    private int id;
+    private InstrumentName instrumentName;
+    private int labelStart;
+    private int labelEnd;
+    private long bidMantissa;
+    private int bidScale;
+    private long askMantissa;
+    private int askScale;
+    private int timestampStart;
+    private int timestampEnd;
+
+    // scale of the last parsed decimal, kept in field so parseDecimal can return mantissa without allocating
+    private int parsedScale;
+
+    public PriceFeedParser(CharSequence message, String lineSeparator) {
+        if (message.length() == 0) {
+            throw new PriceFeedFormatException("Empty price feed message");
+        }
+        this.message = message;
+        this.lineSeparator = lineSeparator;
+        this.position = 0;
+    }
+
+    /**
+     * Moves parser to the next line of message and parses it
+     * @return false if there are no more lines
+     * @throws PriceFeedFormatException if line is not in correct format
+     */
+    public boolean next() {
+        int length = message.length();
+        if (position >= length || onlySeparatorsFrom(position)) {
+            position = length;
+            return false;
+        }
+
+        int lineEnd = indexOfSeparator(position);
+        int start = skipWhitespace(position, lineEnd);
+        int end = trimWhitespace(start, lineEnd);
+        position = lineEnd == length ? length : lineEnd + lineSeparator.length();
+
+        int fieldEnd = indexOfComma(start, end);
+        id = parseInt(start, trimWhitespace(start, fieldEnd));
+
+        start = nextField(fieldEnd, end);
+        fieldEnd = indexOfComma(start, end);
+        labelStart = start;
+        labelEnd = trimWhitespace(start, fieldEnd);
+        instrumentName = InstrumentName.valueOfLabel(message, labelStart, labelEnd);
+
+        start = nextField(fieldEnd, end);
+        fieldEnd = indexOfComma(start, end);
+        bidMantissa = parseDecimal(start, trimWhitespace(start, fieldEnd));
+        bidScale = parsedScale;
+
+        start = nextField(fieldEnd, end);
+        fieldEnd = indexOfComma(start, end);
+        askMantissa = parseDecimal(start, trimWhitespace(start, fieldEnd));
+        askScale = parsedScale;
+
+        start = nextField(fieldEnd, end);
+        fieldEnd = indexOfComma(start, end);
+        timestampStart = start;
+        timestampEnd = trimWhitespace(start, fieldEnd);
+        if (timestampStart == timestampEnd && fieldEnd == end) {
+            throw new PriceFeedFormatException("Missing timestamp");
+        }
+        return true;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public InstrumentName getInstrumentName() {
+        return instrumentName;
+    }
+
+    /**
+     * Creates String, so it is meant only for unsupported instruments (when getInstrumentName() is null)
+     * @return instrument name as in message, eg. "EUR/USD"
+     */
+    public String getInstrumentLabel() {
+        return message.subSequence(labelStart, labelEnd).toString();
+    }
+
+    /**
+     * Bid is bidMantissa * 10^-bidScale
+     */
+    public long getBidMantissa() {
+        return bidMantissa;
+    }
+
+    public int getBidScale() {
+        return bidScale;
+    }
+
+    /**
+     * Ask is askMantissa * 10^-askScale
+     */
+    public long getAskMantissa() {
+        return askMantissa;
+    }
+
+    public int getAskScale() {
+        return askScale;
+    }
+
+    /**
+     * The only value of the line which needs to be extracted, as Price keeps timestamp as String
+     */
+    public String getTimestamp() {
+        return message.subSequence(timestampStart, timestampEnd).toString();
+    }
+
+    /**
+     * @return timestamp of the line as epoch millis
+     * @throws PriceFeedFormatException if timestamp is not in format dd-MM-yyyy HH:mm:ss:SSS
+     */
+    public long getTimestampMillis() {
+        return FeedTimestamp.parseEpochMillis(message, timestampStart, timestampEnd);
+    }
+
+    private boolean onlySeparatorsFrom(int index) {
+        int length = message.length();
+        while (index < length) {
+            if (!separatorAt(index)) {
+                return false;
+            }
+            index += lineSeparator.length();
+        }
+        return true;
+    }
+
+    private boolean separatorAt(int index) {
+        int separatorLength = lineSeparator.length();
+        if (index + separatorLength > message.length()) {
+            return false;
+        }
+        for (int i = 0; i < separatorLength; i++) {
+            if (message.charAt(index + i) != lineSeparator.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOfSeparator(int from) {
+        int length = message.length();
+        char first = lineSeparator.charAt(0);
+        for (int i = from; i < length; i++) {
+            if (message.charAt(i) == first && separatorAt(i)) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private int indexOfComma(int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (message.charAt(i) == ',') {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @param comma index of comma ending previous field
+     * @param end end of the line
+     * @return start of the field after comma
+     */
+    private int nextField(int comma, int end) {
+        if (comma >= end) {
+            throw new PriceFeedFormatException("Missing field");
+        }
+        return skipWhitespace(comma + 1, end);
+    }
+
+    private int skipWhitespace(int from, int end) {
+        while (from < end && message.charAt(from) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private int trimWhitespace(int start, int end) {
+        while (end > start && message.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private int parseInt(int start, int end) {
+        if (start == end) {
+            throw new PriceFeedFormatException("Missing integer");
+        }
+        boolean negative = false;
+        char sign = message.charAt(start);
+        if (sign == '-' || sign == '+') {
+            negative = sign == '-';
+            start++;
+            if (start == end) {
+                throw new PriceFeedFormatException("Incorrect integer");
+            }
+        }
+        // accumulated as negative number, so Integer.MIN_VALUE can be parsed as well
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = message.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || value < Integer.MIN_VALUE / 10) {
+                throw new PriceFeedFormatException("Incorrect integer");
+            }
+            value *= 10;
+            if (value < Integer.MIN_VALUE + digit) {
+                throw new PriceFeedFormatException("Incorrect integer");
+            }
+            value -= digit;
+        }
+        if (!negative) {
+            if (value == Integer.MIN_VALUE) {
+                throw new PriceFeedFormatException("Incorrect integer");
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    /**
+     * Parses decimal in form [+-]digits[.digits][(e|E)[+-]digits]
+     * @return mantissa, scale is stored in parsedScale (it is never negative)
+     */
+    private long parseDecimal(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (message.charAt(i) == '-' || message.charAt(i) == '+')) {
+            negative = message.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            char c = message.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = appendDigit(mantissa, c - '0');
+                digits++;
+                if (fraction) {
+                    scale++;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            throw new PriceFeedFormatException("Incorrect decimal");
+        }
+        if (i < end) {
+            char c = message.charAt(i);
+            if (c != 'e' && c != 'E') {
+                throw new PriceFeedFormatException("Incorrect decimal");
+            }
+            int exponent = parseInt(i + 1, end);
+            if (exponent < -MAX_EXPONENT || exponent > MAX_EXPONENT) {
+                throw new PriceFeedFormatException("Decimal out of range");
+            }
+            scale -= exponent;
+        }
+        for (; scale < 0; scale++) {
+            mantissa = appendDigit(mantissa, 0);
+        }
+        parsedScale = scale;
+        return negative ? -mantissa : mantissa;
+    }
+
+    private static long appendDigit(long mantissa, int digit) {
+        if (mantissa > MAX_MANTISSA_BEFORE_DIGIT) {
+            throw new PriceFeedFormatException("Decimal out of range");
+        }
+        long value = mantissa * 10 + digit;
+        if (value < 0) {
+            throw new PriceFeedFormatException("Decimal out of range");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,112 @@
+package com.domain.pricehandler.service.messaging;
+
+import com.domain.pricehandler.exceptions.PriceFeedFormatException;
+import com.domain.pricehandler.model.InstrumentName;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight decoder of binary price feed messages - message is a sequence of fixed size ticks,
+ * values are read in place from the buffer, so no objects are created per tick.
+ *
+ * Tick layout (offset, size), in byte order of the buffer (big endian by default):
+ * 0   4   id
+ * 4   2   instrument id (see InstrumentName.id(), publisher has to use ids of this service)
+ * 6   1   bid scale
+ * 7   1   ask scale
+ * 8   8   bid mantissa, bid = mantissa * 10^-scale
+ * 16  8   ask mantissa
+ * 24  8   timestamp, epoch millis (UTC)
+ *
+ * Scales are sent, as in text feed, so prices do not need to be rounded by publisher.
+ * Unsupported instrument id is not an error, instrument name is null in such case (as in PriceFeedParser).
+ */
+public final class PriceTickDecoder {
+
+    public static final int TICK_SIZE = 32;
+
+    static final int ID = 0;
+    static final int INSTRUMENT_ID = 4;
+    static final int BID_SCALE = 6;
+    static final int ASK_SCALE = 7;
+    static final int BID = 8;
+    static final int ASK = 16;
+    static final int TIMESTAMP_MILLIS = 24;
+
+    private static final int MAX_SCALE = 18;
+
+    private final ByteBuffer buffer;
+    private final int end;
+    private int next;
+    private int offset = -1;
+
+    /**
+     * @param message ticks from position to limit of buffer, position is not changed
+     * @throws PriceFeedFormatException if message is empty or is not made of whole ticks
+     */
+    public PriceTickDecoder(ByteBuffer message) {
+        if (message.remaining() == 0 || message.remaining() % TICK_SIZE != 0) {
+            throw new PriceFeedFormatException("Binary price feed message has to be made of ticks of "
+                    + TICK_SIZE + " bytes, it has " + message.remaining() + " bytes");
+        }
+        this.buffer = message;
+        this.next = message.position();
+        this.end = message.limit();
+    }
+
+    /**
+     * Moves decoder to the next tick of message
+     * @return false if there are no more ticks
+     * @throws PriceFeedFormatException if scale of tick is not valid
+     */
+    public boolean next() {
+        if (next >= end) {
+            return false;
+        }
+        offset = next;
+        next += TICK_SIZE;
+        if (!isValidScale(getBidScale()) || !isValidScale(getAskScale())) {
+            throw new PriceFeedFormatException("Scale of tick has to be between 0 and " + MAX_SCALE);
+        }
+        return true;
+    }
+
+    private static boolean isValidScale(int scale) {
+        return scale >= 0 && scale <= MAX_SCALE;
+    }
+
+    public int getId() {
+        return buffer.getInt(offset + ID);
+    }
+
+    public int getInstrumentId() {
+        return buffer.getShort(offset + INSTRUMENT_ID) & 0xFFFF;
+    }
+
+    /**
+     * @return instrument name, null if instrument id is not supported
+     */
+    public InstrumentName getInstrumentName() {
+        return InstrumentName.byId(getInstrumentId());
+    }
+
+    public long getBidMantissa() {
+        return buffer.getLong(offset + BID);
+    }
+
+    public int getBidScale() {
+        return buffer.get(offset + BID_SCALE);
+    }
+
+    public long getAskMantissa() {
+        return buffer.getLong(offset + ASK);
+    }
+
+    public int getAskScale() {
+        return buffer.get(offset + ASK_SCALE);
+    }
+
+    public long getTimestampMillis() {
+        return buffer.getLong(offset + TIMESTAMP_MILLIS);
+    }
+}
@@ -0,0 +1,35 @@
+package com.domain.pricehandler.service.messaging;
+
+import com.domain.pricehandler.model.InstrumentName;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encoder of binary price feed ticks (layout is described in PriceTickDecoder), for publishers and tests
+ */
+public final class PriceTickEncoder {
+
+    private PriceTickEncoder() {
+    }
+
+    /**
+     * Puts tick at position of buffer, and moves position after it
+     * @throws BufferOverflowException if there is not enough space for tick
+     */
+    public static void encode(ByteBuffer buffer, int id, InstrumentName instrumentName,
+                              long bidMantissa, int bidScale, long askMantissa, int askScale, long timestampMillis) {
+        if (buffer.remaining() < PriceTickDecoder.TICK_SIZE) {
+            throw new BufferOverflowException();
+        }
+        int offset = buffer.position();
+        buffer.putInt(offset + PriceTickDecoder.ID, id);
+        buffer.putShort(offset + PriceTickDecoder.INSTRUMENT_ID, (short) instrumentName.id());
+        buffer.put(offset + PriceTickDecoder.BID_SCALE, (byte) bidScale);
+        buffer.put(offset + PriceTickDecoder.ASK_SCALE, (byte) askScale);
+        buffer.putLong(offset + PriceTickDecoder.BID, bidMantissa);
+        buffer.putLong(offset + PriceTickDecoder.ASK, askMantissa);
+        buffer.putLong(offset + PriceTickDecoder.TIMESTAMP_MILLIS, timestampMillis);
+        buffer.position(offset + PriceTickDecoder.TICK_SIZE);
+    }
+}
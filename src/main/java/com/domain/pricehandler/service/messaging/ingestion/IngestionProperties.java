@@ -0,0 +1,32 @@
+package com.domain.pricehandler.service.messaging.ingestion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Price feed ingestion configuration, eg:
+ * feed.ingestion.async=true
+ * feed.ingestion.waitStrategy=PARK
+ */
+@Component
+@ConfigurationProperties(prefix = "feed.ingestion")
+@Data
+public class IngestionProperties {
+
+    // false - messages are parsed and applied on the caller thread, true - on dedicated consumer thread
+    boolean async = false;
+
+    // Number of messages ring buffer can hold, rounded up to power of two
+    int capacity = 1024;
+
+    // Maximum number of messages applied to price service as one batch
+    int maxBatchSize = 64;
+
+    WaitStrategy waitStrategy = WaitStrategy.PARK;
+
+    // Used by PARK wait strategy
+    long parkNanos = 50_000;
+
+    OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+}
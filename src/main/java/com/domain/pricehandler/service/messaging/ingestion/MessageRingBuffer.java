@@ -0,0 +1,86 @@
+package com.domain.pricehandler.service.messaging.ingestion;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bounded single-producer single-consumer ring buffer
+ *
+ * Slots are allocated once, offering and draining messages creates no objects. Producer and consumer only
+ * publish their own sequence (with lazySet, which is enough for single writer), so they never contend on a lock.
+ * Capacity is rounded up to power of two, so slot index is a mask of sequence.
+ *
+ * @param <T> message type
+ */
+public class MessageRingBuffer<T> {
+
+    private final Object[] slots;
+
+    private final int mask;
+
+    // Next sequence to be written, written by producer only
+    private final AtomicLong producerSequence = new AtomicLong();
+
+    // Next sequence to be read, written by consumer only
+    private final AtomicLong consumerSequence = new AtomicLong();
+
+    // Producer's cached view of consumer sequence, so it is read only when buffer seems to be full
+    private long consumerSequenceCache;
+
+    public MessageRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Incorrect ring buffer capacity " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        slots = new Object[Math.max(size, 1)];
+        mask = slots.length - 1;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public int size() {
+        return (int) (producerSequence.get() - consumerSequence.get());
+    }
+
+    /**
+     * Adds message, can be called by single producer thread only
+     * @param message
+     * @return false if buffer is full
+     */
+    public boolean offer(T message) {
+        long sequence = producerSequence.get();
+        if (sequence - consumerSequenceCache >= slots.length) {
+            consumerSequenceCache = consumerSequence.get();
+            if (sequence - consumerSequenceCache >= slots.length) {
+                return false;
+            }
+        }
+        slots[(int) sequence & mask] = message;
+        producerSequence.lazySet(sequence + 1);
+        return true;
+    }
+
+    /**
+     * Passes available messages to handler, can be called by single consumer thread only
+     * @param handler
+     * @param limit maximum number of messages to pass
+     * @return number of messages passed
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<T> handler, int limit) {
+        long sequence = consumerSequence.get();
+        int available = (int) Math.min(producerSequence.get() - sequence, limit);
+        for (int i = 0; i < available; i++) {
+            int index = (int) (sequence + i) & mask;
+            T message = (T) slots[index];
+            slots[index] = null;
+            handler.accept(message);
+        }
+        if (available > 0) {
+            consumerSequence.lazySet(sequence + available);
+        }
+        return available;
+    }
+}
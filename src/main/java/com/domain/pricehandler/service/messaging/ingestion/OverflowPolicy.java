@@ -0,0 +1,13 @@
+package com.domain.pricehandler.service.messaging.ingestion;
+
+/**
+ * What happens to message when ring buffer is full
+ */
+public enum OverflowPolicy {
+    // Caller waits (with wait strategy) until consumer frees a slot, this backpressures message source
+    BLOCK,
+    // Message is dropped and counted, newer messages will bring newer prices anyway
+    DROP,
+    // Message is rejected with exception to the caller
+    FAIL
+}
@@ -0,0 +1,222 @@
+package com.domain.pricehandler.service.messaging.ingestion;
+
+import com.domain.pricehandler.model.Price;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous ingestion of price feed messages
+ *
+ * Caller thread only puts raw message into ring buffer. Dedicated consumer thread takes all available messages
+ * (up to max batch size), parses them into one batch and applies the batch at once - prices of the same
+ * instrument are conflated by price service, so under load fewer, larger batches are applied.
+ *
+ * Messages have to be submitted by one thread at a time (ring buffer is single-producer). Prices which are
+ * ready already (eg. best bid/offer prices of failover, see PriceArbiter) can be submitted by any thread,
+ * they are queued aside, and applied in the next batch.
+ *
+ * Saturation of consumer thread is exported as metrics of executors (see FeedExecutors), with name tag
+ * price-feed-ingestion: executor.queued (backlog), executor.queue.remaining, executor.active (1 unless consumer
+ * thread is idle), executor.completed (batches).
+ * @param <M> type of messages, eg. String of text feed
+ */
+@Slf4j
+public class PriceFeedIngestion<M> implements MeterBinder {
+
+    public static final String THREAD_NAME = "price-feed-ingestion";
+
+    private final MessageRingBuffer<M> ringBuffer;
+
+    private final IngestionProperties properties;
+
+    // Parses message and adds its prices to batch, throws exception if message is incorrect
+    private final BiConsumer<M, List<Price>> parser;
+
+    // Applies batch of prices
+    private final Consumer<List<Price>> applier;
+
+    // Prices submitted by other threads than the feed one, rarely used, so the queue can allocate
+    private final Queue<List<Price>> readyPrices = new ConcurrentLinkedQueue<>();
+
+    private final Thread consumerThread;
+
+    private volatile boolean running;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    // Written by consumer thread only
+    private volatile boolean active;
+
+    private List<Price> batch;
+
+    public PriceFeedIngestion(IngestionProperties properties,
+                              BiConsumer<M, List<Price>> parser,
+                              Consumer<List<Price>> applier) {
+        this.properties = properties;
+        this.ringBuffer = new MessageRingBuffer<>(properties.getCapacity());
+        this.parser = parser;
+        this.applier = applier;
+        this.consumerThread = new Thread(this::consume, THREAD_NAME);
+        this.consumerThread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        consumerThread.start();
+        log.info("Price feed ingestion started: capacity {}, wait strategy {}, overflow policy {}",
+                ringBuffer.capacity(), properties.getWaitStrategy(), properties.getOverflowPolicy());
+    }
+
+    /**
+     * Stops consumer thread, after messages already submitted are applied
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        consumerThread.join();
+        log.info("Price feed ingestion stopped");
+    }
+
+    /**
+     * Submits message to be parsed and applied by consumer thread
+     * @param message
+     * @throws IllegalStateException if ring buffer is full and overflow policy is FAIL, or ingestion is stopped
+     */
+    public void submit(M message) {
+        if (!running) {
+            throw new IllegalStateException("Price feed ingestion is not running");
+        }
+        if (ringBuffer.offer(message)) {
+            return;
+        }
+        switch (properties.getOverflowPolicy()) {
+            case BLOCK:
+                while (!ringBuffer.offer(message)) {
+                    if (!running) {
+                        throw new IllegalStateException("Price feed ingestion is not running");
+                    }
+                    properties.getWaitStrategy().idle(properties.getParkNanos());
+                }
+                break;
+            case DROP:
+                dropped.increment();
+                break;
+            default:
+                rejected.increment();
+                throw new IllegalStateException("Price feed ingestion buffer is full");
+        }
+    }
+
+    /**
+     * Submits prices to be applied by consumer thread, can be called by any thread
+     * @param prices
+     * @throws IllegalStateException if ingestion is stopped
+     */
+    public void submitPrices(List<Price> prices) {
+        if (!running) {
+            throw new IllegalStateException("Price feed ingestion is not running");
+        }
+        readyPrices.add(prices);
+    }
+
+    // Number of messages waiting in ring buffer
+    public int getBacklog() {
+        return ringBuffer.size();
+    }
+
+    public int getCapacity() {
+        return ringBuffer.capacity();
+    }
+
+    // Messages dropped because ring buffer was full
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    // Messages rejected because ring buffer was full
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    // Messages which could not be parsed or applied
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("executor.queued", this, PriceFeedIngestion::getBacklog)
+                .tag("name", THREAD_NAME)
+                .description("Messages waiting in ring buffer")
+                .register(registry);
+        Gauge.builder("executor.queue.remaining", this, ingestion -> ingestion.getCapacity() - ingestion.getBacklog())
+                .tag("name", THREAD_NAME)
+                .description("Messages ring buffer can take before it is full")
+                .register(registry);
+        Gauge.builder("executor.active", this, ingestion -> ingestion.active ? 1 : 0)
+                .tag("name", THREAD_NAME)
+                .description("1 while consumer thread is busy, 0 while it is idle")
+                .register(registry);
+        FunctionCounter.builder("executor.completed", batches, LongAdder::sum)
+                .tag("name", THREAD_NAME)
+                .description("Batches processed by consumer thread")
+                .register(registry);
+    }
+
+    private void consume() {
+        WaitStrategy waitStrategy = properties.getWaitStrategy();
+        long parkNanos = properties.getParkNanos();
+        int maxBatchSize = properties.getMaxBatchSize();
+        batch = new ArrayList<>();
+        while (running || ringBuffer.size() > 0 || !readyPrices.isEmpty()) {
+            int drained = ringBuffer.drain(this::parse, maxBatchSize);
+            for (List<Price> prices = readyPrices.poll(); prices != null; prices = readyPrices.poll()) {
+                batch.addAll(prices);
+                drained++;
+            }
+            if (drained == 0) {
+                active = false;
+                waitStrategy.idle(parkNanos);
+                continue;
+            }
+            active = true;
+            batches.increment();
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                applier.accept(batch);
+            } catch (RuntimeException e) {
+                failed.add(drained);
+                log.error("Price feed batch could not be applied", e);
+            }
+            // new list, as applier may keep reference to the batch
+            batch = new ArrayList<>();
+        }
+    }
+
+    // Incorrect message is skipped, other messages of the batch are still applied
+    private void parse(M message) {
+        int size = batch.size();
+        try {
+            parser.accept(message, batch);
+        } catch (RuntimeException e) {
+            batch.subList(size, batch.size()).clear();
+            failed.increment();
+            log.error("Price feed message skipped, incorrect message format");
+        }
+    }
+}
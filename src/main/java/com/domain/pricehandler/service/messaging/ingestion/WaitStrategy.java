@@ -0,0 +1,30 @@
+package com.domain.pricehandler.service.messaging.ingestion;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How thread waits for ring buffer to have messages (consumer) or free slots (blocked producer).
+ * Trades latency for CPU usage - busy spin has the lowest latency, but keeps one core fully busy.
+ */
+public enum WaitStrategy {
+    BUSY_SPIN {
+        @Override
+        void idle(long parkNanos) {
+            Thread.onSpinWait();
+        }
+    },
+    YIELD {
+        @Override
+        void idle(long parkNanos) {
+            Thread.yield();
+        }
+    },
+    PARK {
+        @Override
+        void idle(long parkNanos) {
+            LockSupport.parkNanos(parkNanos);
+        }
+    };
+
+    abstract void idle(long parkNanos);
+}
@@ -0,0 +1,130 @@
+package com.domain.pricehandler.service.messaging.network;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.service.messaging.PriceTickDecoder;
+import com.domain.pricehandler.service.messaging.PriceTickEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.netty.Connection;
+import reactor.netty.tcp.TcpClient;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Publishes binary price feed to network feed receiver on this machine - for tests, and to try receiver
+ * without real price feed, eg. (with feed.network.enabled=true):
+ * java -cp price-handler.jar -Dloader.main=com.domain.pricehandler.service.messaging.network.LoopbackFeedPublisher
+ *      org.springframework.boot.loader.PropertiesLauncher 7070 1000
+ */
+@Slf4j
+public class LoopbackFeedPublisher implements AutoCloseable {
+
+    private final Connection connection;
+
+    private LoopbackFeedPublisher(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * @param port TCP port of receiver on localhost
+     * @return connected publisher
+     */
+    public static LoopbackFeedPublisher connect(int port) {
+        return new LoopbackFeedPublisher(TcpClient.create().host("localhost").port(port).connectNow());
+    }
+
+    /**
+     * Sends messages as frames, returns once they are written
+     * @param messages binary messages (ticks, see PriceTickDecoder)
+     */
+    public void publish(ByteBuffer... messages) {
+        publish(Flux.fromArray(messages));
+    }
+
+    /**
+     * Sends messages as frames, as fast as receiver reads them (TCP flow control), returns once they are written
+     * @param messages binary messages (ticks, see PriceTickDecoder)
+     */
+    public void publish(Flux<ByteBuffer> messages) {
+        connection.outbound().send(messages.map(LoopbackFeedPublisher::frame)).then().block();
+    }
+
+    @Override
+    public void close() {
+        connection.disposeNow();
+    }
+
+    /**
+     * Sends every message as one datagram to multicast group (or any other address)
+     * @param group
+     * @param port
+     * @param messages binary messages (ticks, see PriceTickDecoder)
+     * @throws IOException
+     */
+    public static void publishDatagrams(String group, int port, ByteBuffer... messages) throws IOException {
+        InetAddress address = InetAddress.getByName(group);
+        try (DatagramSocket socket = new DatagramSocket()) {
+            for (ByteBuffer message : messages) {
+                ByteBuf frame = frame(message);
+                try {
+                    byte[] bytes = new byte[frame.readableBytes()];
+                    frame.readBytes(bytes);
+                    socket.send(new DatagramPacket(bytes, bytes.length, address, port));
+                } finally {
+                    frame.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param message
+     * @return length field followed by message, message position is not changed
+     */
+    public static ByteBuf frame(ByteBuffer message) {
+        ByteBuf frame = Unpooled.buffer(NetworkFeedReceiver.LENGTH_FIELD_SIZE + message.remaining());
+        frame.writeInt(message.remaining());
+        frame.writeBytes(message.duplicate());
+        return frame;
+    }
+
+    /**
+     * Message of EUR/USD, EUR/JPY and GBP/USD prices (in turn), with ids from firstId and timestamp of now
+     * @param firstId
+     * @param ticks
+     * @return message
+     */
+    public static ByteBuffer sampleMessage(int firstId, int ticks) {
+        InstrumentName[] instrumentNames = {InstrumentName.EUR_USD, InstrumentName.EUR_JPY, InstrumentName.GBP_USD};
+        long[][] mantissas = {{11000, 12000}, {11960, 11990}, {12500, 12560}};
+        int[] scales = {4, 2, 4};
+        long now = System.currentTimeMillis();
+        ByteBuffer message = ByteBuffer.allocate(ticks * PriceTickDecoder.TICK_SIZE);
+        for (int i = 0; i < ticks; i++) {
+            int instrument = i % instrumentNames.length;
+            PriceTickEncoder.encode(message, firstId + i, instrumentNames[instrument],
+                    mantissas[instrument][0], scales[instrument], mantissas[instrument][1], scales[instrument], now);
+        }
+        message.flip();
+        return message;
+    }
+
+    /**
+     * @param args TCP port of receiver, number of messages (3 prices each)
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        int messages = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long start = System.nanoTime();
+        try (LoopbackFeedPublisher publisher = connect(port)) {
+            publisher.publish(Flux.range(0, messages).map(i -> sampleMessage(1 + i * 3, 3)));
+        }
+        log.info("Published {} messages in {} ms", messages, (System.nanoTime() - start) / 1_000_000);
+    }
+}
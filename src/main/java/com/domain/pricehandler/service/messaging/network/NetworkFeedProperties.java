@@ -0,0 +1,41 @@
+package com.domain.pricehandler.service.messaging.network;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Network price feed configuration, eg:
+ * feed.network.enabled=true
+ * feed.network.port=7070
+ * feed.network.multicastGroup=239.1.1.1
+ * feed.network.multicastPort=7071
+ */
+@Component
+@ConfigurationProperties(prefix = "feed.network")
+@Data
+public class NetworkFeedProperties {
+
+    // Price feed is received over network only if enabled
+    boolean enabled = false;
+
+    String host = "0.0.0.0";
+
+    // TCP port, 0 - any free port
+    int port = 7070;
+
+    // Frames longer than this close the connection
+    int maxFrameLength = 64 * 1024;
+
+    // Frames received but not passed to listener yet, per connection - when reached, connection is not read
+    // until listener catches up, so publisher is slowed down by TCP flow control
+    int maxPendingFrames = 256;
+
+    // UDP multicast is received only if group is set
+    String multicastGroup;
+
+    int multicastPort = 7071;
+
+    // Network interface name of multicast group, eg. "eth0", default interface if not set
+    String multicastInterface;
+}
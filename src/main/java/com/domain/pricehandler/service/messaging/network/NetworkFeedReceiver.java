@@ -0,0 +1,271 @@
+package com.domain.pricehandler.service.messaging.network;
+
+import com.domain.pricehandler.service.execution.FeedExecutors;
+import com.domain.pricehandler.service.messaging.PriceFeedListener;
+import com.domain.pricehandler.service.messaging.PriceTickDecoder;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.socket.InternetProtocolFamily;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.Connection;
+import reactor.netty.DisposableServer;
+import reactor.netty.NettyInbound;
+import reactor.netty.resources.LoopResources;
+import reactor.netty.tcp.TcpServer;
+import reactor.netty.udp.UdpServer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.nio.ByteBuffer;
+import java.util.Enumeration;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Receives price feed over network, on Reactor Netty (the same stack WebFlux runs on):
+ * - TCP: stream of frames, frame is 4 byte length (big endian) followed by binary message (ticks, see PriceTickDecoder)
+ * - UDP multicast (optional): every datagram is one frame
+ *
+ * Frames are passed to listener straight from pooled buffers of Netty, without copying, and released after that.
+ * Listener is called by one thread (price-feed-network) for all connections, so it can use async ingestion.
+ * Every connection has bounded queue of frames waiting for that thread - when it is full, connection is not read
+ * anymore, so TCP flow control slows down publisher which is faster than price service (UDP has no such
+ * backpressure, datagrams are dropped by OS instead, and show up as gaps).
+ *
+ * Ids of a source (TCP connection, multicast group) are expected to grow by one, gaps are logged and counted.
+ */
+@Component
+@Slf4j
+public class NetworkFeedReceiver implements MeterBinder {
+
+    public static final int LENGTH_FIELD_SIZE = 4;
+
+    public static final String THREAD_NAME = "price-feed-network";
+
+    @Autowired
+    private NetworkFeedProperties properties;
+
+    @Autowired
+    @Qualifier("priceFeedReceiver")
+    private PriceFeedListener priceFeedListener;
+
+    private final NetworkFeedStatistics tcpStatistics = new NetworkFeedStatistics();
+
+    private final NetworkFeedStatistics udpStatistics = new NetworkFeedStatistics();
+
+    private ThreadPoolExecutor executor;
+
+    private Scheduler scheduler;
+
+    private DisposableServer tcpServer;
+
+    private LoopResources udpLoop;
+
+    private Connection udpServer;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        executor = FeedExecutors.newExecutor(THREAD_NAME, 1);
+        scheduler = Schedulers.fromExecutorService(executor, THREAD_NAME);
+
+        tcpServer = TcpServer.create()
+                .host(properties.getHost())
+                .port(properties.getPort())
+                .doOnConnection(connection -> connection.addHandlerLast(new LengthFieldBasedFrameDecoder(
+                        properties.getMaxFrameLength(), 0, LENGTH_FIELD_SIZE, 0, LENGTH_FIELD_SIZE)))
+                .handle((inbound, outbound) -> {
+                    String source = "tcp connection " + describe(inbound);
+                    // Not returned to Reactor Netty, as it cancels handler when connection is closed - frames which were
+                    // received, but not applied yet, would be lost. Frames complete once all of them are applied.
+                    receive(inbound.receive().retain(), source, tcpStatistics).subscribe();
+                    return outbound.neverComplete();
+                })
+                .bindNow();
+        log.info("Receiving price feed on TCP {}:{}", properties.getHost(), tcpServer.port());
+
+        if (properties.getMulticastGroup() != null) {
+            InetAddress group = InetAddress.getByName(properties.getMulticastGroup());
+            NetworkInterface networkInterface = multicastInterface();
+            udpLoop = LoopResources.create("price-feed-udp", 1, true);
+            udpServer = UdpServer.create()
+                    .host(properties.getHost())
+                    .port(properties.getMulticastPort())
+                    .runOn(udpLoop, InternetProtocolFamily.IPv4)
+                    .handle((inbound, outbound) -> {
+                        String source = "multicast group " + group.getHostAddress();
+                        receive(inbound.receive().retain().map(NetworkFeedReceiver::unframe), source, udpStatistics)
+                                .subscribe();
+                        // Datagrams sent directly to the port are still received if joining the group fails
+                        return inbound.join(group, networkInterface)
+                                .doOnError(e -> log.error("Joining {} failed: {}", source, e.toString()))
+                                .onErrorResume(e -> Mono.empty())
+                                .then(outbound.neverComplete());
+                    })
+                    .bindNow();
+            log.info("Receiving price feed on UDP multicast {}:{} ({})", group.getHostAddress(), getUdpPort(),
+                    networkInterface.getName());
+        }
+    }
+
+    /**
+     * Reactor Netty can not pick interface when bound to wildcard address, so the first one up,
+     * supporting multicast, is used if none is configured
+     */
+    private NetworkInterface multicastInterface() throws IOException {
+        if (properties.getMulticastInterface() != null) {
+            NetworkInterface networkInterface = NetworkInterface.getByName(properties.getMulticastInterface());
+            if (networkInterface == null) {
+                throw new IllegalArgumentException("Unknown network interface " + properties.getMulticastInterface());
+            }
+            return networkInterface;
+        }
+        Enumeration<NetworkInterface> networkInterfaces = NetworkInterface.getNetworkInterfaces();
+        while (networkInterfaces.hasMoreElements()) {
+            NetworkInterface networkInterface = networkInterfaces.nextElement();
+            if (networkInterface.isUp() && networkInterface.supportsMulticast()) {
+                return networkInterface;
+            }
+        }
+        throw new IllegalStateException("No network interface supports multicast, configure feed.network.multicastInterface");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (tcpServer != null) {
+            tcpServer.disposeNow();
+        }
+        if (udpServer != null) {
+            udpServer.disposeNow();
+            udpLoop.dispose();
+        }
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+    }
+
+    /**
+     * @return TCP port feed is received on, -1 if network feed is disabled
+     */
+    public int getTcpPort() {
+        return tcpServer != null ? tcpServer.port() : -1;
+    }
+
+    /**
+     * @return UDP port multicast feed is received on, -1 if it is disabled
+     */
+    public int getUdpPort() {
+        return udpServer != null ? ((InetSocketAddress) udpServer.address()).getPort() : -1;
+    }
+
+    public NetworkFeedStatistics getTcpStatistics() {
+        return tcpStatistics;
+    }
+
+    public NetworkFeedStatistics getUdpStatistics() {
+        return udpStatistics;
+    }
+
+    private static String describe(NettyInbound inbound) {
+        String[] remote = {"unknown"};
+        inbound.withConnection(connection -> remote[0] = String.valueOf(connection.channel().remoteAddress()));
+        return remote[0];
+    }
+
+    /**
+     * Frames are retained by caller, and released here once listener is done with them (or they are discarded)
+     */
+    private Mono<Void> receive(Flux<ByteBuf> frames, String source, NetworkFeedStatistics statistics) {
+        SequenceTracker tracker = new SequenceTracker(statistics);
+        log.info("Price feed source connected: {}", source);
+        return frames
+                .publishOn(scheduler, properties.getMaxPendingFrames())
+                .doOnNext(frame -> {
+                    try {
+                        onFrame(frame.nioBuffer(), source, tracker, statistics);
+                    } finally {
+                        frame.release();
+                    }
+                })
+                .doOnDiscard(ByteBuf.class, ReferenceCountUtil::safeRelease)
+                .doOnError(e -> log.error("Price feed source {} failed: {}", source, e.toString()))
+                .onErrorResume(e -> Mono.empty())
+                .doFinally(signal -> log.info("Price feed source disconnected: {} ({})", source, signal))
+                .then();
+    }
+
+    private void onFrame(ByteBuffer message, String source, SequenceTracker tracker, NetworkFeedStatistics statistics) {
+        statistics.recordFrame();
+        try {
+            // Ids are checked before message is applied, so gaps are detected even if message is rejected
+            PriceTickDecoder decoder = new PriceTickDecoder(message);
+            while (decoder.next()) {
+                long missing = tracker.track(decoder.getId());
+                if (missing > 0) {
+                    log.warn("Price feed gap from {}: {} ids missing before id {}", source, missing, decoder.getId());
+                }
+            }
+            priceFeedListener.onMessage(message);
+        } catch (RuntimeException e) {
+            statistics.recordRejectedFrame();
+            log.error("Price feed frame from {} skipped: {}", source, e.getMessage());
+        }
+    }
+
+    // Datagram has length field as TCP frame, so both are published the same way
+    private static ByteBuf unframe(ByteBuf datagram) {
+        if (datagram.readableBytes() < LENGTH_FIELD_SIZE
+                || datagram.getInt(datagram.readerIndex()) != datagram.readableBytes() - LENGTH_FIELD_SIZE) {
+            // Empty frame is rejected by decoder, as any other incorrect message
+            return datagram.skipBytes(datagram.readableBytes());
+        }
+        return datagram.skipBytes(LENGTH_FIELD_SIZE);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (executor != null) {
+            FeedExecutors.bindExecutor(registry, executor, THREAD_NAME);
+        }
+        bind(registry, "tcp", tcpStatistics);
+        bind(registry, "udp", udpStatistics);
+    }
+
+    private static void bind(MeterRegistry registry, String transport, NetworkFeedStatistics statistics) {
+        counter(registry, "price.feed.network.frames", transport, statistics, NetworkFeedStatistics::getFrames,
+                "Number of frames received over network");
+        counter(registry, "price.feed.network.frames.rejected", transport, statistics,
+                NetworkFeedStatistics::getRejectedFrames, "Number of frames which could not be applied");
+        counter(registry, "price.feed.network.gaps", transport, statistics, NetworkFeedStatistics::getGaps,
+                "Number of gaps in ids of price feed");
+        counter(registry, "price.feed.network.ids.missing", transport, statistics, NetworkFeedStatistics::getMissingIds,
+                "Number of ids skipped by gaps");
+        counter(registry, "price.feed.network.ids.reordered", transport, statistics,
+                NetworkFeedStatistics::getReorderedIds, "Number of ids not newer than the previous one");
+    }
+
+    private static void counter(MeterRegistry registry, String name, String transport, NetworkFeedStatistics statistics,
+                                ToDoubleFunction<NetworkFeedStatistics> count, String description) {
+        FunctionCounter.builder(name, statistics, count)
+                .tag("transport", transport)
+                .description(description)
+                .register(registry);
+    }
+}
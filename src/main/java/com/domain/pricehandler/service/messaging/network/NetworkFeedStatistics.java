@@ -0,0 +1,57 @@
+package com.domain.pricehandler.service.messaging.network;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of network price feed, per transport:
+ * - frames: frames (messages) received
+ * - rejectedFrames: frames which were not correct messages, or could not be applied
+ * - gaps: number of times ids did not follow each other
+ * - missingIds: number of ids skipped by gaps
+ * - reorderedIds: ids which were not newer than the previous one of the same source (duplicates, reordering)
+ */
+public class NetworkFeedStatistics {
+
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder rejectedFrames = new LongAdder();
+    private final LongAdder gaps = new LongAdder();
+    private final LongAdder missingIds = new LongAdder();
+    private final LongAdder reorderedIds = new LongAdder();
+
+    void recordFrame() {
+        frames.increment();
+    }
+
+    void recordRejectedFrame() {
+        rejectedFrames.increment();
+    }
+
+    void recordGap(long missing) {
+        gaps.increment();
+        missingIds.add(missing);
+    }
+
+    void recordReordered() {
+        reorderedIds.increment();
+    }
+
+    public long getFrames() {
+        return frames.sum();
+    }
+
+    public long getRejectedFrames() {
+        return rejectedFrames.sum();
+    }
+
+    public long getGaps() {
+        return gaps.sum();
+    }
+
+    public long getMissingIds() {
+        return missingIds.sum();
+    }
+
+    public long getReorderedIds() {
+        return reorderedIds.sum();
+    }
+}
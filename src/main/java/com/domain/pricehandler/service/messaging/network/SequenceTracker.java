@@ -0,0 +1,40 @@
+package com.domain.pricehandler.service.messaging.network;
+
+/**
+ * Detects gaps in ids of prices received from one source, ids of a source are expected to grow by one.
+ * Not thread safe, every connection has its own tracker.
+ */
+class SequenceTracker {
+
+    private final NetworkFeedStatistics statistics;
+
+    private boolean started;
+
+    private long lastId;
+
+    SequenceTracker(NetworkFeedStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * @param id
+     * @return number of ids missing before this one, 0 if there is no gap (or id is not newer than the last one)
+     */
+    long track(int id) {
+        if (!started) {
+            started = true;
+            lastId = id;
+            return 0;
+        }
+        long missing = (long) id - lastId - 1;
+        if (missing < 0) {
+            statistics.recordReordered();
+            return 0;
+        }
+        lastId = id;
+        if (missing > 0) {
+            statistics.recordGap(missing);
+        }
+        return missing;
+    }
+}
@@ -0,0 +1,94 @@
+package com.domain.pricehandler.service.metrics;
+
+import com.domain.pricehandler.model.InstrumentName;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies of price feed stages and counts of prices per instrument, exported as Micrometer meters:
+ * - price.feed.stage.latency (tags stage, percentile) - percentiles of the last completed window
+ * - price.feed.stage.latency.max (tag stage) - max of the last completed window
+ * - price.feed.stage.count (tag stage) - number of recorded latencies, updated at the end of every window
+ * - price.feed.prices (tags instrument, outcome) - number of prices
+ *
+ * Recording methods are called for every message / price, so they never allocate nor block.
+ */
+public interface FeedMetrics {
+
+    enum Stage {
+        // Parsing of message lines
+        PARSE("parse"),
+        // Applying commission to parsed values and building prices
+        COMMISSION("commission"),
+        // Time price waits for stream subscriber in conflation slot
+        CONFLATION("conflation"),
+        // Storing batch of prices in repository
+        REPOSITORY_UPDATE("repository-update"),
+        // Deriving and storing crosses depending on stored prices (not recorded if no cross is configured)
+        CROSS_RATES("cross-rates"),
+        // Sending stored prices to followers (not recorded unless node is replication leader)
+        REPLICATION("replication"),
+        // Appending stored prices to journal (not recorded if journal is disabled)
+        JOURNAL("journal"),
+        // Compacting full journal segment into snapshot, on compaction thread (not recorded if journal is disabled)
+        JOURNAL_COMPACTION("journal-compaction"),
+        // Recording stored prices in tick history and OHLC bars (not recorded if history is disabled)
+        HISTORY("history"),
+        // Publishing stored prices to conflation slots of stream subscribers (they are sent on fan-out threads)
+        FAN_OUT("fan-out");
+
+        public final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * received = rejected + stale + applied (once prices of received messages are processed)
+     */
+    enum Outcome {
+        RECEIVED("received"),
+        // Prices of unsupported instruments and incorrect messages
+        REJECTED("rejected"),
+        // Prices older than stored ones or than other price of the same batch
+        STALE("stale"),
+        APPLIED("applied");
+
+        public final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Instrument tag of prices which can not be assigned to supported instrument
+     */
+    String UNKNOWN_INSTRUMENT = "unknown";
+
+    /**
+     * @param stage
+     * @param nanos duration of stage, values over 1 minute are recorded as 1 minute
+     */
+    void recordLatency(Stage stage, long nanos);
+
+    /**
+     * @param outcome
+     * @param instrumentName null if price can not be assigned to supported instrument
+     */
+    void count(Outcome outcome, InstrumentName instrumentName);
+
+    /**
+     * @param outcome
+     * @param instrumentName null for prices which could not be assigned to supported instrument
+     * @return number of prices since start
+     */
+    long getCount(Outcome outcome, InstrumentName instrumentName);
+
+    /**
+     * Ends current window of given stage, so it includes the latest recorded latencies
+     * @param stage
+     * @return copy of histogram of all latencies recorded since start
+     */
+    Histogram getLatencyHistogram(Stage stage);
+}
@@ -0,0 +1,142 @@
+package com.domain.pricehandler.service.metrics;
+
+import com.domain.pricehandler.model.InstrumentName;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.HdrHistogram.Histogram;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics are kept here (not in Micrometer meters), and registered to meter registries as functions reading them.
+ * Spring Boot binds every MeterBinder bean to its registries, so there is no dependency on registry,
+ * and metrics work the same way in tests without actuator.
+ */
+@Component
+public class FeedMetricsImpl implements FeedMetrics, MeterBinder {
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    // Percentiles are exported over windows of this length
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final StageLatency[] latencies = new StageLatency[STAGES.length];
+
+    // Counters indexed by instrument id, then by outcome ordinal - created when instrument is counted first time
+    private final AtomicReferenceArray<LongAdder[]> counts = new AtomicReferenceArray<>(InstrumentName.CAPACITY);
+
+    private final LongAdder[] unknownInstrumentCounts = newCounts();
+
+    // Registries meters are bound to, so counters of instruments registered later can be bound as well
+    private final List<MeterRegistry> registries = new CopyOnWriteArrayList<>();
+
+    public FeedMetricsImpl() {
+        for (Stage stage : STAGES) {
+            latencies[stage.ordinal()] = new StageLatency(WINDOW_NANOS);
+        }
+    }
+
+    @Override
+    public void recordLatency(Stage stage, long nanos) {
+        latencies[stage.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void count(Outcome outcome, InstrumentName instrumentName) {
+        counts(instrumentName)[outcome.ordinal()].increment();
+    }
+
+    @Override
+    public long getCount(Outcome outcome, InstrumentName instrumentName) {
+        return counts(instrumentName)[outcome.ordinal()].sum();
+    }
+
+    @Override
+    public Histogram getLatencyHistogram(Stage stage) {
+        return latencies[stage.ordinal()].getTotal();
+    }
+
+    private LongAdder[] counts(InstrumentName instrumentName) {
+        if (instrumentName == null) {
+            return unknownInstrumentCounts;
+        }
+        LongAdder[] instrumentCounts = counts.get(instrumentName.id());
+        return instrumentCounts != null ? instrumentCounts : createCounts(instrumentName);
+    }
+
+    // Once per instrument
+    private synchronized LongAdder[] createCounts(InstrumentName instrumentName) {
+        LongAdder[] instrumentCounts = counts.get(instrumentName.id());
+        if (instrumentCounts == null) {
+            instrumentCounts = newCounts();
+            for (MeterRegistry registry : registries) {
+                registerCounts(registry, instrumentName.name(), instrumentCounts);
+            }
+            counts.set(instrumentName.id(), instrumentCounts);
+        }
+        return instrumentCounts;
+    }
+
+    private static LongAdder[] newCounts() {
+        LongAdder[] instrumentCounts = new LongAdder[OUTCOMES.length];
+        for (int i = 0; i < instrumentCounts.length; i++) {
+            instrumentCounts[i] = new LongAdder();
+        }
+        return instrumentCounts;
+    }
+
+    @Override
+    public synchronized void bindTo(MeterRegistry registry) {
+        for (Stage stage : STAGES) {
+            StageLatency latency = latencies[stage.ordinal()];
+            for (double percentile : PERCENTILES) {
+                TimeGauge.builder("price.feed.stage.latency", latency, TimeUnit.NANOSECONDS,
+                        l -> l.getValueAtPercentile(percentile))
+                        .tag("stage", stage.tag)
+                        .tag("percentile", String.valueOf(percentile / 100))
+                        .description("Latency of price feed stage in the last completed window")
+                        .register(registry);
+            }
+            TimeGauge.builder("price.feed.stage.latency.max", latency, TimeUnit.NANOSECONDS, StageLatency::getMax)
+                    .tag("stage", stage.tag)
+                    .description("Max latency of price feed stage in the last completed window")
+                    .register(registry);
+            FunctionCounter.builder("price.feed.stage.count", latency, StageLatency::getTotalCount)
+                    .tag("stage", stage.tag)
+                    .description("Number of recorded latencies of price feed stage")
+                    .register(registry);
+        }
+        registries.add(registry);
+        registerCounts(registry, UNKNOWN_INSTRUMENT, unknownInstrumentCounts);
+        for (int id = 0; id < InstrumentName.count(); id++) {
+            LongAdder[] instrumentCounts = counts.get(id);
+            if (instrumentCounts != null) {
+                registerCounts(registry, InstrumentName.byId(id).name(), instrumentCounts);
+            } else {
+                // Registered with all registries, including this one
+                createCounts(InstrumentName.byId(id));
+            }
+        }
+    }
+
+    private static void registerCounts(MeterRegistry registry, String instrument, LongAdder[] instrumentCounts) {
+        for (Outcome outcome : OUTCOMES) {
+            FunctionCounter.builder("price.feed.prices", instrumentCounts[outcome.ordinal()], LongAdder::sum)
+                    .tag("instrument", instrument)
+                    .tag("outcome", outcome.tag)
+                    .description("Number of prices received from price feed")
+                    .register(registry);
+        }
+    }
+}
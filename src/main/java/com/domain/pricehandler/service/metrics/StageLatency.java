@@ -0,0 +1,72 @@
+package com.domain.pricehandler.service.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies of one stage. Writers record into HdrHistogram Recorder (wait-free, no allocation),
+ * histograms are swapped only by readers, at most once per window - so all percentile gauges of one scrape
+ * are read from the same completed window.
+ */
+class StageLatency {
+
+    // Recording value over highest trackable one would throw, so values are capped instead
+    static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+
+    private final Histogram total = new Histogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+
+    private final long windowNanos;
+
+    private Histogram lastWindow;
+
+    private long windowStart;
+
+    StageLatency(long windowNanos) {
+        this.windowNanos = windowNanos;
+        lastWindow = recorder.getIntervalHistogram();
+        windowStart = System.nanoTime();
+    }
+
+    void record(long nanos) {
+        recorder.recordValue(Math.max(0, Math.min(nanos, HIGHEST_TRACKABLE_NANOS)));
+    }
+
+    synchronized double getValueAtPercentile(double percentile) {
+        return currentWindow().getValueAtPercentile(percentile);
+    }
+
+    synchronized double getMax() {
+        return currentWindow().getMaxValue();
+    }
+
+    synchronized double getTotalCount() {
+        currentWindow();
+        return total.getTotalCount();
+    }
+
+    synchronized Histogram getTotal() {
+        endWindow(System.nanoTime());
+        return total.copy();
+    }
+
+    private Histogram currentWindow() {
+        long now = System.nanoTime();
+        if (now - windowStart >= windowNanos) {
+            endWindow(now);
+        }
+        return lastWindow;
+    }
+
+    private void endWindow(long now) {
+        // Histogram of previous window is reused by recorder
+        lastWindow = recorder.getIntervalHistogram(lastWindow);
+        total.add(lastWindow);
+        windowStart = now;
+    }
+}
@@ -0,0 +1,177 @@
+package com.domain.pricehandler.service.replication;
+
+import com.domain.pricehandler.PriceHandlerApplication;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.PriceService;
+import com.domain.pricehandler.service.messaging.network.LoopbackFeedPublisher;
+import com.domain.pricehandler.service.messaging.network.NetworkFeedReceiver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.http.client.reactive.ReactorResourceFactory;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Leader and followers in one JVM, every node is application context of its own, listening on loopback
+ * on free ports - for tests, and to try replication without more machines, eg.:
+ * java -cp price-handler.jar -Dloader.main=com.domain.pricehandler.service.replication.LoopbackCluster
+ *      org.springframework.boot.loader.PropertiesLauncher 2 1000
+ *
+ * Price feed is sent to leader over network feed (see LoopbackFeedPublisher).
+ *
+ * Nodes share classes, so they share instrument registry (see InstrumentName) - instrument ids of leader and
+ * followers are always the same here, and mapping of them by snapshot is not exercised (see ReplicationFormat
+ * unit tests). Every node has event loops of its own, so closing the cluster does not dispose global ones
+ * other servers in the JVM use.
+ */
+@Slf4j
+public class LoopbackCluster implements AutoCloseable {
+
+    private final ConfigurableApplicationContext leader;
+
+    private final List<ConfigurableApplicationContext> followers = new CopyOnWriteArrayList<>();
+
+    private final String[] properties;
+
+    private LoopbackCluster(ConfigurableApplicationContext leader, String[] properties) {
+        this.leader = leader;
+        this.properties = properties;
+    }
+
+    /**
+     * @param followers number of followers to start
+     * @param properties properties of every node, eg. "cross-rates.instruments=USD_JPY"
+     * @return started cluster, followers may not be synced yet (see awaitSynced)
+     */
+    public static LoopbackCluster start(int followers, String... properties) {
+        ConfigurableApplicationContext leader = startNode(properties,
+                "replication.role=leader", "replication.host=localhost", "replication.port=0",
+                "feed.network.enabled=true", "feed.network.host=localhost", "feed.network.port=0");
+        LoopbackCluster cluster = new LoopbackCluster(leader, properties);
+        for (int i = 0; i < followers; i++) {
+            cluster.startFollower();
+        }
+        return cluster;
+    }
+
+    private static ConfigurableApplicationContext startNode(String[] properties, String... nodeProperties) {
+        List<String> all = new ArrayList<>(Arrays.asList(properties));
+        all.add("server.port=0");
+        all.add("spring.main.banner-mode=off");
+        all.addAll(Arrays.asList(nodeProperties));
+        return new SpringApplicationBuilder(PriceHandlerApplication.class)
+                .properties(all.toArray(new String[0]))
+                .initializers((GenericApplicationContext context) ->
+                        context.registerBean(ReactorResourceFactory.class, LoopbackCluster::nodeResources))
+                .run();
+    }
+
+    private static ReactorResourceFactory nodeResources() {
+        ReactorResourceFactory resourceFactory = new ReactorResourceFactory();
+        resourceFactory.setUseGlobalResources(false);
+        return resourceFactory;
+    }
+
+    /**
+     * Starts one more follower, it syncs from snapshot of leader
+     * @return application context of follower
+     */
+    public ConfigurableApplicationContext startFollower() {
+        ConfigurableApplicationContext follower = startNode(properties,
+                "replication.role=follower", "replication.leaderHost=localhost",
+                "replication.leaderPort=" + leader.getBean(PriceReplicator.class).getPort(),
+                "replication.reconnectDelay=100ms");
+        followers.add(follower);
+        return follower;
+    }
+
+    public ConfigurableApplicationContext getLeader() {
+        return leader;
+    }
+
+    public List<ConfigurableApplicationContext> getFollowers() {
+        return followers;
+    }
+
+    /**
+     * @return TCP port price feed is received on by leader
+     */
+    public int getFeedPort() {
+        return leader.getBean(NetworkFeedReceiver.class).getTcpPort();
+    }
+
+    /**
+     * Waits until every follower is synced, and connected to leader
+     * @param timeout
+     * @return false if timeout elapsed first
+     * @throws InterruptedException
+     */
+    public boolean awaitSynced(Duration timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        while (System.currentTimeMillis() < deadline) {
+            if (followers.stream().allMatch(follower -> follower.getBean(ReplicationFollower.class).isSynced())
+                    && leader.getBean(PriceReplicator.class).getFollowerCount() == followers.size()) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    /**
+     * Waits until every follower has the same prices as leader
+     * @param timeout
+     * @return false if timeout elapsed first
+     * @throws InterruptedException
+     */
+    public boolean awaitReplicated(Duration timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        while (System.currentTimeMillis() < deadline) {
+            Set<Price> prices = prices(leader);
+            if (followers.stream().allMatch(follower -> prices.equals(prices(follower)))) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    private static Set<Price> prices(ConfigurableApplicationContext node) {
+        return new HashSet<>(node.getBean(PriceService.class).getPrices().collectList().block());
+    }
+
+    @Override
+    public void close() {
+        for (ConfigurableApplicationContext follower : followers) {
+            follower.close();
+        }
+        leader.close();
+    }
+
+    /**
+     * @param args number of followers, number of messages (3 prices each) published to leader
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int followers = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int messages = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        try (LoopbackCluster cluster = start(followers)) {
+            cluster.awaitSynced(Duration.ofSeconds(10));
+            long start = System.nanoTime();
+            try (LoopbackFeedPublisher publisher = LoopbackFeedPublisher.connect(cluster.getFeedPort())) {
+                publisher.publish(Flux.range(0, messages).map(i -> LoopbackFeedPublisher.sampleMessage(1 + i * 3, 3)));
+            }
+            boolean replicated = cluster.awaitReplicated(Duration.ofSeconds(10));
+            log.info("Published {} messages, replicated to {} followers: {} in {} ms", messages, followers, replicated,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
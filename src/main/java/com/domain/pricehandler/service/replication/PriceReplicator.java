@@ -0,0 +1,31 @@
+package com.domain.pricehandler.service.replication;
+
+import com.domain.pricehandler.model.Price;
+
+/**
+ * Leader side of replication - sends stored prices to follower nodes, so they serve the same prices
+ * without receiving price feed
+ */
+public interface PriceReplicator {
+
+    /**
+     * @return false if node is not leader (prices passed to replicate are ignored)
+     */
+    public boolean isEnabled();
+
+    /**
+     * Sends stored prices to connected followers, without waiting for them
+     * @param prices prices indexed by instrument id, null entries are skipped (as in PriceRepository.updateAll)
+     */
+    public void replicate(Price[] prices);
+
+    /**
+     * @return TCP port followers connect to, -1 if node is not leader
+     */
+    public int getPort();
+
+    /**
+     * @return number of connected followers
+     */
+    public int getFollowerCount();
+}
@@ -0,0 +1,189 @@
+package com.domain.pricehandler.service.replication;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.repository.PriceRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Sinks;
+import reactor.netty.Connection;
+import reactor.netty.DisposableServer;
+import reactor.netty.NettyInbound;
+import reactor.netty.tcp.TcpServer;
+import reactor.util.concurrent.Queues;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Leader listens for followers on TCP, on Reactor Netty (as network feed). Follower gets snapshot of all prices
+ * once it connects, followed by delta of every batch of stored prices (see ReplicationFormat).
+ *
+ * Every batch is encoded once, and the same frame is queued for every follower, so feed thread never waits
+ * for network. Queue of follower is bounded - follower which does not keep up is disconnected rather than
+ * buffered for, it reconnects and resyncs from snapshot (see ReplicationFollower).
+ *
+ * Snapshot is queued under the same lock as deltas, so follower gets every price stored after snapshot.
+ * Price stored before it may come in delta again, follower ignores it as not newer.
+ */
+@Component
+@Slf4j
+public class PriceReplicatorImpl implements PriceReplicator, MeterBinder {
+
+    private final ReplicationProperties properties;
+
+    private final PriceRepository priceRepository;
+
+    private final boolean enabled;
+
+    private final List<Follower> followers = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong droppedFollowers = new AtomicLong();
+
+    private DisposableServer server;
+
+    @Autowired
+    public PriceReplicatorImpl(ReplicationProperties properties, PriceRepository priceRepository) {
+        this.properties = properties;
+        this.priceRepository = priceRepository;
+        this.enabled = properties.getRole() == ReplicationRole.LEADER;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        server = TcpServer.create()
+                .host(properties.getHost())
+                .port(properties.getPort())
+                .handle((inbound, outbound) -> {
+                    Follower follower = new Follower(describe(inbound), properties.getMaxPendingFrames());
+                    inbound.withConnection(connection -> follower.connection = connection);
+                    connect(follower);
+                    // Followers send nothing, handler is cancelled once connection is closed
+                    return outbound.send(follower.frames.asFlux().doOnDiscard(ByteBuf.class, ReferenceCountUtil::safeRelease))
+                            .then()
+                            .doFinally(signal -> disconnect(follower, signal.toString()));
+                })
+                .bindNow();
+        log.info("Replicating prices to followers on TCP {}:{}", properties.getHost(), server.port());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public int getPort() {
+        return server != null ? server.port() : -1;
+    }
+
+    @Override
+    public int getFollowerCount() {
+        return followers.size();
+    }
+
+    private synchronized void connect(Follower follower) {
+        List<Price> prices = priceRepository.get().orElse(Collections.emptyList());
+        follower.frames.tryEmitNext(ReplicationFormat.snapshot(InstrumentName.values(), prices));
+        followers.add(follower);
+        log.info("Follower connected: {}, snapshot of {} prices queued", follower.address, prices.size());
+    }
+
+    private void disconnect(Follower follower, String reason) {
+        if (followers.remove(follower)) {
+            log.info("Follower disconnected: {} ({})", follower.address, reason);
+        }
+    }
+
+    @Override
+    public synchronized void replicate(Price[] prices) {
+        if (followers.isEmpty()) {
+            return;
+        }
+        int count = 0;
+        for (Price price : prices) {
+            if (price != null) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        ByteBuf frame = ReplicationFormat.delta(prices, count);
+        try {
+            for (Follower follower : followers) {
+                ByteBuf duplicate = frame.retainedDuplicate();
+                Sinks.EmitResult result = follower.frames.tryEmitNext(duplicate);
+                if (result.isFailure()) {
+                    duplicate.release();
+                    drop(follower, result);
+                }
+            }
+        } finally {
+            frame.release();
+        }
+    }
+
+    private void drop(Follower follower, Sinks.EmitResult result) {
+        if (followers.remove(follower)) {
+            droppedFollowers.incrementAndGet();
+            log.warn("Follower {} dropped, it has to resync: {}", follower.address,
+                    result == Sinks.EmitResult.FAIL_OVERFLOW ? "too many frames pending" : result);
+            if (follower.connection != null) {
+                follower.connection.dispose();
+            }
+        }
+    }
+
+    private static String describe(NettyInbound inbound) {
+        String[] remote = {"unknown"};
+        inbound.withConnection(connection -> remote[0] = String.valueOf(connection.channel().remoteAddress()));
+        return remote[0];
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("price.replication.followers", followers, List::size)
+                .description("Number of connected followers")
+                .register(registry);
+        FunctionCounter.builder("price.replication.followers.dropped", droppedFollowers, AtomicLong::get)
+                .description("Number of followers disconnected for not keeping up")
+                .register(registry);
+    }
+
+    private static class Follower {
+
+        private final String address;
+
+        // Snapshot and deltas waiting to be sent, emitted under lock of replicator only
+        private final Sinks.Many<ByteBuf> frames;
+
+        private volatile Connection connection;
+
+        Follower(String address, int maxPendingFrames) {
+            this.address = address;
+            this.frames = Sinks.many().unicast().onBackpressureBuffer(Queues.<ByteBuf>get(maxPendingFrames).get());
+        }
+    }
+}
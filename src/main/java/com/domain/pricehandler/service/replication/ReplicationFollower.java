@@ -0,0 +1,195 @@
+package com.domain.pricehandler.service.replication;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.PriceService;
+import com.domain.pricehandler.service.execution.FeedExecutors;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.Connection;
+import reactor.netty.tcp.TcpClient;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Follower keeps connection to leader (see PriceReplicatorImpl), and applies prices it gets from it
+ * through price service, as if they came from price feed - the newest id wins, so prices of leader
+ * received more times, or older than stored ones, do no harm. Crosses are not derived by follower,
+ * leader replicates them as any other price.
+ *
+ * Every connection starts with snapshot, so follower which was disconnected, dropped by leader for not keeping up,
+ * or gets instrument it does not know, resyncs by connecting again. Frames are applied on one thread
+ * (price-replication), so they never block event loops.
+ */
+@Component
+@Slf4j
+public class ReplicationFollower implements MeterBinder {
+
+    public static final String THREAD_NAME = "price-replication";
+
+    @Autowired
+    private ReplicationProperties properties;
+
+    @Autowired
+    private PriceService priceService;
+
+    private final AtomicLong snapshots = new AtomicLong();
+
+    private final AtomicLong deltas = new AtomicLong();
+
+    private final AtomicLong resyncs = new AtomicLong();
+
+    // Local instruments and scales of leader, indexed by instrument ids of leader, set by snapshot
+    private final InstrumentName[] instrumentNames = new InstrumentName[InstrumentName.CAPACITY];
+
+    private final int[] scales = new int[InstrumentName.CAPACITY];
+
+    private ThreadPoolExecutor executor;
+
+    private Scheduler scheduler;
+
+    private Disposable connecting;
+
+    private volatile Connection connection;
+
+    private volatile boolean synced;
+
+    @PostConstruct
+    public void start() {
+        if (properties.getRole() != ReplicationRole.FOLLOWER) {
+            return;
+        }
+        executor = FeedExecutors.newExecutor(THREAD_NAME, 1);
+        scheduler = Schedulers.fromExecutorService(executor, THREAD_NAME);
+        String leader = properties.getLeaderHost() + ":" + properties.getLeaderPort();
+
+        TcpClient client = TcpClient.create()
+                .host(properties.getLeaderHost())
+                .port(properties.getLeaderPort())
+                .doOnConnected(connection -> connection.addHandlerLast(new LengthFieldBasedFrameDecoder(
+                        properties.getMaxFrameLength(), 0, ReplicationFormat.LENGTH_FIELD_SIZE, 0,
+                        ReplicationFormat.LENGTH_FIELD_SIZE)))
+                .handle((inbound, outbound) -> inbound.receive().retain()
+                        .publishOn(scheduler)
+                        .doOnNext(frame -> {
+                            try {
+                                onFrame(frame);
+                            } finally {
+                                frame.release();
+                            }
+                        })
+                        .doOnDiscard(ByteBuf.class, ReferenceCountUtil::safeRelease)
+                        .then());
+
+        // Connects again whenever connection fails or is closed, until follower is stopped
+        connecting = Mono.defer(() -> {
+                    synced = false;
+                    return client.connect();
+                })
+                .doOnNext(connection -> {
+                    this.connection = connection;
+                    log.info("Connected to leader {}", leader);
+                })
+                .flatMap(Connection::onDispose)
+                .doOnSuccess(closed -> log.warn("Disconnected from leader {}", leader))
+                .doOnError(e -> log.warn("Connection to leader {} failed: {}", leader, e.toString()))
+                .onErrorResume(e -> Mono.empty())
+                .then(Mono.delay(properties.getReconnectDelay()))
+                .repeat()
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (connecting != null) {
+            connecting.dispose();
+        }
+        if (connection != null) {
+            connection.dispose();
+        }
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+    }
+
+    /**
+     * @return true if snapshot of leader was applied, and follower is connected to leader since then
+     */
+    public boolean isSynced() {
+        return synced && connection != null && !connection.isDisposed();
+    }
+
+    public long getSnapshots() {
+        return snapshots.get();
+    }
+
+    public long getResyncs() {
+        return resyncs.get();
+    }
+
+    private void onFrame(ByteBuf frame) {
+        try {
+            byte type = frame.readByte();
+            if (type == ReplicationFormat.SNAPSHOT) {
+                ReplicationFormat.readInstruments(frame, instrumentNames, scales);
+                Price[] prices = ReplicationFormat.readPrices(frame, instrumentNames, scales);
+                int applied = priceService.applyReplicatedPrices(prices);
+                snapshots.incrementAndGet();
+                synced = true;
+                log.info("Snapshot of leader applied, {} prices newer than stored ones", applied);
+            } else if (type == ReplicationFormat.DELTA) {
+                // Deltas queued before resync are skipped, snapshot is on its way
+                if (synced) {
+                    priceService.applyReplicatedPrices(ReplicationFormat.readPrices(frame, instrumentNames, scales));
+                    deltas.incrementAndGet();
+                }
+            } else {
+                throw new IllegalStateException("Unexpected frame of type " + (char) type);
+            }
+        } catch (RuntimeException e) {
+            // Prices of the frame are lost, so follower starts over from snapshot
+            resyncs.incrementAndGet();
+            synced = false;
+            log.error("Replicated frame could not be applied, resyncing: {}", e.getMessage());
+            Connection current = connection;
+            if (current != null) {
+                current.dispose();
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (executor != null) {
+            FeedExecutors.bindExecutor(registry, executor, THREAD_NAME);
+        }
+        counter(registry, "price.replication.snapshots", ReplicationFollower::getSnapshots,
+                "Number of snapshots applied by follower");
+        counter(registry, "price.replication.deltas", follower -> follower.deltas.get(),
+                "Number of deltas applied by follower");
+        counter(registry, "price.replication.resyncs", ReplicationFollower::getResyncs,
+                "Number of frames follower could not apply, so it resynced");
+    }
+
+    private void counter(MeterRegistry registry, String name, ToDoubleFunction<ReplicationFollower> count,
+                         String description) {
+        FunctionCounter.builder(name, this, count)
+                .description(description)
+                .register(registry);
+    }
+}
@@ -0,0 +1,145 @@
+package com.domain.pricehandler.service.replication;
+
+import com.domain.pricehandler.model.FixedPoint;
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.messaging.FeedTimestamp;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Binary format of replication - frames of 4 byte length (big endian) followed by message, as in network feed.
+ *
+ * Snapshot: type 'S', number of instruments (2), instruments, number of prices (2), prices
+ * Delta:    type 'D', number of prices (2), prices
+ *
+ * Instrument layout: id (2), scale (1), label length (1), label (ASCII)
+ * Price layout (offset, size):
+ * 0   2   instrument id (of leader)
+ * 2   4   id
+ * 6   8   bid
+ * 14  8   ask
+ * 22  8   timestamp millis
+ *
+ * Ids of instruments depend on order of registration, so they can differ between nodes - snapshot maps them
+ * to labels, and deltas use them only. Timestamp is sent as millis, and formatted by follower (see FeedTimestamp).
+ */
+final class ReplicationFormat {
+
+    static final int LENGTH_FIELD_SIZE = 4;
+
+    static final byte SNAPSHOT = 'S';
+
+    static final byte DELTA = 'D';
+
+    static final int PRICE_SIZE = 30;
+
+    private ReplicationFormat() {
+    }
+
+    /**
+     * @param instrumentNames all registered instruments
+     * @param prices
+     * @return frame, including length field
+     */
+    static ByteBuf snapshot(InstrumentName[] instrumentNames, List<Price> prices) {
+        ByteBuf frame = Unpooled.buffer(LENGTH_FIELD_SIZE + 5 + instrumentNames.length * 12 + prices.size() * PRICE_SIZE);
+        frame.writeInt(0);
+        frame.writeByte(SNAPSHOT);
+        frame.writeShort(instrumentNames.length);
+        for (InstrumentName instrumentName : instrumentNames) {
+            frame.writeShort(instrumentName.id());
+            frame.writeByte(instrumentName.scale);
+            frame.writeByte(instrumentName.label.length());
+            frame.writeCharSequence(instrumentName.label, StandardCharsets.US_ASCII);
+        }
+        frame.writeShort(prices.size());
+        for (Price price : prices) {
+            writePrice(frame, price);
+        }
+        return frame.setInt(0, frame.writerIndex() - LENGTH_FIELD_SIZE);
+    }
+
+    /**
+     * @param prices prices indexed by instrument id, null entries are skipped
+     * @param count number of prices in array
+     * @return frame, including length field
+     */
+    static ByteBuf delta(Price[] prices, int count) {
+        ByteBuf frame = Unpooled.buffer(LENGTH_FIELD_SIZE + 3 + count * PRICE_SIZE);
+        frame.writeInt(0);
+        frame.writeByte(DELTA);
+        frame.writeShort(count);
+        for (Price price : prices) {
+            if (price != null) {
+                writePrice(frame, price);
+            }
+        }
+        return frame.setInt(0, frame.writerIndex() - LENGTH_FIELD_SIZE);
+    }
+
+    private static void writePrice(ByteBuf frame, Price price) {
+        frame.writeShort(price.getInstrumentName().id());
+        frame.writeInt(price.getId());
+        frame.writeLong(price.getBid());
+        frame.writeLong(price.getAsk());
+        frame.writeLong(price.getTimestampMillis());
+    }
+
+    /**
+     * Reads instruments of snapshot, instrument which is not supported is registered with scale of leader
+     * @param message snapshot without length field, read from type on
+     * @param instrumentNames filled with local instruments, indexed by ids of leader
+     * @param scales filled with scales of leader, indexed by ids of leader
+     * @throws IllegalArgumentException if instrument can not be registered
+     * @throws IllegalStateException if maximum number of instruments is reached
+     */
+    static void readInstruments(ByteBuf message, InstrumentName[] instrumentNames, int[] scales) {
+        int count = message.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            int id = message.readUnsignedShort();
+            int scale = message.readByte();
+            String label = message.readCharSequence(message.readUnsignedByte(), StandardCharsets.US_ASCII).toString();
+            instrumentNames[id] = InstrumentName.register(label, scale);
+            scales[id] = scale;
+        }
+    }
+
+    /**
+     * Reads prices, if instrument is supported with different scale, bid and ask are rescaled
+     * as commission would round them (as journal does)
+     * @param message snapshot or delta, read up to number of prices
+     * @param instrumentNames local instruments, indexed by ids of leader
+     * @param scales scales of leader, indexed by ids of leader
+     * @return prices indexed by local instrument id (the newest one, if instrument is there more times)
+     * @throws IllegalStateException if instrument is not known, ie. it was registered after snapshot
+     */
+    static Price[] readPrices(ByteBuf message, InstrumentName[] instrumentNames, int[] scales) {
+        int count = message.readUnsignedShort();
+        Price[] prices = new Price[InstrumentName.count()];
+        for (int i = 0; i < count; i++) {
+            int instrumentId = message.readUnsignedShort();
+            InstrumentName instrumentName = instrumentNames[instrumentId];
+            if (instrumentName == null) {
+                throw new IllegalStateException("Instrument id " + instrumentId + " is not in snapshot");
+            }
+            int scale = scales[instrumentId];
+            Price price = new Price();
+            price.setId(message.readInt());
+            price.setInstrumentName(instrumentName);
+            price.setBid(FixedPoint.rescale(message.readLong(), scale, instrumentName.scale, RoundingMode.FLOOR));
+            price.setAsk(FixedPoint.rescale(message.readLong(), scale, instrumentName.scale, RoundingMode.CEILING));
+            price.setTimestampMillis(message.readLong());
+            price.setTimestamp(FeedTimestamp.format(price.getTimestampMillis()));
+            Price other = prices[instrumentName.id()];
+            if (other == null || other.getId() < price.getId()) {
+                prices[instrumentName.id()] = price;
+            }
+        }
+        return prices;
+    }
+}
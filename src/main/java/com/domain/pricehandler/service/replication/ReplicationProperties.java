@@ -0,0 +1,43 @@
+package com.domain.pricehandler.service.replication;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Replication of prices between nodes, eg. leader (the node price feed is sent to):
+ * replication.role=leader
+ * replication.port=7080
+ * and followers:
+ * replication.role=follower
+ * replication.leaderHost=price-handler-1
+ * replication.leaderPort=7080
+ */
+@Component
+@ConfigurationProperties(prefix = "replication")
+@Data
+public class ReplicationProperties {
+
+    ReplicationRole role = ReplicationRole.NONE;
+
+    // Leader: address and TCP port followers connect to, 0 - any free port
+    String host = "0.0.0.0";
+
+    int port = 7080;
+
+    // Follower: leader to connect to
+    String leaderHost = "localhost";
+
+    int leaderPort = 7080;
+
+    // Follower: delay before connecting again, once connection to leader failed or was closed
+    Duration reconnectDelay = Duration.ofSeconds(1);
+
+    // Leader: frames waiting to be sent, per follower - when reached, follower is disconnected (and resyncs on reconnect)
+    int maxPendingFrames = 1024;
+
+    // Frames longer than this close the connection, snapshot of all instruments has to fit
+    int maxFrameLength = 1024 * 1024;
+}
@@ -0,0 +1,13 @@
+package com.domain.pricehandler.service.replication;
+
+/**
+ * Role of node in replication of prices (see ReplicationProperties)
+ */
+public enum ReplicationRole {
+    // Node is on its own, prices come from price feed only
+    NONE,
+    // Node receives price feed, and sends prices it stores to followers
+    LEADER,
+    // Node gets prices from leader (price feed received by follower is applied as well, the newest id wins)
+    FOLLOWER
+}
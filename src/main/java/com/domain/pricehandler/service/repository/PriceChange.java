@@ -0,0 +1,39 @@
+package com.domain.pricehandler.service.repository;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import lombok.Getter;
+
+/**
+ * Change of price stored in repository, as emitted by PriceRepository.watch
+ */
+@Getter
+public final class PriceChange {
+
+    public enum Type {
+        // Newer price was stored
+        UPDATED,
+        // Price was marked as stale, it is not returned by getters anymore
+        STALE,
+        // Price was removed (see PriceRepository.clear)
+        CLEARED
+    }
+
+    private final Type type;
+
+    private final InstrumentName instrumentName;
+
+    // Stored price, the stale one for STALE, the removed one for CLEARED
+    private final Price price;
+
+    PriceChange(Type type, InstrumentName instrumentName, Price price) {
+        this.type = type;
+        this.instrumentName = instrumentName;
+        this.price = price;
+    }
+
+    @Override
+    public String toString() {
+        return "PriceChange(" + type + ", " + instrumentName + ", " + (price != null ? price.getId() : null) + ")";
+    }
+}
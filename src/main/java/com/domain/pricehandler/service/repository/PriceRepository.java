@@ -2,39 +2,84 @@ package com.domain.pricehandler.service.repository;
 
 import com.domain.pricehandler.model.InstrumentName;
 import com.domain.pricehandler.model.Price;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Repository Interface in which we are storing the newest prices
+ *
+ * Implementations are expected to be safe for one feed thread writing while many event loop threads read.
+ * Reads are offered both as plain values (for hot paths, without allocation) and as Mono/Flux, and changes
+ * of prices can be watched instead of polled.
  */
 public interface PriceRepository {
 
     /**
      * Retrieves price for given instrument
-     * In case of more reactive approach needed, this could return Optional<Mono<Price>>
      * @param instrumentName
-     * @return
+     * @return price, empty if there is no price or it was marked as stale
      */
     public Optional<Price> getByInstrumentName(InstrumentName instrumentName);
 
     /**
      * Retrieves all provided prices
-     * In case of more reactive approach needed, this could return Optional<Flux<Price>>
-     * @return
+     * @return immutable snapshot of prices, it is not affected by updates made after it was returned.
+     * Prices marked as stale are not included.
      */
     public Optional<List<Price>> get();
 
     /**
-     * Updates price
+     * Reactive variant of getByInstrumentName, price is read when Mono is subscribed to
+     * @param instrumentName
+     * @return price, empty if there is no price or it was marked as stale
+     */
+    public Mono<Price> findByInstrumentName(InstrumentName instrumentName);
+
+    /**
+     * Reactive variant of get, prices are emitted straight from snapshot current at subscription, without copying
+     * @return prices which are not marked as stale
+     */
+    public Flux<Price> findAll();
+
+    /**
+     * Streams changes of stored prices, from subscription on (current prices are not emitted, see findAll).
+     * Changes are emitted on the thread which made them, so subscriber doing more than bookkeeping has to
+     * publish them on its own scheduler. Subscriber without demand misses changes, it never stalls writers.
+     * @param instrumentNames instruments to watch, empty set means all instruments (including ones registered later)
+     * @return changes (instrument written by more threads at once may have them out of order, ids tell the order)
+     */
+    public Flux<PriceChange> watch(Set<InstrumentName> instrumentNames);
+
+    /**
+     * Updates price if it is newer (has higher id) than the one currently stored for its instrument.
+     * Check and update are done as one atomic step.
      * @param price
+     * @return true if price was stored, false if stored price was the same or newer
      */
-    public void update(Price price);
+    public boolean update(Price price);
+
+    /**
+     * Updates many prices at once, each one only if it is newer than the one currently stored (as in update)
+     * @param prices prices indexed by instrument id, null entries are skipped.
+     *               Entries which were not stored are set to null, so only stored prices are left in array.
+     * @return number of stored prices
+     */
+    public int updateAll(Price[] prices);
+
+    /**
+     * Marks price as stale, so it is not returned by getters until newer price of its instrument is stored.
+     * Stale price is still used to check if updates are newer.
+     * @param price
+     * @return false if price is not stored (anymore), eg. it was already replaced by newer one
+     */
+    public boolean markStale(Price price);
 
     /**
      * Clears prices (used in testing)
      */
     public void clear();
 }
-
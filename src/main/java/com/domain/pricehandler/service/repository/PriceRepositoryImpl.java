@@ -4,45 +4,242 @@ import com.domain.pricehandler.model.InstrumentName;
 import com.domain.pricehandler.model.Price;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * This repository does not need to be persisted, hence @Component annotation was used
+ *
+ * Prices are written by price feed thread and read by WebFlux event loop threads, so no locks are used:
+ * - every instrument has its own slot (indexed by instrument id), which is updated with compare-and-set
+ * - list of all prices is kept as immutable snapshot, built lazily by the first read after prices changed -
+ * writers only increment version, so they neither scan slots nor allocate, and reads copy only once per change
+ * - price is stale when it is the same object as the one kept in stale slot of its instrument, so storing
+ * newer price clears the flag without any extra write
+ * - changes are emitted to multicast sinks (one per watched instrument, one for all instruments) only after
+ * version is incremented, and only while somebody watches - otherwise writers do not even create change objects
  */
 @Component
 @Slf4j
 public class PriceRepositoryImpl implements PriceRepository {
 
-    // Have chosen hashmap for quick updates
-    private Map<InstrumentName, Price> prices;
+    private static final Optional<List<Price>> EMPTY_SNAPSHOT = Optional.of(Collections.emptyList());
+
+    private final AtomicReferenceArray<Price> prices;
+
+    private final AtomicReferenceArray<Price> stalePrices;
+
+    // Incremented after every change of slots
+    private final AtomicLong version = new AtomicLong();
+
+    // The newest snapshot built, it is current if built at current version
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(0, EMPTY_SNAPSHOT));
+
+    // Sinks of instruments watched at least once, indexed by instrument id
+    private final AtomicReferenceArray<Sinks.Many<PriceChange>> instrumentWatchers;
+
+    private final Sinks.Many<PriceChange> allWatchers = Sinks.many().multicast().directBestEffort();
+
+    // Set by the first watch, writers skip notifications until then
+    private volatile boolean watched;
 
     public PriceRepositoryImpl() {
-        prices = new HashMap<>();
+        prices = new AtomicReferenceArray<>(InstrumentName.CAPACITY);
+        stalePrices = new AtomicReferenceArray<>(InstrumentName.CAPACITY);
+        instrumentWatchers = new AtomicReferenceArray<>(InstrumentName.CAPACITY);
     }
 
     public Optional<Price> getByInstrumentName(InstrumentName instrumentName) {
-        Price price = prices.get(instrumentName);
-        Optional<Price> opt = Optional.ofNullable(price);
-        return opt;
+        return Optional.ofNullable(getFresh(instrumentName.id()));
+    }
+
+    private Price getFresh(int index) {
+        Price price = prices.get(index);
+        return price != null && price == stalePrices.get(index) ? null : price;
     }
 
+    /**
+     * Slots are read only after version, so snapshot built at version contains all changes made before it
+     * was incremented. Snapshot is published unless newer one was published in the meantime.
+     */
     public Optional<List<Price>> get() {
-        List<Price> pricesAsList = prices.values().stream()
-                .collect(Collectors.toList());
-        return Optional.ofNullable(pricesAsList);
+        long current = version.get();
+        Snapshot published = snapshot.get();
+        if (published.version == current) {
+            return published.prices;
+        }
+        Snapshot built = new Snapshot(current, buildSnapshot());
+        while (published.version < current && !snapshot.compareAndSet(published, built)) {
+            published = snapshot.get();
+        }
+        return built.prices;
+    }
+
+    public Mono<Price> findByInstrumentName(InstrumentName instrumentName) {
+        return Mono.fromSupplier(() -> getFresh(instrumentName.id()));
+    }
+
+    // Snapshot is immutable, so it is iterated as it is
+    public Flux<Price> findAll() {
+        return Flux.defer(() -> Flux.fromIterable(get().get()));
+    }
+
+    public Flux<PriceChange> watch(Set<InstrumentName> instrumentNames) {
+        List<InstrumentName> watchedNames = new ArrayList<>(instrumentNames);
+        return Flux.defer(() -> {
+            watched = true;
+            if (watchedNames.isEmpty()) {
+                return allWatchers.asFlux();
+            }
+            List<Flux<PriceChange>> changes = new ArrayList<>(watchedNames.size());
+            for (InstrumentName instrumentName : watchedNames) {
+                changes.add(instrumentWatcher(instrumentName.id()).asFlux());
+            }
+            return Flux.merge(changes);
+        });
+    }
+
+    private Sinks.Many<PriceChange> instrumentWatcher(int index) {
+        Sinks.Many<PriceChange> watcher = instrumentWatchers.get(index);
+        if (watcher == null) {
+            instrumentWatchers.compareAndSet(index, null, Sinks.many().multicast().directBestEffort());
+            watcher = instrumentWatchers.get(index);
+        }
+        return watcher;
     }
 
-    public void update(Price price) {
-        prices.put(price.getInstrumentName(), price);
+    private void notifyWatchers(PriceChange.Type type, Price price) {
+        Sinks.Many<PriceChange> instrumentWatcher = instrumentWatchers.get(price.getInstrumentName().id());
+        boolean toInstrument = instrumentWatcher != null && instrumentWatcher.currentSubscriberCount() > 0;
+        boolean toAll = allWatchers.currentSubscriberCount() > 0;
+        if (!toInstrument && !toAll) {
+            return;
+        }
+        PriceChange change = new PriceChange(type, price.getInstrumentName(), price);
+        // Retried only when other thread is emitting at the same time, it never waits for subscribers
+        if (toInstrument) {
+            instrumentWatcher.emitNext(change, (signalType, result) -> result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+        }
+        if (toAll) {
+            allWatchers.emitNext(change, (signalType, result) -> result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+        }
+    }
+
+    public boolean update(Price price) {
+        if (!updateSlot(price.getInstrumentName().id(), price)) {
+            return false;
+        }
+        version.incrementAndGet();
+        if (watched) {
+            notifyWatchers(PriceChange.Type.UPDATED, price);
+        }
+        return true;
+    }
+
+    // Version is incremented once for all stored prices
+    public int updateAll(Price[] batch) {
+        int updated = 0;
+        for (int i = 0; i < batch.length; i++) {
+            if (batch[i] == null) {
+                continue;
+            }
+            if (updateSlot(i, batch[i])) {
+                updated++;
+            } else {
+                batch[i] = null;
+            }
+        }
+        if (updated > 0) {
+            version.incrementAndGet();
+            if (watched) {
+                for (Price price : batch) {
+                    if (price != null) {
+                        notifyWatchers(PriceChange.Type.UPDATED, price);
+                    }
+                }
+            }
+        }
+        return updated;
+    }
+
+    private boolean updateSlot(int index, Price price) {
+        Price current;
+        do {
+            current = prices.get(index);
+            if (current != null && current.getId() >= price.getId()) {
+                return false;
+            }
+        } while (!prices.compareAndSet(index, current, price));
+        return true;
+    }
+
+    public boolean markStale(Price price) {
+        int index = price.getInstrumentName().id();
+        if (prices.get(index) != price) {
+            return false;
+        }
+        stalePrices.set(index, price);
+        // Price could have been replaced in the meantime, then the flag has no effect
+        version.incrementAndGet();
+        if (prices.get(index) != price) {
+            return false;
+        }
+        if (watched) {
+            notifyWatchers(PriceChange.Type.STALE, price);
+        }
+        return true;
     }
 
     public void clear() {
-        prices.clear();
+        List<Price> cleared = new ArrayList<>();
+        for (int i = 0; i < prices.length(); i++) {
+            Price price = prices.getAndSet(i, null);
+            stalePrices.set(i, null);
+            if (price != null) {
+                cleared.add(price);
+            }
+        }
+        version.incrementAndGet();
+        if (watched) {
+            for (Price price : cleared) {
+                notifyWatchers(PriceChange.Type.CLEARED, price);
+            }
+        }
     }
-}
 
+    // Only slots of registered instruments can be used
+    private Optional<List<Price>> buildSnapshot() {
+        int count = InstrumentName.count();
+        List<Price> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Price price = getFresh(i);
+            if (price != null) {
+                list.add(price);
+            }
+        }
+        return list.isEmpty() ? EMPTY_SNAPSHOT : Optional.of(Collections.unmodifiableList(list));
+    }
+
+    private static final class Snapshot {
+
+        final long version;
+
+        // Optional is cached together with list, so get() does not allocate
+        final Optional<List<Price>> prices;
+
+        Snapshot(long version, Optional<List<Price>> prices) {
+            this.version = version;
+            this.prices = prices;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.domain.pricehandler.service.staleness;
+
+import com.domain.pricehandler.model.Price;
+
+import java.util.List;
+
+/**
+ * Decides whether prices are stale, based on their price feed timestamp and max age of their instrument
+ */
+public interface StalenessMonitor {
+
+    /**
+     * @return false if max age is not set for any instrument
+     */
+    boolean isEnabled();
+
+    /**
+     * @param price
+     * @return true if price is older than max age of its instrument
+     */
+    boolean isStale(Price price);
+
+    /**
+     * @param prices
+     * @return true if any of prices is stale
+     */
+    boolean containsStale(List<Price> prices);
+
+    /**
+     * Marks stale prices in repository, so they are not served until newer prices are received
+     * @return number of prices marked as stale
+     */
+    int sweep();
+
+    /**
+     * Requests sweep on the sweeper thread, without waiting for it - for threads which must not write
+     * to repository (event loops)
+     */
+    void requestSweep();
+}
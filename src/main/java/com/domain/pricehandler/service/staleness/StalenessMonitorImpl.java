@@ -0,0 +1,164 @@
+package com.domain.pricehandler.service.staleness;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.repository.PriceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Max ages are resolved per instrument once, so a check is one clock read and one comparison -
+ * timestamps are parsed when prices are received (see Price.timestampMillis).
+ *
+ * Background sweeper marks stale prices in repository, so snapshot of all prices does not contain them.
+ * Price can get stale between sweeps, so price service checks prices it serves as well (see PriceServiceImpl),
+ * and requests sweep right away when it finds one.
+ */
+@Component
+@DependsOn("instrumentRegistrar")
+@Slf4j
+public class StalenessMonitorImpl implements StalenessMonitor {
+
+    private final PriceRepository priceRepository;
+
+    private final Duration sweepInterval;
+
+    // Indexed by instrument id, Long.MAX_VALUE if instrument is never stale
+    private final long[] maxAgeMillis = new long[InstrumentName.CAPACITY];
+
+    private final boolean enabled;
+
+    private ScheduledExecutorService sweeper;
+
+    // At most one requested sweep is pending, no matter how many requests see stale price in the meantime
+    private final AtomicBoolean sweepRequested = new AtomicBoolean();
+
+    @Autowired
+    public StalenessMonitorImpl(StalenessProperties properties, PriceRepository priceRepository) {
+        this.priceRepository = priceRepository;
+        this.sweepInterval = properties.getSweepInterval();
+        // Instruments registered later get default max age
+        Arrays.fill(maxAgeMillis, toMillis("all instruments", properties.getMaxAge()));
+        boolean anyMaxAge = properties.getMaxAge() != null;
+        for (Map.Entry<String, Duration> entry : properties.getInstruments().entrySet()) {
+            InstrumentName instrumentName = InstrumentName.valueOfName(entry.getKey());
+            if (instrumentName == null) {
+                throw new IllegalArgumentException("Max age configured for unsupported instrument " + entry.getKey());
+            }
+            maxAgeMillis[instrumentName.id()] = toMillis(instrumentName.label, entry.getValue());
+            anyMaxAge |= entry.getValue() != null;
+        }
+        this.enabled = anyMaxAge;
+    }
+
+    private static long toMillis(String instruments, Duration maxAge) {
+        if (maxAge == null) {
+            return Long.MAX_VALUE;
+        }
+        if (maxAge.isNegative()) {
+            throw new IllegalArgumentException("Max age of " + instruments + " can not be negative");
+        }
+        return maxAge.toMillis();
+    }
+
+    @PostConstruct
+    public void startSweeper() {
+        if (!enabled) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "price-staleness-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = sweepInterval.toMillis();
+        sweeper.scheduleWithFixedDelay(this::sweepSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Price staleness sweeper started: sweep interval {}", sweepInterval);
+    }
+
+    @PreDestroy
+    public void stopSweeper() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public boolean isStale(Price price) {
+        return enabled && isStale(price, System.currentTimeMillis());
+    }
+
+    @Override
+    public boolean containsStale(List<Price> prices) {
+        if (!enabled) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < prices.size(); i++) {
+            if (isStale(prices.get(i), now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int sweep() {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        int marked = 0;
+        for (int id = 0; id < InstrumentName.count(); id++) {
+            InstrumentName instrumentName = InstrumentName.byId(id);
+            Optional<Price> price = priceRepository.getByInstrumentName(instrumentName);
+            if (price.isPresent() && isStale(price.get(), now) && priceRepository.markStale(price.get())) {
+                marked++;
+                log.warn("Price of {} is stale, it is withheld until newer price is received", instrumentName);
+            }
+        }
+        return marked;
+    }
+
+    @Override
+    public void requestSweep() {
+        if (sweeper != null && sweepRequested.compareAndSet(false, true)) {
+            sweeper.execute(() -> {
+                sweepRequested.set(false);
+                sweepSafely();
+            });
+        }
+    }
+
+    private boolean isStale(Price price, long now) {
+        return now - price.getTimestampMillis() > maxAgeMillis[price.getInstrumentName().id()];
+    }
+
+    // Exception would stop scheduled sweeps
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.error("Price staleness sweep failed", e);
+        }
+    }
+}
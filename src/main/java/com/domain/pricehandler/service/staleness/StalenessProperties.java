@@ -0,0 +1,31 @@
+package com.domain.pricehandler.service.staleness;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Staleness configuration, eg:
+ * staleness.maxAge=5s
+ * staleness.instruments.EUR_JPY=2s
+ *
+ * Age of price is time elapsed since its price feed timestamp. Staleness is not checked if no max age is set.
+ */
+@Component
+@ConfigurationProperties(prefix = "staleness")
+@Data
+public class StalenessProperties {
+
+    // Default max age, applied to all instruments without their own max age
+    Duration maxAge;
+
+    // Max age per instrument name, instruments have to be supported
+    Map<String, Duration> instruments = new HashMap<>();
+
+    // How often stored prices are checked in background
+    Duration sweepInterval = Duration.ofSeconds(1);
+}
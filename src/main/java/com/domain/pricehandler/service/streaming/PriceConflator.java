@@ -0,0 +1,146 @@
+package com.domain.pricehandler.service.streaming;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.metrics.FeedMetrics;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Conflates prices of one subscriber - only the latest price of every instrument is kept until it is sent,
+ * intermediate ones are dropped. Memory used per subscriber is one slot per instrument, no matter how slow
+ * subscriber is.
+ *
+ * Without window, prices are sent as soon as subscriber requests them. With window, pending prices are sent
+ * at the end of every window only, so every instrument is sent at most once per window.
+ *
+ * Time from price being offered to being sent is recorded as conflation latency - when price is replaced
+ * by a newer one in the meantime, time of the newer one is used.
+ *
+ * Prices are sent on fan-out scheduler - thread offering price (feed thread) only fills the slot, and schedules
+ * drain if none is pending already.
+ */
+class PriceConflator {
+
+    // Indexed by instrument id, only slots of registered instruments are used
+    private final AtomicReferenceArray<Price> pending = new AtomicReferenceArray<>(InstrumentName.CAPACITY);
+
+    private final AtomicLongArray offeredAt = new AtomicLongArray(InstrumentName.CAPACITY);
+
+    // Work in progress counter, makes sure only one thread sends prices at a time
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private final FluxSink<Price> sink;
+
+    private final FeedMetrics feedMetrics;
+
+    private final Scheduler scheduler;
+
+    // Instrument to start next drain from, so instruments get equal share of subscriber demand
+    private int nextIndex;
+
+    private volatile boolean done;
+
+    private Throwable error;
+
+    private PriceConflator(FluxSink<Price> sink, FeedMetrics feedMetrics, Scheduler scheduler) {
+        this.sink = sink;
+        this.feedMetrics = feedMetrics;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @param source prices, never older than already received ones for the same instrument
+     * @param window throttle window, Duration.ZERO for no throttling
+     * @param feedMetrics
+     * @param scheduler prices are sent on
+     * @return conflated prices
+     */
+    static Flux<Price> conflate(Flux<Price> source, Duration window, FeedMetrics feedMetrics, Scheduler scheduler) {
+        return Flux.create(sink -> {
+            PriceConflator conflator = new PriceConflator(sink, feedMetrics, scheduler);
+            boolean throttled = !window.isZero();
+
+            Disposable.Composite subscriptions = Disposables.composite();
+            sink.onDispose(subscriptions);
+            if (throttled) {
+                sink.onRequest(n -> { });
+                subscriptions.add(Flux.interval(window, window).subscribe(tick -> conflator.drain()));
+            } else {
+                sink.onRequest(n -> conflator.drain());
+            }
+            subscriptions.add(source.subscribe(
+                    price -> conflator.offer(price, !throttled),
+                    conflator::error,
+                    conflator::complete));
+        });
+    }
+
+    private void offer(Price price, boolean drain) {
+        int index = price.getInstrumentName().id();
+        offeredAt.set(index, System.nanoTime());
+        pending.set(index, price);
+        if (drain) {
+            drain();
+        }
+    }
+
+    private void error(Throwable throwable) {
+        error = throwable;
+        done = true;
+        drain();
+    }
+
+    private void complete() {
+        done = true;
+        drain();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() == 0) {
+            scheduler.schedule(this::drainLoop);
+        }
+    }
+
+    // Only one drain loop runs at a time, drains requested while it runs are done by it (missed)
+    private void drainLoop() {
+        int missed = 1;
+        do {
+            int length = InstrumentName.count();
+            for (int i = 0; i < length && sink.requestedFromDownstream() > 0 && !sink.isCancelled(); i++) {
+                int index = (nextIndex + i) % length;
+                Price price = pending.getAndSet(index, null);
+                if (price != null) {
+                    feedMetrics.recordLatency(FeedMetrics.Stage.CONFLATION, System.nanoTime() - offeredAt.get(index));
+                    sink.next(price);
+                    nextIndex = index + 1;
+                }
+            }
+            if (done && !hasPending()) {
+                if (error != null) {
+                    sink.error(error);
+                } else {
+                    sink.complete();
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private boolean hasPending() {
+        for (int i = 0; i < InstrumentName.count(); i++) {
+            if (pending.get(i) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
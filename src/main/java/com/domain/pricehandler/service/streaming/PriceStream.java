@@ -0,0 +1,31 @@
+package com.domain.pricehandler.service.streaming;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Pushes price updates to subscribers, as an alternative to polling of GET endpoints
+ */
+public interface PriceStream {
+
+    /**
+     * Publishes price which was stored in repository, never blocks
+     * @param price
+     */
+    public void publish(Price price);
+
+    /**
+     * Subscribes to prices of given instruments. Last known prices are sent first, then updates as they come.
+     * Prices of every instrument are always sent in order of id, a price is never sent twice.
+     * If subscriber can not keep up, intermediate prices of instrument are dropped and only the latest one is sent.
+     * @param instrumentNames instruments to subscribe to, empty set means all instruments
+     * @param throttleWindow every instrument is sent at most once per window (the latest price at the end of it),
+     *                       Duration.ZERO means prices are sent as soon as subscriber requests them
+     * @return
+     */
+    public Flux<Price> subscribe(Set<InstrumentName> instrumentNames, Duration throttleWindow);
+}
@@ -0,0 +1,81 @@
+package com.domain.pricehandler.service.streaming;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.execution.FeedExecutors;
+import com.domain.pricehandler.service.metrics.FeedMetrics;
+import com.domain.pricehandler.service.repository.PriceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Multicast sink, to which price service publishes every stored price
+ *
+ * Sink never waits for subscribers - prices of every subscriber are conflated (see PriceConflator),
+ * so slow subscriber can only miss intermediate prices, but never stalls price feed.
+ * Publishing thread only filters prices into conflation slots, they are sent on fan-out threads.
+ */
+@Component
+@Slf4j
+public class PriceStreamImpl implements PriceStream {
+
+    @Autowired
+    private PriceRepository priceRepository;
+
+    @Autowired
+    private FeedMetrics feedMetrics;
+
+    @Autowired
+    private FeedExecutors feedExecutors;
+
+    private final Sinks.Many<Price> sink = Sinks.many().multicast().directBestEffort();
+
+    @Override
+    public void publish(Price price) {
+        // Retried only when other thread is publishing at the same time, it never waits for subscribers
+        sink.emitNext(price, (signalType, result) -> result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+    }
+
+    /**
+     * Live prices are subscribed to before snapshot is read, so no price stored in the meantime is missed.
+     * Prices older than already sent ones (eg. snapshot price already sent live) are skipped.
+     */
+    @Override
+    public Flux<Price> subscribe(Set<InstrumentName> instrumentNames, Duration throttleWindow) {
+        // No filter - all instruments, including the ones registered later
+        Set<InstrumentName> filter = instrumentNames.isEmpty() ? null : new HashSet<>(instrumentNames);
+
+        return Flux.defer(() -> {
+            int[] lastIds = new int[InstrumentName.CAPACITY];
+            Arrays.fill(lastIds, Integer.MIN_VALUE);
+
+            Flux<Price> live = sink.asFlux();
+            Flux<Price> snapshot = Flux.defer(() -> Flux.fromIterable(
+                    priceRepository.get().orElseGet(Collections::emptyList)));
+
+            Flux<Price> prices = Flux.merge(live, snapshot)
+                    .filter(price -> filter == null || filter.contains(price.getInstrumentName()))
+                    .filter(price -> isNewer(lastIds, price));
+            return PriceConflator.conflate(prices, throttleWindow, feedMetrics, feedExecutors.getFanOutScheduler());
+        });
+    }
+
+    // Called on serialized signals of one subscriber only, hence no synchronization of lastIds
+    private static boolean isNewer(int[] lastIds, Price price) {
+        int index = price.getInstrumentName().id();
+        if (price.getId() <= lastIds[index]) {
+            return false;
+        }
+        lastIds[index] = price.getId();
+        return true;
+    }
+}
@@ -4,7 +4,26 @@ import com.domain.pricehandler.controller.dto.PriceDto;
 import com.domain.pricehandler.model.InstrumentName;
 import com.domain.pricehandler.model.Price;
 import com.domain.pricehandler.service.PriceServiceImpl;
+import com.domain.pricehandler.service.commission.CommissionEngineImpl;
+import com.domain.pricehandler.service.commission.CommissionProperties;
+import com.domain.pricehandler.service.crossrate.CrossRateEngineImpl;
+import com.domain.pricehandler.service.crossrate.CrossRateProperties;
+import com.domain.pricehandler.service.execution.ExecutionProperties;
+import com.domain.pricehandler.service.execution.FeedExecutors;
+import com.domain.pricehandler.service.history.HistoryProperties;
+import com.domain.pricehandler.service.history.PriceHistory;
+import com.domain.pricehandler.service.history.PriceHistoryImpl;
+import com.domain.pricehandler.service.instruments.InstrumentProperties;
+import com.domain.pricehandler.service.instruments.InstrumentRegistrar;
+import com.domain.pricehandler.service.journal.JournalProperties;
+import com.domain.pricehandler.service.journal.PriceJournalImpl;
+import com.domain.pricehandler.service.metrics.FeedMetricsImpl;
+import com.domain.pricehandler.service.replication.PriceReplicatorImpl;
+import com.domain.pricehandler.service.replication.ReplicationProperties;
 import com.domain.pricehandler.service.repository.PriceRepository;
+import com.domain.pricehandler.service.staleness.StalenessMonitorImpl;
+import com.domain.pricehandler.service.staleness.StalenessProperties;
+import com.domain.pricehandler.service.streaming.PriceStreamImpl;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,20 +33,27 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.times;
 
 @ExtendWith(SpringExtension.class)
 @WebFluxTest(controllers = PriceController.class)
-@Import(PriceServiceImpl.class)
+@Import({PriceServiceImpl.class, CommissionEngineImpl.class, CommissionProperties.class, PriceStreamImpl.class,
+        PriceResponseCache.class, FeedMetricsImpl.class, StalenessMonitorImpl.class, StalenessProperties.class,
+        InstrumentProperties.class, InstrumentRegistrar.class, PriceJournalImpl.class, JournalProperties.class,
+        FeedExecutors.class, ExecutionProperties.class, PriceHistoryImpl.class, HistoryProperties.class,
+        CrossRateEngineImpl.class, CrossRateProperties.class, PriceReplicatorImpl.class, ReplicationProperties.class})
 public class PriceControllerUnitTests {
 
     @MockBean
@@ -36,6 +62,9 @@ public class PriceControllerUnitTests {
     @Autowired
     private WebTestClient webClient;
 
+    @Autowired
+    private PriceHistory priceHistory;
+
     List<Price> prices;
 
     /**
@@ -46,20 +75,20 @@ public class PriceControllerUnitTests {
         Price priceEUR_USD = new Price();
         priceEUR_USD.setId(1);
         priceEUR_USD.setInstrumentName(InstrumentName.EUR_USD);
-        priceEUR_USD.setBid(new BigDecimal(101.0));
-        priceEUR_USD.setAsk(new BigDecimal(102.0));
+        priceEUR_USD.setBid(1010000);
+        priceEUR_USD.setAsk(1020000);
 
         Price priceEUR_JPY = new Price();
         priceEUR_JPY.setId(2);
         priceEUR_JPY.setInstrumentName(InstrumentName.EUR_JPY);
-        priceEUR_JPY.setBid(new BigDecimal(103.0));
-        priceEUR_JPY.setAsk(new BigDecimal(104.0));
+        priceEUR_JPY.setBid(10300);
+        priceEUR_JPY.setAsk(10400);
 
         Price priceGBP_USD = new Price();
         priceGBP_USD.setId(3);
         priceGBP_USD.setInstrumentName(InstrumentName.GBP_USD);
-        priceGBP_USD.setBid(new BigDecimal(105.0));
-        priceGBP_USD.setAsk(new BigDecimal(106.0));
+        priceGBP_USD.setBid(1050000);
+        priceGBP_USD.setAsk(1060000);
 
         prices = new ArrayList<Price>();
         prices.add(priceEUR_USD);
@@ -114,4 +143,163 @@ public class PriceControllerUnitTests {
 
         Mockito.verify(repository, times(1)).getByInstrumentName(instrumentName);
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenUnchangedPrices_whenGetPricesWithEtag_thenStatus304() {
+        Mockito
+                .when(repository.get())
+                .thenReturn(Optional.ofNullable(prices));
+
+        String etag = webClient.get()
+                .uri("/prices/")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("ETag")
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+
+        webClient.get()
+                .uri("/prices/")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        List<Price> updatedPrices = new ArrayList<>(prices);
+        Price priceEUR_USD = new Price();
+        priceEUR_USD.setId(4);
+        priceEUR_USD.setInstrumentName(InstrumentName.EUR_USD);
+        updatedPrices.set(0, priceEUR_USD);
+        Mockito
+                .when(repository.get())
+                .thenReturn(Optional.of(updatedPrices));
+
+        webClient.get()
+                .uri("/prices/")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].bid").isEqualTo(0.0);
+    }
+
+    @Test
+    void givenUnchangedPrice_whenGetPriceWithEtag_thenStatus304() {
+        Mockito
+                .when(repository.getByInstrumentName(InstrumentName.EUR_USD))
+                .thenReturn(Optional.of(prices.get(0)));
+
+        webClient.get()
+                .uri("/prices/{instrumentName}", InstrumentName.EUR_USD.name())
+                .ifNoneMatch("\"1\"")
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void givenPrices_whenStreamPrices_thenLastKnownPricesStreamed() {
+        Mockito
+                .when(repository.get())
+                .thenReturn(Optional.ofNullable(prices));
+
+        Flux<PriceDto> stream = webClient.get()
+                .uri("/prices/stream?instruments=EUR_USD,GBP_USD")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(PriceDto.class)
+                .getResponseBody();
+
+        StepVerifier.create(stream)
+                .assertNext(dto -> assertThat(dto.getInstrumentName()).isEqualTo(InstrumentName.EUR_USD))
+                .assertNext(dto -> assertThat(dto.getInstrumentName()).isEqualTo(InstrumentName.GBP_USD))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void givenUnknownInstrumentName_whenStreamPrices_thenStatus400() {
+        webClient.get()
+                .uri("/prices/stream?instruments=EUR_CHF")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void givenPrices_whenGetPricesOfInstrumentsWithFields_thenOnlyTheyReturned() {
+        Mockito
+                .when(repository.getByInstrumentName(InstrumentName.GBP_USD))
+                .thenReturn(Optional.of(prices.get(2)));
+        Mockito
+                .when(repository.getByInstrumentName(InstrumentName.EUR_USD))
+                .thenReturn(Optional.of(prices.get(0)));
+
+        webClient.get()
+                .uri("/prices?instruments=GBP_USD,EUR_USD,GBP_USD&fields=bid")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].instrumentName").isEqualTo("GBP_USD")
+                .jsonPath("$[0].bid").isEqualTo(105.0)
+                .jsonPath("$[0].ask").doesNotExist()
+                .jsonPath("$[1].instrumentName").isEqualTo("EUR_USD");
+
+        Mockito.verify(repository, times(0)).get();
+        Mockito.verify(repository, times(1)).getByInstrumentName(InstrumentName.GBP_USD);
+    }
+
+    @Test
+    void givenUnknownField_whenGetPrices_thenStatus400() {
+        webClient.get()
+                .uri("/prices?instruments=EUR_USD&fields=mid")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void givenRecordedPrices_whenGetHistoryAndBars_thenTicksAndBarReturned() {
+        long now = System.currentTimeMillis();
+        Price[] recorded = new Price[InstrumentName.count()];
+        for (int i = 0; i < 2; i++) {
+            Price price = new Price();
+            price.setId(10 + i);
+            price.setInstrumentName(InstrumentName.GBP_USD);
+            price.setBid(1050000 + i * 10000);
+            price.setAsk(1060000 + i * 10000);
+            price.setTimestampMillis(now);
+            recorded[InstrumentName.GBP_USD.id()] = price;
+            priceHistory.record(recorded);
+        }
+
+        webClient.get()
+                .uri("/prices/{instrumentName}/history?from={from}", InstrumentName.GBP_USD.name(), now - 1000)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.instrumentName").isEqualTo("GBP_USD")
+                .jsonPath("$.ticks.length()").isEqualTo(2)
+                .jsonPath("$.ticks[1].id").isEqualTo(11)
+                .jsonPath("$.ticks[1].bid").isEqualTo(106.0);
+
+        webClient.get()
+                .uri("/prices/{instrumentName}/bars?resolution=5m", InstrumentName.GBP_USD.name())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.resolution").isEqualTo("5m")
+                .jsonPath("$.bars.length()").isEqualTo(1)
+                .jsonPath("$.bars[0].open").isEqualTo(105.5)
+                .jsonPath("$.bars[0].high").isEqualTo(106.5)
+                .jsonPath("$.bars[0].ticks").isEqualTo(2);
+    }
+
+    @Test
+    void givenUnknownResolution_whenGetBars_thenStatus400() {
+        webClient.get()
+                .uri("/prices/{instrumentName}/bars?resolution=2m", InstrumentName.EUR_USD.name())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
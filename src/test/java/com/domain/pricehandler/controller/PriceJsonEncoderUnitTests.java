@@ -0,0 +1,81 @@
+package com.domain.pricehandler.controller;
+
+import com.domain.pricehandler.controller.dto.PriceDtoMapper;
+import com.domain.pricehandler.controller.dto.PriceField;
+import com.domain.pricehandler.controller.dto.PriceJsonEncoder;
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Encoder has to write exactly what Jackson writes for PriceDto
+ */
+public class PriceJsonEncoderUnitTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static Price price(InstrumentName instrumentName, long bid, long ask, String timestamp) {
+        Price price = new Price();
+        price.setId(1);
+        price.setInstrumentName(instrumentName);
+        price.setBid(bid);
+        price.setAsk(ask);
+        price.setTimestamp(timestamp);
+        return price;
+    }
+
+    @Test
+    public void givenPrices_whenEncode_thenSameJsonAsJackson() throws Exception {
+        List<Price> prices = Arrays.asList(
+                price(InstrumentName.EUR_USD, 10989, 12012, "01-06-2020 12:01:01:001"),
+                price(InstrumentName.EUR_JPY, 11948, 5, "01-06-2020 12:01:02:002"),
+                price(InstrumentName.GBP_USD, 0, -12345, null),
+                price(InstrumentName.GBP_USD, Long.MAX_VALUE, Long.MIN_VALUE, "\"quoted\\\"\n"));
+
+        for (Price price : prices) {
+            String expected = objectMapper.writeValueAsString(PriceDtoMapper.toDto(price));
+            assertThat(new String(PriceJsonEncoder.encode(price), StandardCharsets.US_ASCII)).isEqualTo(expected);
+        }
+
+        String expectedList = objectMapper.writeValueAsString(
+                prices.stream().map(PriceDtoMapper::toDto).collect(Collectors.toList()));
+        assertThat(new String(PriceJsonEncoder.encode(prices), StandardCharsets.US_ASCII)).isEqualTo(expectedList);
+    }
+
+    @Test
+    public void givenNonAsciiTimestamp_whenEncode_thenEscapedEquivalentJson() throws Exception {
+        Price price = price(InstrumentName.EUR_USD, 10989, 12012, "01-06-2020 12:01:01:001 é€\t");
+
+        String expected = objectMapper.writeValueAsString(PriceDtoMapper.toDto(price));
+
+        assertThat(objectMapper.readTree(PriceJsonEncoder.encode(price))).isEqualTo(objectMapper.readTree(expected));
+    }
+
+    @Test
+    public void givenFields_whenEncode_thenOnlyInstrumentNameAndFieldsWritten() throws Exception {
+        List<Price> prices = Arrays.asList(
+                price(InstrumentName.EUR_USD, 10989, 12012, "01-06-2020 12:01:01:001"),
+                price(InstrumentName.EUR_JPY, 11948, 11960, null));
+
+        String bidAndAsk = new String(PriceJsonEncoder.encode(prices, EnumSet.of(PriceField.ASK, PriceField.BID)),
+                StandardCharsets.US_ASCII);
+        String none = new String(PriceJsonEncoder.encode(prices, EnumSet.noneOf(PriceField.class)),
+                StandardCharsets.US_ASCII);
+        String all = new String(PriceJsonEncoder.encode(prices, EnumSet.allOf(PriceField.class)),
+                StandardCharsets.US_ASCII);
+
+        assertThat(bidAndAsk).isEqualTo("[{\"instrumentName\":\"EUR_USD\",\"bid\":1.0989,\"ask\":1.2012},"
+                + "{\"instrumentName\":\"EUR_JPY\",\"bid\":119.48,\"ask\":119.60}]");
+        assertThat(none).isEqualTo("[{\"instrumentName\":\"EUR_USD\"},{\"instrumentName\":\"EUR_JPY\"}]");
+        assertThat(all).isEqualTo(new String(PriceJsonEncoder.encode(prices), StandardCharsets.US_ASCII));
+    }
+}
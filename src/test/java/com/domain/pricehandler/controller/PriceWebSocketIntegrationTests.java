@@ -0,0 +1,140 @@
+package com.domain.pricehandler.controller;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.PriceService;
+import com.domain.pricehandler.service.messaging.PriceTickDecoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class PriceWebSocketIntegrationTests {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PriceService priceService;
+
+    private final Sinks.Many<String> commands = Sinks.many().unicast().onBackpressureBuffer();
+
+    // Text messages as String, binary messages as decoded ticks
+    private final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+
+    private Disposable connection;
+
+    @BeforeEach
+    public void setUp() {
+        priceService.clearPrices();
+        connection = new ReactorNettyWebSocketClient()
+                .execute(URI.create("ws://localhost:" + port + "/prices/binary"), session -> session
+                        .send(commands.asFlux().map(session::textMessage))
+                        .and(session.receive().doOnNext(message -> received.add(decode(message))).then()))
+                .subscribe();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        connection.dispose();
+    }
+
+    private static Object decode(WebSocketMessage message) {
+        if (message.getType() == WebSocketMessage.Type.TEXT) {
+            return message.getPayloadAsText();
+        }
+        byte[] bytes = new byte[message.getPayload().readableByteCount()];
+        message.getPayload().read(bytes);
+        PriceTickDecoder decoder = new PriceTickDecoder(ByteBuffer.wrap(bytes));
+        decoder.next();
+        return new long[]{decoder.getInstrumentId(), decoder.getId(), decoder.getBidMantissa()};
+    }
+
+    private void update(int id, InstrumentName instrumentName, String bid) {
+        priceService.updatePrices(List.of(price(id, instrumentName, bid)));
+    }
+
+    private static Price price(int id, InstrumentName instrumentName, String bid) {
+        Price price = new Price();
+        price.setId(id);
+        price.setInstrumentName(instrumentName);
+        price.setBid(Long.parseLong(bid));
+        price.setAsk(Long.parseLong(bid) + 10);
+        price.setTimestampMillis(System.currentTimeMillis());
+        return price;
+    }
+
+    private Object poll(long millis) throws InterruptedException {
+        return received.poll(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void givenSubscription_whenTicksRequested_thenOnlyRequestedTicksOfSubscribedInstrumentsSent()
+            throws InterruptedException {
+        update(1, InstrumentName.EUR_USD, "11000");
+
+        commands.tryEmitNext("SUBSCRIBE EUR_USD");
+        assertThat(poll(5_000)).isEqualTo("SUBSCRIBED EUR_USD=" + InstrumentName.EUR_USD.id());
+        // No demand yet
+        assertThat(poll(200)).isNull();
+
+        commands.tryEmitNext("REQUEST 1");
+        assertThat((long[]) poll(5_000)).containsExactly(InstrumentName.EUR_USD.id(), 1, 11000);
+
+        update(2, InstrumentName.EUR_USD, "11001");
+        update(3, InstrumentName.EUR_USD, "11002");
+        update(4, InstrumentName.GBP_USD, "12500");
+        assertThat(poll(200)).isNull();
+
+        // Price waiting for demand may be sent before the newest one, but the newest one is sent last
+        commands.tryEmitNext("REQUEST 10");
+        long[] tick = (long[]) poll(5_000);
+        if (tick[1] == 2) {
+            tick = (long[]) poll(5_000);
+        }
+        assertThat(tick).containsExactly(InstrumentName.EUR_USD.id(), 3, 11002);
+        assertThat(poll(200)).isNull();
+    }
+
+    @Test
+    void givenChangedSubscription_whenTicksRequested_thenNewInstrumentsSentAndInvalidCommandsAnswered()
+            throws InterruptedException {
+        update(1, InstrumentName.EUR_USD, "11000");
+        update(2, InstrumentName.GBP_USD, "12500");
+
+        commands.tryEmitNext("REQUEST 100");
+        commands.tryEmitNext("SUBSCRIBE EUR_USD");
+        assertThat(poll(5_000)).isEqualTo("SUBSCRIBED EUR_USD=" + InstrumentName.EUR_USD.id());
+        assertThat(((long[]) poll(5_000))[1]).isEqualTo(1);
+
+        commands.tryEmitNext("UNSUBSCRIBE EUR_USD");
+        commands.tryEmitNext("SUBSCRIBE GBP_USD");
+        assertThat(poll(5_000)).isEqualTo("SUBSCRIBED");
+        assertThat(poll(5_000)).isEqualTo("SUBSCRIBED GBP_USD=" + InstrumentName.GBP_USD.id());
+        assertThat(((long[]) poll(5_000))[1]).isEqualTo(2);
+
+        commands.tryEmitNext("SUBSCRIBE EUR_CHF");
+        assertThat((String) poll(5_000)).startsWith("ERROR");
+        commands.tryEmitNext("REQUEST 0");
+        assertThat((String) poll(5_000)).startsWith("ERROR");
+    }
+}
@@ -0,0 +1,93 @@
+package com.domain.pricehandler.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FixedPointUnitTests {
+
+    @Test
+    public void givenMargin_whenMultiplier_thenExactDecimalMultiplier() {
+        assertThat(FixedPoint.multiplier(-0.001)).isEqualTo(999_000_000L);
+        assertThat(FixedPoint.multiplier(0.001)).isEqualTo(1_001_000_000L);
+        assertThat(FixedPoint.multiplier(0)).isEqualTo(1_000_000_000L);
+    }
+
+    @Test
+    public void givenPriceFeedValue_whenMultiply_thenRoundedOnceToTargetScale() {
+        long bidMultiplier = FixedPoint.multiplier(-0.001);
+        long askMultiplier = FixedPoint.multiplier(0.001);
+
+        // 1.1000 * 0.999 = 1.0989 exactly
+        assertThat(FixedPoint.multiply(11000, 4, bidMultiplier, 4, RoundingMode.FLOOR)).isEqualTo(10989);
+        // 1.2500 * 0.999 = 1.248750
+        assertThat(FixedPoint.multiply(12500, 4, bidMultiplier, 4, RoundingMode.FLOOR)).isEqualTo(12487);
+        // 1.2560 * 1.001 = 1.257256
+        assertThat(FixedPoint.multiply(12560, 4, askMultiplier, 4, RoundingMode.CEILING)).isEqualTo(12573);
+        // 119.6 * 0.999 = 119.4804, price feed scale lower than target scale
+        assertThat(FixedPoint.multiply(1196, 1, bidMultiplier, 2, RoundingMode.FLOOR)).isEqualTo(11948);
+        // 1.1 * 1.001 with target scale higher than both
+        assertThat(FixedPoint.multiply(11, 1, askMultiplier, 12, RoundingMode.UNNECESSARY)).isEqualTo(1_101_100_000_000L);
+    }
+
+    @Test
+    public void givenRoundingModes_whenRescale_thenSameAsBigDecimal() {
+        long[] values = {12345, 12355, -12345, -12355, 12350, -12350, 12300};
+        RoundingMode[] modes = {RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR,
+                RoundingMode.HALF_UP, RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN};
+        for (long value : values) {
+            for (RoundingMode mode : modes) {
+                long expected = BigDecimal.valueOf(value, 4).setScale(2, mode).unscaledValue().longValueExact();
+                assertThat(FixedPoint.rescale(value, 4, 2, mode)).as(value + " " + mode).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void givenLegs_whenCross_thenRoundedOnceToTargetScale() {
+        // USD/JPY bid = EUR/JPY bid / EUR/USD ask = 119.60 / 1.1002 = 108.7075...
+        assertThat(FixedPoint.cross(11002, 4, true, 11960, 2, false, 2, RoundingMode.FLOOR)).isEqualTo(10870);
+        // GBP/JPY ask = GBP/USD ask * USD/JPY ask = 1.2560 * 109.00 = 136.904
+        assertThat(FixedPoint.cross(12560, 4, false, 10900, 2, false, 2, RoundingMode.CEILING)).isEqualTo(13691);
+        // 1 / (2 * 4) = 0.125, both inverted
+        assertThat(FixedPoint.cross(2, 0, true, 40, 1, true, 3, RoundingMode.UNNECESSARY)).isEqualTo(125);
+        assertThrows(ArithmeticException.class,
+                () -> FixedPoint.cross(0, 4, true, 11960, 2, false, 2, RoundingMode.FLOOR));
+    }
+
+    @Test
+    public void givenLongMantissa_whenMultiply_thenSameAsBigDecimal() {
+        long[] multipliers = {FixedPoint.multiplier(-0.001), FixedPoint.multiplier(0.001), FixedPoint.multiplier(0)};
+        RoundingMode[] modes = {RoundingMode.FLOOR, RoundingMode.CEILING, RoundingMode.HALF_EVEN};
+        // 119.60123456 and 1.123456789012345678, mantissa times multiplier does not fit in long
+        long[][] values = {{11960123456L, 8}, {1123456789012345678L, 18}, {Long.MAX_VALUE / 2, 4}};
+        for (long[] value : values) {
+            for (long multiplier : multipliers) {
+                for (RoundingMode mode : modes) {
+                    long expected = BigDecimal.valueOf(value[0], (int) value[1])
+                            .multiply(BigDecimal.valueOf(multiplier, FixedPoint.MULTIPLIER_SCALE))
+                            .setScale(4, mode).unscaledValue().longValueExact();
+                    assertThat(FixedPoint.multiply(value[0], (int) value[1], multiplier, 4, mode))
+                            .as(value[0] + " " + multiplier + " " + mode).isEqualTo(expected);
+                }
+            }
+        }
+        // 119.60123456 * 0.999 = 119.48163332544
+        assertThat(FixedPoint.multiply(11960123456L, 8, FixedPoint.multiplier(-0.001), 2, RoundingMode.FLOOR))
+                .isEqualTo(11948);
+    }
+
+    @Test
+    public void givenOverflowOrInexactResult_whenMultiply_thenThrowException() {
+        assertThrows(ArithmeticException.class,
+                () -> FixedPoint.multiply(Long.MAX_VALUE / 2, 4, FixedPoint.multiplier(2), 4, RoundingMode.FLOOR));
+        assertThrows(ArithmeticException.class,
+                () -> FixedPoint.multiply(11960123456L, 8, FixedPoint.multiplier(0.001), 4, RoundingMode.UNNECESSARY));
+        assertThrows(ArithmeticException.class,
+                () -> FixedPoint.rescale(12345, 4, 2, RoundingMode.UNNECESSARY));
+    }
+}
@@ -0,0 +1,46 @@
+package com.domain.pricehandler.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class InstrumentNameUnitTests {
+
+    @Test
+    public void givenBuiltInInstrument_whenLookedUp_thenFoundByLabelAndName() {
+        assertThat(InstrumentName.valueOfLabel("EUR/USD")).contains(InstrumentName.EUR_USD);
+        assertThat(InstrumentName.valueOfLabel("xx EUR/JPY xx", 3, 10)).isSameAs(InstrumentName.EUR_JPY);
+        assertThat(InstrumentName.valueOfName("GBP_USD")).isSameAs(InstrumentName.GBP_USD);
+        assertThat(InstrumentName.valueOfName("GBP/USD")).isSameAs(InstrumentName.GBP_USD);
+        assertThat(InstrumentName.valueOfLabel("EUR_USD")).isEmpty();
+        assertThat(InstrumentName.valueOfName("EUR_CHF")).isNull();
+        assertThrows(IllegalArgumentException.class, () -> InstrumentName.valueOf("EUR_CHF"));
+    }
+
+    @Test
+    public void givenNewInstrument_whenRegister_thenSupportedWithNextId() {
+        InstrumentName audNzd = InstrumentName.register("AUD/NZD", 4);
+
+        assertThat(audNzd.name()).isEqualTo("AUD_NZD");
+        assertThat(audNzd.scale).isEqualTo(4);
+        assertThat(audNzd.id()).isLessThan(InstrumentName.count());
+        assertThat(InstrumentName.byId(audNzd.id())).isSameAs(audNzd);
+        assertThat(InstrumentName.valueOf("AUD_NZD")).isSameAs(audNzd);
+        assertThat(InstrumentName.valueOfLabel("AUD/NZD")).contains(audNzd);
+        assertThat(InstrumentName.values()).contains(InstrumentName.EUR_USD, audNzd);
+        // Registered once, scale of the first registration is kept
+        assertThat(InstrumentName.register("AUD/NZD", 2)).isSameAs(audNzd);
+        assertThat(InstrumentName.register("AUD/NZD", 2).scale).isEqualTo(4);
+    }
+
+    @Test
+    public void givenInvalidLabelOrScale_whenRegister_thenRejected() {
+        assertThrows(IllegalArgumentException.class, () -> InstrumentName.register("AUD_CAD", 4));
+        assertThrows(IllegalArgumentException.class, () -> InstrumentName.register("AUD CAD", 4));
+        assertThrows(IllegalArgumentException.class, () -> InstrumentName.register("AUD,CAD", 4));
+        assertThrows(IllegalArgumentException.class, () -> InstrumentName.register("", 4));
+        assertThrows(IllegalArgumentException.class, () -> InstrumentName.register("AUD/CAD", 19));
+        assertThat(InstrumentName.valueOfLabel("AUD/CAD")).isEmpty();
+    }
+}
@@ -0,0 +1,61 @@
+package com.domain.pricehandler.service;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.service.commission.CommissionEngine;
+import com.domain.pricehandler.service.commission.CommissionEngineImpl;
+import com.domain.pricehandler.service.commission.CommissionProperties;
+import com.domain.pricehandler.service.commission.CommissionTable;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CommissionEngineUnitTests {
+
+    private static CommissionProperties properties(double bidMargin, double askMargin) {
+        CommissionProperties properties = new CommissionProperties();
+        properties.setBidMargin(bidMargin);
+        properties.setAskMargin(askMargin);
+        return properties;
+    }
+
+    @Test
+    public void givenInstrumentMargin_whenCalculatePrice_thenInstrumentMarginOverridesDefault() {
+        CommissionProperties properties = properties(-0.001, 0.001);
+        CommissionProperties.Margin margin = new CommissionProperties.Margin();
+        margin.setBidMargin(-0.002);
+        properties.getInstruments().put(InstrumentName.EUR_JPY.name(), margin);
+
+        CommissionTable table = CommissionTable.of(properties);
+
+        // 1.1000 * 0.999
+        assertThat(table.calculatePriceBid(InstrumentName.EUR_USD, 11000, 4)).isEqualTo(10989);
+        // 120.00 * 0.998
+        assertThat(table.calculatePriceBid(InstrumentName.EUR_JPY, 12000, 2)).isEqualTo(11976);
+        // 120.00 * 1.001, ask margin not overridden
+        assertThat(table.calculatePriceAsk(InstrumentName.EUR_JPY, 12000, 2)).isEqualTo(12012);
+    }
+
+    @Test
+    public void givenTableInUse_whenReload_thenTableInUseNotChanged() {
+        CommissionEngine engine = new CommissionEngineImpl(properties(-0.001, 0.001));
+        CommissionTable inUse = engine.getCommissionTable();
+
+        engine.reload(properties(-0.01, 0.01));
+
+        assertThat(inUse.calculatePriceBid(InstrumentName.EUR_USD, 11000, 4)).isEqualTo(10989);
+        assertThat(inUse.calculatePriceAsk(InstrumentName.EUR_USD, 11000, 4)).isEqualTo(11011);
+        assertThat(engine.getCommissionTable().calculatePriceBid(InstrumentName.EUR_USD, 11000, 4)).isEqualTo(10890);
+        assertThat(engine.getCommissionTable().calculatePriceAsk(InstrumentName.EUR_USD, 11000, 4)).isEqualTo(11110);
+    }
+
+    @Test
+    public void givenIncorrectMargin_whenReload_thenPreviousTableKept() {
+        CommissionEngine engine = new CommissionEngineImpl(properties(-0.001, 0.001));
+        CommissionTable inUse = engine.getCommissionTable();
+
+        assertThrows(IllegalArgumentException.class, () -> engine.reload(properties(-1, 0.001)));
+
+        assertThat(engine.getCommissionTable()).isSameAs(inUse);
+    }
+}
@@ -0,0 +1,156 @@
+package com.domain.pricehandler.service;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.commission.CommissionEndpoint;
+import com.domain.pricehandler.service.commission.CommissionEngine;
+import com.domain.pricehandler.service.commission.CommissionProperties;
+import com.domain.pricehandler.service.messaging.FeedTimestamp;
+import com.domain.pricehandler.service.messaging.PriceFeedListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.mockito.Mockito;
+import org.springframework.boot.actuate.autoconfigure.web.server.LocalManagementPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"management.endpoints.web.exposure.include=commission", "management.server.port=0"})
+public class CommissionReloadIntegrationTests {
+
+    @Autowired
+    private PriceService priceService;
+
+    @Autowired
+    @Qualifier("priceFeedReceiver")
+    private PriceFeedListener priceFeedListener;
+
+    // Endpoint is served on management port only
+    @LocalManagementPort
+    private int managementPort;
+
+    @LocalServerPort
+    private int serverPort;
+
+    private WebTestClient webTestClient;
+
+    private final AtomicBoolean publishing = new AtomicBoolean(true);
+
+    private Thread publisher;
+
+    @BeforeEach
+    public void setUp() {
+        webTestClient = WebTestClient.bindToServer().baseUrl("http://localhost:" + managementPort).build();
+        priceService.clearPrices();
+        // Price feed keeps flowing while margins are changed
+        publisher = new Thread(() -> {
+            for (int id = 1; publishing.get(); id++) {
+                priceFeedListener.onMessage(id + ", EUR/USD, 1.1000,1.2000,"
+                        + FeedTimestamp.format(System.currentTimeMillis()));
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        publisher.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        publishing.set(false);
+        publisher.join();
+        update(Map.of("bidMargin", -0.001, "askMargin", 0.001)).expectStatus().isOk();
+        priceService.clearPrices();
+    }
+
+    private WebTestClient.ResponseSpec update(Map<String, ?> body) {
+        return webTestClient.post().uri("/actuator/commission")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private boolean bidIs(long bid) {
+        return priceService.getPrice(InstrumentName.EUR_USD).map(Price::getBid).blockOptional().orElse(0L) == bid;
+    }
+
+    @Test
+    void givenPricesFlowing_whenMarginChanged_thenNewMarginApplied() throws InterruptedException {
+        // 1.1000 * (1-0.001)
+        await(() -> bidIs(10989));
+
+        update(Map.of("bidMargin", -0.01)).expectStatus().isOk()
+                .expectBody().jsonPath("$.bidMargin").isEqualTo(-0.01);
+
+        // 1.1000 * (1-0.01), ask margin not changed: 1.2000 * 1.001
+        await(() -> bidIs(10890));
+        assertThat(priceService.getPrice(InstrumentName.EUR_USD).block().getAsk()).isEqualTo(12012);
+    }
+
+    @Test
+    void givenUnsupportedInstrument_whenMarginChanged_thenRejectedAndMarginsKept() throws InterruptedException {
+        update(Map.of("instrument", "XXX_YYY", "bidMargin", -0.01)).expectStatus().isBadRequest();
+        update(Map.of("bidMargin", -1.5)).expectStatus().isBadRequest();
+
+        webTestClient.get().uri("/actuator/commission").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.bidMargin").isEqualTo(-0.001);
+        await(() -> bidIs(10989));
+    }
+
+    @Test
+    void givenPricesPort_whenMarginChanged_thenNotFound() {
+        WebTestClient.bindToServer().baseUrl("http://localhost:" + serverPort).build()
+                .post().uri("/actuator/commission")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("bidMargin", -0.01))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void givenEndpointExposedOnServerPort_whenCreated_thenRejected() {
+        CommissionEngine commissionEngine = Mockito.mock(CommissionEngine.class);
+        CommissionProperties properties = new CommissionProperties();
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("management.endpoints.web.exposure.include", "health,metrics,commission");
+
+        assertThrows(IllegalStateException.class,
+                () -> new CommissionEndpoint(commissionEngine, properties, environment));
+        environment.setProperty("management.server.port", "8080");
+        assertThrows(IllegalStateException.class,
+                () -> new CommissionEndpoint(commissionEngine, properties, environment));
+
+        environment.setProperty("management.server.port", "8081");
+        new CommissionEndpoint(commissionEngine, properties, environment);
+        environment.setProperty("management.endpoints.web.exposure.include", "health,metrics");
+        environment.setProperty("management.server.port", "8080");
+        new CommissionEndpoint(commissionEngine, properties, environment);
+    }
+}
@@ -0,0 +1,112 @@
+package com.domain.pricehandler.service;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.crossrate.CrossRateEngineImpl;
+import com.domain.pricehandler.service.crossrate.CrossRateProperties;
+import com.domain.pricehandler.service.repository.PriceRepository;
+import com.domain.pricehandler.service.repository.PriceRepositoryImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CrossRateEngineUnitTests {
+
+    private PriceRepository priceRepository;
+
+    private CrossRateEngineImpl crossRateEngine;
+
+    private InstrumentName usdJpy;
+
+    private InstrumentName gbpJpy;
+
+    @BeforeEach
+    public void setUp() {
+        priceRepository = new PriceRepositoryImpl();
+        CrossRateProperties properties = new CrossRateProperties();
+        properties.setInstruments(List.of("USD_JPY", "GBP_JPY"));
+        crossRateEngine = new CrossRateEngineImpl(properties, priceRepository);
+        crossRateEngine.watchStaleLegs();
+        usdJpy = InstrumentName.valueOf("USD_JPY");
+        gbpJpy = InstrumentName.valueOf("GBP_JPY");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        crossRateEngine.stopWatching();
+    }
+
+    private static Price price(int id, InstrumentName instrumentName, long bid, long ask, long timestampMillis) {
+        Price price = new Price();
+        price.setId(id);
+        price.setInstrumentName(instrumentName);
+        price.setBid(bid);
+        price.setAsk(ask);
+        price.setTimestamp(String.valueOf(timestampMillis));
+        price.setTimestampMillis(timestampMillis);
+        return price;
+    }
+
+    // Stores prices and derives crosses, as price service does
+    private Price[] store(Price... prices) {
+        Price[] batch = new Price[InstrumentName.count()];
+        for (Price price : prices) {
+            batch[price.getInstrumentName().id()] = price;
+        }
+        priceRepository.updateAll(batch);
+        crossRateEngine.derive(batch);
+        return batch;
+    }
+
+    @Test
+    public void givenLegs_whenDerive_thenCrossesDerivedWithInvertedLegAndOlderTimestamp() {
+        Price[] batch = store(price(1, InstrumentName.EUR_USD, 11000, 11002, 1000),
+                price(2, InstrumentName.EUR_JPY, 11960, 11990, 2000),
+                price(3, InstrumentName.GBP_USD, 12500, 12560, 3000));
+
+        assertThat(crossRateEngine.getCrosses()).containsExactly(usdJpy, gbpJpy);
+        // 119.60 / 1.1002 = 108.7075..., 119.90 / 1.1000 = 109.00
+        Price derivedUsdJpy = batch[usdJpy.id()];
+        assertThat(derivedUsdJpy.getBid()).isEqualTo(10870);
+        assertThat(derivedUsdJpy.getAsk()).isEqualTo(10900);
+        assertThat(derivedUsdJpy.getId()).isEqualTo(2);
+        assertThat(derivedUsdJpy.getTimestampMillis()).isEqualTo(1000);
+        // 1.2500 * 108.70 = 135.875, 1.2560 * 109.00 = 136.904
+        Price derivedGbpJpy = batch[gbpJpy.id()];
+        assertThat(derivedGbpJpy.getBid()).isEqualTo(13587);
+        assertThat(derivedGbpJpy.getAsk()).isEqualTo(13691);
+        assertThat(derivedGbpJpy.getTimestampMillis()).isEqualTo(1000);
+        assertThat(priceRepository.getByInstrumentName(gbpJpy)).containsSame(derivedGbpJpy);
+    }
+
+    @Test
+    public void givenOneLegTicks_whenDerive_thenOnlyDependentCrossesDerived() {
+        store(price(1, InstrumentName.EUR_USD, 11000, 11002, 1000),
+                price(2, InstrumentName.EUR_JPY, 11960, 11990, 2000),
+                price(3, InstrumentName.GBP_USD, 12500, 12560, 3000));
+
+        Price[] batch = store(price(4, InstrumentName.GBP_USD, 12600, 12660, 4000));
+
+        assertThat(batch[usdJpy.id()]).isNull();
+        assertThat(batch[gbpJpy.id()].getId()).isEqualTo(4);
+        // 1.2600 * 108.70 = 136.962
+        assertThat(batch[gbpJpy.id()].getBid()).isEqualTo(13696);
+    }
+
+    @Test
+    public void givenLegMarkedStale_whenWatched_thenDependentCrossesMarkedStale() {
+        Price eurUsd = price(1, InstrumentName.EUR_USD, 11000, 11002, 1000);
+        store(eurUsd, price(2, InstrumentName.EUR_JPY, 11960, 11990, 2000),
+                price(3, InstrumentName.GBP_USD, 12500, 12560, 3000));
+
+        priceRepository.markStale(eurUsd);
+
+        assertThat(priceRepository.getByInstrumentName(usdJpy)).isEmpty();
+        assertThat(priceRepository.getByInstrumentName(gbpJpy)).isEmpty();
+        assertThat(priceRepository.getByInstrumentName(InstrumentName.GBP_USD)).isPresent();
+    }
+}
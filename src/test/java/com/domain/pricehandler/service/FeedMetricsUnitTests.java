@@ -0,0 +1,78 @@
+package com.domain.pricehandler.service;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.service.metrics.FeedMetrics;
+import com.domain.pricehandler.service.metrics.FeedMetricsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class FeedMetricsUnitTests {
+
+    @Test
+    public void givenRecordedLatencies_whenGetLatencyHistogram_thenAllRecordedAndLongOnesCapped() {
+        FeedMetrics metrics = new FeedMetricsImpl();
+        for (int i = 1; i <= 100; i++) {
+            metrics.recordLatency(FeedMetrics.Stage.PARSE, i * 1000L);
+        }
+        metrics.recordLatency(FeedMetrics.Stage.PARSE, TimeUnit.HOURS.toNanos(1));
+
+        Histogram histogram = metrics.getLatencyHistogram(FeedMetrics.Stage.PARSE);
+
+        assertThat(histogram.getTotalCount()).isEqualTo(101);
+        assertThat((double) histogram.getValueAtPercentile(50)).isCloseTo(51_000, within(100.0));
+        assertThat(histogram.getMaxValue()).isLessThanOrEqualTo(TimeUnit.MINUTES.toNanos(1) * 1001 / 1000);
+        assertThat(metrics.getLatencyHistogram(FeedMetrics.Stage.COMMISSION).getTotalCount()).isZero();
+    }
+
+    @Test
+    public void givenMetricsBoundToRegistry_whenCount_thenCountersExportedPerInstrument() {
+        FeedMetricsImpl metrics = new FeedMetricsImpl();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        metrics.bindTo(registry);
+
+        metrics.count(FeedMetrics.Outcome.APPLIED, InstrumentName.EUR_USD);
+        metrics.count(FeedMetrics.Outcome.APPLIED, InstrumentName.EUR_USD);
+        metrics.count(FeedMetrics.Outcome.REJECTED, null);
+
+        assertThat(registry.get("price.feed.prices").tag("instrument", "EUR_USD").tag("outcome", "applied")
+                .functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get("price.feed.prices").tag("instrument", "EUR_JPY").tag("outcome", "applied")
+                .functionCounter().count()).isZero();
+        assertThat(registry.get("price.feed.prices").tag("instrument", FeedMetrics.UNKNOWN_INSTRUMENT)
+                .tag("outcome", "rejected").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("price.feed.stage.latency").tag("stage", "fan-out").tag("percentile", "0.99")
+                .timeGauge()).isNotNull();
+    }
+
+    @Test
+    public void givenWarmedUpMetrics_whenRecord_thenNothingAllocated() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        FeedMetrics metrics = new FeedMetricsImpl();
+        record(metrics, 10_000);
+
+        // Best of few rounds, as JIT compilation or test framework can allocate on this thread now and then
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            record(metrics, 10_000);
+            allocated = Math.min(allocated, threads.getThreadAllocatedBytes(threadId) - before);
+        }
+
+        assertThat(allocated).isZero();
+    }
+
+    private static void record(FeedMetrics metrics, int times) {
+        for (int i = 0; i < times; i++) {
+            metrics.recordLatency(FeedMetrics.Stage.REPOSITORY_UPDATE, i);
+            metrics.count(FeedMetrics.Outcome.RECEIVED, InstrumentName.GBP_USD);
+        }
+    }
+}
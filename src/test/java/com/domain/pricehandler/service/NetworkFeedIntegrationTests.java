@@ -0,0 +1,95 @@
+package com.domain.pricehandler.service;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.messaging.network.LoopbackFeedPublisher;
+import com.domain.pricehandler.service.messaging.network.NetworkFeedReceiver;
+import com.domain.pricehandler.service.messaging.network.NetworkFeedStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {"feed.network.enabled=true", "feed.network.port=0", "feed.network.maxPendingFrames=4",
+        "feed.network.multicastGroup=239.1.2.3", "feed.network.multicastPort=0"})
+public class NetworkFeedIntegrationTests {
+
+    @Autowired
+    private PriceService priceService;
+
+    @Autowired
+    private NetworkFeedReceiver networkFeedReceiver;
+
+    @BeforeEach
+    public void setUp() {
+        priceService.clearPrices();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    @Test
+    void givenTcpConnection_whenFramesPublished_thenPricesApplied() throws InterruptedException {
+        try (LoopbackFeedPublisher publisher = LoopbackFeedPublisher.connect(networkFeedReceiver.getTcpPort())) {
+            // Many more frames than connection can have pending, so publisher is slowed down, and connection is closed
+            // before all of them are applied, but nothing is lost
+            publisher.publish(Flux.range(0, 1000).map(i -> LoopbackFeedPublisher.sampleMessage(1 + i * 3, 3)));
+        }
+
+        await(() -> priceService.getPrice(InstrumentName.GBP_USD).map(Price::getId).blockOptional().orElse(0) == 3000);
+        assertThat(priceService.getPrice(InstrumentName.EUR_USD).block().getId()).isEqualTo(2998);
+        // 1.1000 * (1-0.001) with scale of EUR/USD, as from text feed
+        assertThat(priceService.getPrice(InstrumentName.EUR_USD).block().getBid()).isEqualTo(10989);
+    }
+
+    @Test
+    void givenIdsWithGap_whenFramesPublished_thenGapDetectedAndIncorrectFrameSkipped() throws InterruptedException {
+        NetworkFeedStatistics statistics = networkFeedReceiver.getTcpStatistics();
+        long frames = statistics.getFrames();
+        long gaps = statistics.getGaps();
+        long missingIds = statistics.getMissingIds();
+        long rejectedFrames = statistics.getRejectedFrames();
+
+        try (LoopbackFeedPublisher publisher = LoopbackFeedPublisher.connect(networkFeedReceiver.getTcpPort())) {
+            publisher.publish(LoopbackFeedPublisher.sampleMessage(1, 3),
+                    ByteBuffer.wrap(new byte[]{1, 2, 3}),
+                    LoopbackFeedPublisher.sampleMessage(10, 3));
+        }
+
+        await(() -> statistics.getFrames() == frames + 3);
+        assertThat(statistics.getGaps()).isEqualTo(gaps + 1);
+        assertThat(statistics.getMissingIds()).isEqualTo(missingIds + 6);
+        assertThat(statistics.getRejectedFrames()).isEqualTo(rejectedFrames + 1);
+        await(() -> priceService.getPrice(InstrumentName.GBP_USD).map(Price::getId).blockOptional().orElse(0) == 12);
+    }
+
+    @Test
+    void givenDatagrams_whenPublished_thenPricesAppliedAndGapDetected() throws IOException, InterruptedException {
+        NetworkFeedStatistics statistics = networkFeedReceiver.getUdpStatistics();
+        long frames = statistics.getFrames();
+        long gaps = statistics.getGaps();
+
+        // Sent to the port directly, as loopback interface does not have to support multicast
+        LoopbackFeedPublisher.publishDatagrams("127.0.0.1", networkFeedReceiver.getUdpPort(),
+                LoopbackFeedPublisher.sampleMessage(1, 3), LoopbackFeedPublisher.sampleMessage(7, 3));
+
+        await(() -> statistics.getFrames() == frames + 2);
+        assertThat(statistics.getGaps()).isEqualTo(gaps + 1);
+        await(() -> priceService.getPrice(InstrumentName.GBP_USD).map(Price::getId).blockOptional().orElse(0) == 9);
+    }
+}
@@ -0,0 +1,135 @@
+package com.domain.pricehandler.service;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.arbitration.ArbitrationProperties;
+import com.domain.pricehandler.service.arbitration.FeedSource;
+import com.domain.pricehandler.service.arbitration.PriceArbiterImpl;
+import com.domain.pricehandler.service.repository.PriceRepositoryImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PriceArbiterUnitTests {
+
+    private PriceService priceService;
+
+    private PriceArbiterImpl priceArbiter;
+
+    private FeedSource lp1;
+
+    private FeedSource lp2;
+
+    @BeforeEach
+    public void setUp() {
+        ArbitrationProperties properties = new ArbitrationProperties();
+        properties.setMaxSilence(Duration.ofMillis(50));
+        // Sources are checked by tests only
+        properties.setCheckInterval(Duration.ofHours(1));
+        priceService = Mockito.mock(PriceService.class);
+        priceArbiter = new PriceArbiterImpl(properties, new PriceRepositoryImpl(), priceService);
+        lp1 = priceArbiter.register("LP1");
+        lp2 = priceArbiter.register("LP2");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        priceArbiter.stopChecker();
+    }
+
+    private static Price price(int id, long bid, long ask, long timestampMillis) {
+        Price price = new Price();
+        price.setId(id);
+        price.setInstrumentName(InstrumentName.EUR_USD);
+        price.setBid(bid);
+        price.setAsk(ask);
+        price.setTimestamp(String.valueOf(timestampMillis));
+        price.setTimestampMillis(timestampMillis);
+        return price;
+    }
+
+    private List<Price> arbitrate(FeedSource source, Price... prices) {
+        List<Price> arbitrated = new ArrayList<>(List.of(prices));
+        priceArbiter.arbitrate(source, arbitrated, 0);
+        return arbitrated;
+    }
+
+    @Test
+    public void givenTwoSources_whenPricesArbitrated_thenBestBidAndAskOfAllSources() {
+        assertThat(arbitrate(lp1, price(1, 10989, 11001, 1000))).hasSize(1);
+        List<Price> best = arbitrate(lp2, price(1, 10990, 11005, 2000));
+
+        assertThat(best).hasSize(1);
+        assertThat(best.get(0).getBid()).isEqualTo(10990);
+        assertThat(best.get(0).getAsk()).isEqualTo(11001);
+        // Timestamp of older side
+        assertThat(best.get(0).getTimestampMillis()).isEqualTo(1000);
+        assertThat(best.get(0).getId()).isEqualTo(2);
+
+        // Holder of best bid backs off, the other source has the best bid again
+        best = arbitrate(lp2, price(2, 10970, 11005, 4000));
+        assertThat(best.get(0).getBid()).isEqualTo(10989);
+        assertThat(best.get(0).getAsk()).isEqualTo(11001);
+        assertThat(best.get(0).getId()).isEqualTo(3);
+
+        // Worse than best, from source not holding it
+        assertThat(arbitrate(lp2, price(3, 10980, 11003, 5000))).isEmpty();
+        assertThat(lp2.getContributed()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenOutOfOrderPrice_whenArbitrated_thenDroppedOnlyForItsSource() {
+        arbitrate(lp1, price(5, 10989, 11001, 1000));
+
+        assertThat(arbitrate(lp1, price(4, 10999, 11000, 1000))).isEmpty();
+        // Sources have their own ids
+        assertThat(arbitrate(lp2, price(1, 10999, 11000, 1000))).hasSize(1);
+        assertThat(lp1.getOutOfOrder()).isEqualTo(1);
+        assertThat(lp2.getOutOfOrder()).isZero();
+    }
+
+    @Test
+    public void givenSilentSource_whenSourcesChecked_thenFailedOverToOtherSource() throws InterruptedException {
+        arbitrate(lp1, price(1, 10990, 11000, 1000));
+        Thread.sleep(100);
+        arbitrate(lp2, price(1, 10980, 11010, 2000));
+
+        assertThat(priceArbiter.checkSources()).isEqualTo(1);
+
+        assertThat(lp1.isStale()).isTrue();
+        assertThat(lp2.isStale()).isFalse();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Price>> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(priceService).updatePrices(captor.capture());
+        assertThat(captor.getValue()).hasSize(1);
+        assertThat(captor.getValue().get(0).getBid()).isEqualTo(10980);
+        assertThat(captor.getValue().get(0).getAsk()).isEqualTo(11010);
+
+        // Stale source starts over when it sends again
+        assertThat(arbitrate(lp1, price(1, 10995, 11000, 3000))).hasSize(1);
+        assertThat(lp1.isStale()).isFalse();
+    }
+
+    @Test
+    public void givenFailoverApplier_whenSourcesChecked_thenFailoverPricesPassedToIt() throws InterruptedException {
+        List<Price> applied = new ArrayList<>();
+        priceArbiter.setFailoverApplier(applied::addAll);
+        arbitrate(lp1, price(1, 10990, 11000, 1000));
+        Thread.sleep(100);
+        arbitrate(lp2, price(1, 10980, 11010, 2000));
+
+        assertThat(priceArbiter.checkSources()).isEqualTo(1);
+
+        assertThat(applied).hasSize(1);
+        assertThat(applied.get(0).getBid()).isEqualTo(10980);
+        Mockito.verifyNoInteractions(priceService);
+    }
+}
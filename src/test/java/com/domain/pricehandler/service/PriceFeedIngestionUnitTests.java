@@ -0,0 +1,130 @@
+package com.domain.pricehandler.service;
+
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.messaging.ingestion.IngestionProperties;
+import com.domain.pricehandler.service.messaging.ingestion.MessageRingBuffer;
+import com.domain.pricehandler.service.messaging.ingestion.OverflowPolicy;
+import com.domain.pricehandler.service.messaging.ingestion.PriceFeedIngestion;
+import com.domain.pricehandler.service.messaging.ingestion.WaitStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PriceFeedIngestionUnitTests {
+
+    private static Price price(String message) {
+        Price price = new Price();
+        price.setId(Integer.valueOf(message));
+        return price;
+    }
+
+    @Test
+    public void givenRingBuffer_whenOfferMoreThanCapacity_thenRejectedUntilDrained() {
+        MessageRingBuffer<Integer> ringBuffer = new MessageRingBuffer<>(3);
+        assertThat(ringBuffer.capacity()).isEqualTo(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(ringBuffer.offer(i)).isTrue();
+        }
+        assertThat(ringBuffer.offer(4)).isFalse();
+
+        List<Integer> drained = new ArrayList<>();
+        assertThat(ringBuffer.drain(drained::add, 3)).isEqualTo(3);
+        assertThat(ringBuffer.offer(4)).isTrue();
+        assertThat(ringBuffer.drain(drained::add, 10)).isEqualTo(2);
+
+        assertThat(drained).containsExactly(0, 1, 2, 3, 4);
+        assertThat(ringBuffer.size()).isZero();
+    }
+
+    @Test
+    public void givenAsyncIngestion_whenMessagesSubmitted_thenAllCorrectOnesAppliedInOrder() throws InterruptedException {
+        IngestionProperties properties = new IngestionProperties();
+        properties.setCapacity(8);
+        properties.setWaitStrategy(WaitStrategy.YIELD);
+        properties.setOverflowPolicy(OverflowPolicy.BLOCK);
+        List<Price> applied = new CopyOnWriteArrayList<>();
+        PriceFeedIngestion<String> ingestion = new PriceFeedIngestion<>(properties,
+                (message, batch) -> batch.add(price(message)),
+                applied::addAll);
+
+        ingestion.start();
+        for (int i = 0; i < 1000; i++) {
+            ingestion.submit(i == 500 ? "incorrect" : String.valueOf(i));
+        }
+        ingestion.stop();
+
+        assertThat(applied).hasSize(999);
+        assertThat(applied).extracting(Price::getId).isSorted();
+        assertThat(ingestion.getFailed()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenFullBuffer_whenSubmit_thenOverflowPolicyApplied() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Price> applied = new CopyOnWriteArrayList<>();
+        IngestionProperties properties = new IngestionProperties();
+        properties.setCapacity(1);
+        properties.setMaxBatchSize(1);
+        properties.setOverflowPolicy(OverflowPolicy.DROP);
+        PriceFeedIngestion<String> ingestion = new PriceFeedIngestion<>(properties,
+                (message, batch) -> batch.add(price(message)),
+                batch -> {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    applied.addAll(batch);
+                });
+
+        ingestion.start();
+        ingestion.submit("1");
+        // consumer takes the first message and waits, second one fills the buffer
+        while (ingestion.getBacklog() > 0) {
+            Thread.yield();
+        }
+        ingestion.submit("2");
+        ingestion.submit("3");
+        properties.setOverflowPolicy(OverflowPolicy.FAIL);
+        assertThrows(IllegalStateException.class, () -> ingestion.submit("4"));
+        release.countDown();
+        ingestion.stop();
+
+        assertThat(applied).extracting(Price::getId).containsExactly(1, 2);
+        assertThat(ingestion.getDropped()).isEqualTo(1);
+        assertThat(ingestion.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenPricesSubmittedByOtherThread_whenIngesting_thenAppliedByConsumerThread() throws InterruptedException {
+        IngestionProperties properties = new IngestionProperties();
+        properties.setWaitStrategy(WaitStrategy.YIELD);
+        List<Price> applied = new CopyOnWriteArrayList<>();
+        List<String> applyingThreads = new CopyOnWriteArrayList<>();
+        PriceFeedIngestion<String> ingestion = new PriceFeedIngestion<>(properties,
+                (message, batch) -> batch.add(price(message)),
+                batch -> {
+                    applyingThreads.add(Thread.currentThread().getName());
+                    applied.addAll(batch);
+                });
+
+        ingestion.start();
+        ingestion.submit("1");
+        Thread other = new Thread(() -> ingestion.submitPrices(List.of(price("2"), price("3"))));
+        other.start();
+        other.join();
+        ingestion.stop();
+
+        assertThat(applied).extracting(Price::getId).containsExactlyInAnyOrder(1, 2, 3);
+        assertThat(applyingThreads).containsOnly(PriceFeedIngestion.THREAD_NAME);
+        assertThrows(IllegalStateException.class, () -> ingestion.submitPrices(List.of(price("4"))));
+    }
+}
@@ -2,27 +2,40 @@ package com.domain.pricehandler.service;
 
 import com.domain.pricehandler.model.InstrumentName;
 import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.arbitration.PriceArbiter;
+import com.domain.pricehandler.service.commission.CommissionProperties;
+import com.domain.pricehandler.service.commission.CommissionTable;
+import com.domain.pricehandler.service.instruments.InstrumentProperties;
 import com.domain.pricehandler.service.messaging.PriceFeedListener;
 import com.domain.pricehandler.service.messaging.PriceFeedListenerImpl;
+import com.domain.pricehandler.service.messaging.PriceTickDecoder;
+import com.domain.pricehandler.service.messaging.PriceTickEncoder;
+import com.domain.pricehandler.service.messaging.ingestion.IngestionProperties;
+import com.domain.pricehandler.service.metrics.FeedMetricsImpl;
+import com.domain.pricehandler.service.staleness.StalenessMonitor;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
-import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.times;
 
 @ExtendWith(SpringExtension.class)
-@Import(PriceFeedListenerImpl.class)
+@Import({PriceFeedListenerImpl.class, IngestionProperties.class, FeedMetricsImpl.class, InstrumentProperties.class})
 public class PriceFeedListenerUnitTests {
 
     @Autowired
@@ -31,14 +44,28 @@ public class PriceFeedListenerUnitTests {
     @MockBean
     private PriceService priceService;
 
+    @MockBean
+    private PriceArbiter priceArbiter;
+
+    @MockBean
+    private StalenessMonitor stalenessMonitor;
+
+    @Captor
+    private ArgumentCaptor<List<Price>> updatedPrices;
+
+    private static CommissionTable commissionTable() {
+        CommissionProperties properties = new CommissionProperties();
+        properties.setBidMargin(-0.001);
+        properties.setAskMargin(0.001);
+        return CommissionTable.of(properties);
+    }
+
     @Test
     public void givenNoPrices_whenMessageWithOnePricePublished_UploadPrice() {
         String message = "106, EUR/USD, 1.1000,1.2000,01-06-2020 12:01:01:001";
-        BigDecimal priceFeedBid = new BigDecimal(1.1000);
-        BigDecimal priceFeedAsk = new BigDecimal(1.2000);
-
-        BigDecimal priceBid = priceFeedBid.multiply(new BigDecimal(1-0.001));
-        BigDecimal priceAsk = priceFeedAsk.multiply(new BigDecimal(1+0.001));
+        // 1.1000 * (1-0.001) and 1.2000 * (1+0.001) with scale of EUR/USD
+        long priceBid = 10989;
+        long priceAsk = 12012;
 
         List<Price> prices = new ArrayList<>();
         Price price = new Price();
@@ -47,12 +74,11 @@ public class PriceFeedListenerUnitTests {
         price.setBid(priceBid);
         price.setAsk(priceAsk);
         price.setTimestamp("01-06-2020 12:01:01:001");
+        price.setTimestampMillis(Instant.parse("2020-06-01T12:01:01.001Z").toEpochMilli());
         prices.add(price);
 
-        Mockito.when(priceService.calculatePriceBid(Mockito.any(BigDecimal.class)))
-                .thenReturn(priceBid);
-        Mockito.when(priceService.calculatePriceAsk(Mockito.any(BigDecimal.class)))
-                .thenReturn(priceAsk);
+        Mockito.when(priceService.getCommissionTable())
+                .thenReturn(commissionTable());
 
         doNothing().when(priceService).updatePrices(prices);
 
@@ -67,11 +93,9 @@ public class PriceFeedListenerUnitTests {
                 "106, EUR/USD, 1.1000,1.2000,01-06-2020 12:01:01:001",
                 "107, EUR/JPY, 119.60,119.90,01-06-2020 12:01:02:002");
 
-        BigDecimal priceFeedBid = new BigDecimal(1.1000);
-        BigDecimal priceFeedAsk = new BigDecimal(1.2000);
-
-        BigDecimal priceBid = priceFeedBid.multiply(new BigDecimal(1-0.001));
-        BigDecimal priceAsk = priceFeedAsk.multiply(new BigDecimal(1+0.001));
+        // 1.1000 * (1-0.001) and 1.2000 * (1+0.001) with scale of EUR/USD
+        long priceBid = 10989;
+        long priceAsk = 12012;
 
         List<Price> prices = new ArrayList<>();
         Price price = new Price();
@@ -80,21 +104,22 @@ public class PriceFeedListenerUnitTests {
         price.setBid(priceBid);
         price.setAsk(priceAsk);
         price.setTimestamp("01-06-2020 12:01:01:001");
+        price.setTimestampMillis(Instant.parse("2020-06-01T12:01:01.001Z").toEpochMilli());
 
         Price priceTwo = new Price();
         priceTwo.setId(107);
         priceTwo.setInstrumentName(InstrumentName.EUR_JPY);
-        priceTwo.setBid(priceBid);
-        priceTwo.setAsk(priceAsk);
+        // 119.60 * (1-0.001) = 119.4804 rounded down and 119.90 * (1+0.001) = 120.0199 rounded up
+        priceTwo.setBid(11948);
+        priceTwo.setAsk(12002);
         priceTwo.setTimestamp("01-06-2020 12:01:02:002");
+        priceTwo.setTimestampMillis(Instant.parse("2020-06-01T12:01:02.002Z").toEpochMilli());
 
         prices.add(price);
         prices.add(priceTwo);
 
-        Mockito.when(priceService.calculatePriceBid(Mockito.any(BigDecimal.class)))
-                .thenReturn(priceBid);
-        Mockito.when(priceService.calculatePriceAsk(Mockito.any(BigDecimal.class)))
-                .thenReturn(priceAsk);
+        Mockito.when(priceService.getCommissionTable())
+                .thenReturn(commissionTable());
         doNothing().when(priceService).updatePrices(prices);
 
         priceFeedListener.onMessage(message);
@@ -115,4 +140,52 @@ public class PriceFeedListenerUnitTests {
 
         assertTrue(exceptionMessage.contains(expectedExceptionMessage));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void givenStalenessNotMonitored_whenTimestampInOtherFormat_thenPriceUploadedWithReceiveTime() {
+        String message = "106, EUR/USD, 1.1000,1.2000,2020-06-01T12:01:01.001Z";
+        Mockito.when(priceService.getCommissionTable())
+                .thenReturn(commissionTable());
+        long before = System.currentTimeMillis();
+
+        priceFeedListener.onMessage(message);
+
+        Mockito.verify(priceService, times(1)).updatePrices(Mockito.argThat(prices -> prices.size() == 1
+                && prices.get(0).getTimestamp().equals("2020-06-01T12:01:01.001Z")
+                && prices.get(0).getTimestampMillis() >= before));
+    }
+
+    @Test
+    public void givenStalenessMonitored_whenTimestampInOtherFormat_ThrowException() {
+        String message = "106, EUR/USD, 1.1000,1.2000,2020-06-01T12:01:01.001Z";
+        Mockito.when(priceService.getCommissionTable())
+                .thenReturn(commissionTable());
+        Mockito.when(stalenessMonitor.isEnabled()).thenReturn(true);
+
+        // Age of price could not be told
+        assertThrows(RuntimeException.class, () -> priceFeedListener.onMessage(message));
+        Mockito.verify(priceService, times(0)).updatePrices(Mockito.any());
+    }
+
+    @Test
+    public void givenNoPrices_whenBinaryMessagePublished_thenSamePricesAsFromTextMessage() {
+        String message = String.join(PriceFeedListenerImpl.newLine,
+                "106, EUR/USD, 1.1000,1.2000,01-06-2020 12:01:01:001",
+                "107, EUR/JPY, 119.60,119.90,01-06-2020 12:01:02:002");
+        ByteBuffer binaryMessage = ByteBuffer.allocate(2 * PriceTickDecoder.TICK_SIZE);
+        PriceTickEncoder.encode(binaryMessage, 106, InstrumentName.EUR_USD, 11000, 4, 12000, 4,
+                Instant.parse("2020-06-01T12:01:01.001Z").toEpochMilli());
+        PriceTickEncoder.encode(binaryMessage, 107, InstrumentName.EUR_JPY, 11960, 2, 11990, 2,
+                Instant.parse("2020-06-01T12:01:02.002Z").toEpochMilli());
+        binaryMessage.flip();
+
+        Mockito.when(priceService.getCommissionTable())
+                .thenReturn(commissionTable());
+
+        priceFeedListener.onMessage(message);
+        priceFeedListener.onMessage(binaryMessage);
+
+        Mockito.verify(priceService, times(2)).updatePrices(updatedPrices.capture());
+        assertThat(updatedPrices.getAllValues().get(1)).hasSize(2).isEqualTo(updatedPrices.getAllValues().get(0));
+    }
+}
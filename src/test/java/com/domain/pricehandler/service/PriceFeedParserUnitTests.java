@@ -0,0 +1,154 @@
+package com.domain.pricehandler.service;
+
+import com.domain.pricehandler.exceptions.PriceFeedFormatException;
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.service.messaging.FeedTimestamp;
+import com.domain.pricehandler.service.messaging.PriceFeedParser;
+import com.domain.pricehandler.service.messaging.PriceTickDecoder;
+import com.domain.pricehandler.service.messaging.PriceTickEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PriceFeedParserUnitTests {
+
+    private static final String NEW_LINE = "\n";
+
+    @Test
+    public void givenMessageWithManyLines_whenParsed_thenAllFieldsRead() {
+        String message = String.join(NEW_LINE,
+                "106, EUR/USD, 1.1000,1.2000,01-06-2020 12:01:01:001",
+                "  107 ,EUR/JPY ,  119.60 , 119.9 , 01-06-2020 12:01:02:002 , ignored ",
+                "");
+        PriceFeedParser parser = new PriceFeedParser(message, NEW_LINE);
+
+        assertThat(parser.next()).isTrue();
+        assertThat(parser.getId()).isEqualTo(106);
+        assertThat(parser.getInstrumentName()).isEqualTo(InstrumentName.EUR_USD);
+        assertThat(BigDecimal.valueOf(parser.getBidMantissa(), parser.getBidScale())).isEqualTo(new BigDecimal("1.1000"));
+        assertThat(BigDecimal.valueOf(parser.getAskMantissa(), parser.getAskScale())).isEqualTo(new BigDecimal("1.2000"));
+        assertThat(parser.getTimestamp()).isEqualTo("01-06-2020 12:01:01:001");
+        assertThat(parser.getTimestampMillis()).isEqualTo(Instant.parse("2020-06-01T12:01:01.001Z").toEpochMilli());
+
+        assertThat(parser.next()).isTrue();
+        assertThat(parser.getId()).isEqualTo(107);
+        assertThat(parser.getInstrumentName()).isEqualTo(InstrumentName.EUR_JPY);
+        assertThat(BigDecimal.valueOf(parser.getBidMantissa(), parser.getBidScale())).isEqualTo(new BigDecimal("119.60"));
+        assertThat(BigDecimal.valueOf(parser.getAskMantissa(), parser.getAskScale())).isEqualTo(new BigDecimal("119.9"));
+        assertThat(parser.getTimestamp()).isEqualTo("01-06-2020 12:01:02:002");
+
+        assertThat(parser.next()).isFalse();
+    }
+
+    @Test
+    public void givenUnsupportedInstrumentName_whenParsed_thenInstrumentNameNull() {
+        PriceFeedParser parser = new PriceFeedParser("1, USD/CHF, 1.1,1.2,01-06-2020 12:01:01:001", NEW_LINE);
+
+        assertThat(parser.next()).isTrue();
+        assertThat(parser.getInstrumentName()).isNull();
+    }
+
+    @Test
+    public void givenDecimalsInDifferentForms_whenParsed_thenSameValuesAsBigDecimal() {
+        String[] decimals = {"1", "-1.5", "+0.25", ".5", "5.", "1.2E3", "125e-2", "0.00001"};
+        for (String decimal : decimals) {
+            PriceFeedParser parser = new PriceFeedParser("1, EUR/USD, " + decimal + ",1,ts", NEW_LINE);
+
+            assertThat(parser.next()).isTrue();
+            assertThat(BigDecimal.valueOf(parser.getBidMantissa(), parser.getBidScale()).compareTo(new BigDecimal(decimal)))
+                    .as(decimal)
+                    .isZero();
+        }
+    }
+
+    @Test
+    public void givenIncorrectLines_whenParsed_thenThrowException() {
+        String[] lines = {
+                "",
+                "noId, EUR/USD, 1.1,1.2,ts",
+                "1 2, EUR/USD, 1.1,1.2,ts",
+                "9999999999, EUR/USD, 1.1,1.2,ts",
+                "1, EUR/USD, noPrice,1.2,ts",
+                "1, EUR/USD, 1.1,1..2,ts",
+                "1, EUR/USD, 1.1,1.2",
+                "1, EUR/USD, 1.1,1.2,",
+                "1, EUR/USD, 1.1,1.2,ts" + NEW_LINE + NEW_LINE + "2, EUR/USD, 1.1,1.2,ts",
+                "1, EUR/USD, 99999999999999999999,1.2,ts"
+        };
+        for (String line : lines) {
+            assertThrows(PriceFeedFormatException.class, () -> {
+                PriceFeedParser parser = new PriceFeedParser(line, NEW_LINE);
+                while (parser.next()) {
+                }
+            }, line);
+        }
+    }
+
+    @Test
+    public void givenTimestamps_whenParseEpochMillisAndFormat_thenSameAsDateTimeFormatter() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss:SSS");
+        String[] timestamps = {"01-06-2020 12:01:01:001", "01-01-1970 00:00:00:000", "31-12-1969 23:59:59:999",
+                "29-02-2020 23:59:59:999", "01-03-2000 00:00:00:000", "28-02-2100 10:20:30:040", "31-12-9999 23:59:59:999"};
+        for (String timestamp : timestamps) {
+            long expected = LocalDateTime.parse(timestamp, formatter).toInstant(ZoneOffset.UTC).toEpochMilli();
+            String text = " " + timestamp + " ";
+            assertThat(FeedTimestamp.parseEpochMillis(text, 1, text.length() - 1)).as(timestamp).isEqualTo(expected);
+            assertThat(FeedTimestamp.format(expected)).isEqualTo(timestamp);
+        }
+    }
+
+    @Test
+    public void givenIncorrectTimestamps_whenParseEpochMillis_thenThrowException() {
+        String[] timestamps = {"1-06-2020 12:01:01:001", "01/06/2020 12:01:01:001", "01-06-2020T12:01:01:001",
+                "01-06-2020 12:01:01.001", "29-02-2021 12:01:01:001", "31-04-2020 12:01:01:001", "00-06-2020 12:01:01:001",
+                "01-13-2020 12:01:01:001", "01-06-2020 24:00:00:000", "01-06-2020 12:60:01:001", "01-06-2020 12:01:1a:001"};
+        for (String timestamp : timestamps) {
+            assertThrows(PriceFeedFormatException.class,
+                    () -> FeedTimestamp.parseEpochMillis(timestamp, 0, timestamp.length()), timestamp);
+        }
+    }
+
+    @Test
+    public void givenBinaryMessage_whenDecoded_thenAllFieldsReadInPlace() {
+        ByteBuffer message = ByteBuffer.allocate(3 * PriceTickDecoder.TICK_SIZE);
+        message.position(PriceTickDecoder.TICK_SIZE);
+        PriceTickEncoder.encode(message, 106, InstrumentName.EUR_USD, 11000, 4, 12000, 4, 1591012861001L);
+        PriceTickEncoder.encode(message, 107, InstrumentName.EUR_JPY, 11960, 2, 1199, 1, 1591012862002L);
+        message.position(PriceTickDecoder.TICK_SIZE);
+        PriceTickDecoder decoder = new PriceTickDecoder(message);
+
+        assertThat(decoder.next()).isTrue();
+        assertThat(decoder.getId()).isEqualTo(106);
+        assertThat(decoder.getInstrumentName()).isSameAs(InstrumentName.EUR_USD);
+        assertThat(BigDecimal.valueOf(decoder.getBidMantissa(), decoder.getBidScale())).isEqualTo(new BigDecimal("1.1000"));
+        assertThat(BigDecimal.valueOf(decoder.getAskMantissa(), decoder.getAskScale())).isEqualTo(new BigDecimal("1.2000"));
+        assertThat(decoder.getTimestampMillis()).isEqualTo(1591012861001L);
+
+        assertThat(decoder.next()).isTrue();
+        assertThat(decoder.getId()).isEqualTo(107);
+        assertThat(decoder.getInstrumentName()).isSameAs(InstrumentName.EUR_JPY);
+        assertThat(BigDecimal.valueOf(decoder.getAskMantissa(), decoder.getAskScale())).isEqualTo(new BigDecimal("119.9"));
+
+        assertThat(decoder.next()).isFalse();
+        assertThat(message.position()).isEqualTo(PriceTickDecoder.TICK_SIZE);
+    }
+
+    @Test
+    public void givenIncorrectBinaryMessage_whenDecoded_thenThrowException() {
+        assertThrows(PriceFeedFormatException.class, () -> new PriceTickDecoder(ByteBuffer.allocate(0)));
+        assertThrows(PriceFeedFormatException.class, () -> new PriceTickDecoder(ByteBuffer.allocate(PriceTickDecoder.TICK_SIZE + 1)));
+
+        ByteBuffer message = ByteBuffer.allocate(PriceTickDecoder.TICK_SIZE);
+        PriceTickEncoder.encode(message, 1, InstrumentName.EUR_USD, 1, 19, 1, 4, 0);
+        PriceTickDecoder decoder = new PriceTickDecoder(message.flip());
+        assertThrows(PriceFeedFormatException.class, decoder::next);
+    }
+}
@@ -0,0 +1,119 @@
+package com.domain.pricehandler.service;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.history.BarResolution;
+import com.domain.pricehandler.service.history.HistoryProperties;
+import com.domain.pricehandler.service.history.OhlcBars;
+import com.domain.pricehandler.service.history.PriceHistoryImpl;
+import com.domain.pricehandler.service.history.TickHistory;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PriceHistoryUnitTests {
+
+    // Ten minutes ago, at the start of 5 minute bar, so ticks are within default retention
+    private final long start = System.currentTimeMillis() / 300_000 * 300_000 - 600_000;
+
+    private static PriceHistoryImpl history(int ticks, Duration retention) {
+        HistoryProperties properties = new HistoryProperties();
+        properties.setTicks(ticks);
+        properties.setBars(16);
+        properties.setRetention(retention);
+        return new PriceHistoryImpl(properties);
+    }
+
+    private static void record(PriceHistoryImpl history, int id, long bid, long ask, long millis) {
+        Price price = new Price();
+        price.setId(id);
+        price.setInstrumentName(InstrumentName.EUR_USD);
+        price.setBid(bid);
+        price.setAsk(ask);
+        price.setTimestampMillis(millis);
+        Price[] prices = new Price[InstrumentName.count()];
+        prices[InstrumentName.EUR_USD.id()] = price;
+        history.record(prices);
+    }
+
+    @Test
+    public void givenTicks_whenGetTicksInRange_thenOnlyTicksInRangeReturned() {
+        PriceHistoryImpl history = history(16, Duration.ofMinutes(15));
+        for (int i = 0; i < 10; i++) {
+            record(history, i + 1, 1000 + i, 1010 + i, start + i * 100);
+        }
+
+        TickHistory ticks = history.getTicks(InstrumentName.EUR_USD, start + 200, start + 500);
+
+        assertThat(ticks.size()).isEqualTo(4);
+        assertThat(ticks.getId(0)).isEqualTo(3);
+        assertThat(ticks.getBid(3)).isEqualTo(1005);
+        assertThat(ticks.getTimestampMillis(3)).isEqualTo(start + 500);
+        assertThat(history.getTicks(InstrumentName.GBP_USD, 0, Long.MAX_VALUE)).isNull();
+    }
+
+    @Test
+    public void givenMoreTicksThanCapacity_whenGetTicks_thenOnlyLatestTicksReturned() {
+        PriceHistoryImpl history = history(4, Duration.ofMinutes(15));
+        for (int i = 0; i < 10; i++) {
+            record(history, i + 1, 1000 + i, 1010 + i, start + i * 100);
+        }
+
+        TickHistory ticks = history.getTicks(InstrumentName.EUR_USD, 0, Long.MAX_VALUE);
+
+        assertThat(ticks.size()).isEqualTo(4);
+        assertThat(ticks.getId(0)).isEqualTo(7);
+        assertThat(ticks.getId(3)).isEqualTo(10);
+    }
+
+    @Test
+    public void givenTicksOlderThanRetention_whenGetTicks_thenTheyAreNotReturned() {
+        PriceHistoryImpl history = history(16, Duration.ofMinutes(1));
+        record(history, 1, 1000, 1010, start);
+        record(history, 2, 1001, 1011, System.currentTimeMillis());
+
+        TickHistory ticks = history.getTicks(InstrumentName.EUR_USD, 0, Long.MAX_VALUE);
+
+        assertThat(ticks.size()).isEqualTo(1);
+        assertThat(ticks.getId(0)).isEqualTo(2);
+    }
+
+    @Test
+    public void givenTicks_whenGetBars_thenBarsBuiltPerResolution() {
+        PriceHistoryImpl history = history(16, Duration.ofMinutes(15));
+        // Mid prices 1005, 1015, 995 in the first second, 1025 in the next one, 985 a minute later
+        record(history, 1, 1000, 1010, start);
+        record(history, 2, 1010, 1020, start + 300);
+        record(history, 3, 990, 1000, start + 999);
+        record(history, 4, 1020, 1030, start + 1000);
+        record(history, 5, 980, 990, start + 61_000);
+        // Late tick of the first second is ignored by 1s and 1m bars, 5m bar is still the current one
+        record(history, 6, 2000, 2000, start + 500);
+
+        OhlcBars seconds = history.getBars(InstrumentName.EUR_USD, BarResolution.SECOND, 0, Long.MAX_VALUE);
+        assertThat(seconds.size()).isEqualTo(3);
+        assertThat(seconds.getScale()).isEqualTo(InstrumentName.EUR_USD.scale + 1);
+        assertThat(seconds.getStartMillis(0)).isEqualTo(start);
+        assertThat(seconds.getOpen(0)).isEqualTo(10050);
+        assertThat(seconds.getHigh(0)).isEqualTo(10150);
+        assertThat(seconds.getLow(0)).isEqualTo(9950);
+        assertThat(seconds.getClose(0)).isEqualTo(9950);
+        assertThat(seconds.getTickCount(0)).isEqualTo(3);
+
+        OhlcBars minutes = history.getBars(InstrumentName.EUR_USD, BarResolution.MINUTE, start + 30_000, start + 60_000);
+        assertThat(minutes.size()).isEqualTo(2);
+        assertThat(minutes.getStartMillis(0)).isEqualTo(start);
+        assertThat(minutes.getHigh(0)).isEqualTo(10250);
+        assertThat(minutes.getClose(0)).isEqualTo(10250);
+        assertThat(minutes.getTickCount(0)).isEqualTo(4);
+        assertThat(minutes.getOpen(1)).isEqualTo(9850);
+
+        OhlcBars fiveMinutes = history.getBars(InstrumentName.EUR_USD, BarResolution.FIVE_MINUTES, 0, Long.MAX_VALUE);
+        assertThat(fiveMinutes.size()).isEqualTo(1);
+        assertThat(fiveMinutes.getLow(0)).isEqualTo(9850);
+        assertThat(fiveMinutes.getHigh(0)).isEqualTo(20000);
+        assertThat(fiveMinutes.getTickCount(0)).isEqualTo(6);
+    }
+}
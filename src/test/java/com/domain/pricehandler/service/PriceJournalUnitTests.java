@@ -0,0 +1,142 @@
+package com.domain.pricehandler.service;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.journal.JournalProperties;
+import com.domain.pricehandler.service.journal.JournalReplay;
+import com.domain.pricehandler.service.journal.PriceJournalImpl;
+import com.domain.pricehandler.service.journal.PriceJournalReader;
+import com.domain.pricehandler.service.messaging.PriceFeedListener;
+import com.domain.pricehandler.service.metrics.FeedMetrics;
+import com.domain.pricehandler.service.metrics.FeedMetricsImpl;
+import com.domain.pricehandler.service.repository.PriceRepository;
+import com.domain.pricehandler.service.repository.PriceRepositoryImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PriceJournalUnitTests {
+
+    @TempDir
+    Path directory;
+
+    private final FeedMetrics feedMetrics = new FeedMetricsImpl();
+
+    private static Price price(int id, InstrumentName instrumentName) {
+        Price price = new Price();
+        price.setId(id);
+        price.setInstrumentName(instrumentName);
+        price.setBid(10989);
+        price.setAsk(12012);
+        price.setTimestamp("01-06-2020 12:01:01:001");
+        price.setTimestampMillis(1591012861001L);
+        return price;
+    }
+
+    private static Price[] batch(Price... prices) {
+        Price[] batch = new Price[InstrumentName.count()];
+        for (Price price : prices) {
+            batch[price.getInstrumentName().id()] = price;
+        }
+        return batch;
+    }
+
+    private PriceJournalImpl start(PriceRepository priceRepository, int capacity) throws IOException {
+        JournalProperties properties = new JournalProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setCapacity(capacity);
+        PriceJournalImpl journal = new PriceJournalImpl(properties, priceRepository, feedMetrics);
+        journal.restore();
+        return journal;
+    }
+
+    private void awaitCompactions(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (feedMetrics.getLatencyHistogram(FeedMetrics.Stage.JOURNAL_COMPACTION).getTotalCount() < count
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void givenJournaledPrices_whenRestarted_thenNewestPricesRestored() throws IOException {
+        PriceJournalImpl journal = start(new PriceRepositoryImpl(), 100);
+        journal.append(batch(price(1, InstrumentName.EUR_USD), price(2, InstrumentName.GBP_USD)));
+        journal.append(batch(price(3, InstrumentName.EUR_USD)));
+        journal.close();
+
+        PriceRepository restored = new PriceRepositoryImpl();
+        start(restored, 100).close();
+
+        assertThat(restored.getByInstrumentName(InstrumentName.EUR_USD)).contains(price(3, InstrumentName.EUR_USD));
+        assertThat(restored.getByInstrumentName(InstrumentName.GBP_USD)).contains(price(2, InstrumentName.GBP_USD));
+        assertThat(restored.getByInstrumentName(InstrumentName.EUR_JPY)).isEmpty();
+    }
+
+    @Test
+    public void givenFullJournal_whenAppend_thenCompactedIntoSnapshotAndNothingLost()
+            throws IOException, InterruptedException {
+        PriceJournalImpl journal = start(new PriceRepositoryImpl(), 2);
+        for (int id = 1; id <= 9; id++) {
+            journal.append(batch(price(id, id % 2 == 0 ? InstrumentName.EUR_JPY : InstrumentName.EUR_USD)));
+        }
+        // Process crash, journal is not closed - once compactions in progress are done, as crashed process would not
+        // go on writing snapshot
+        awaitCompactions(4);
+
+        List<Price> journaled = new ArrayList<>();
+        PriceJournalReader.read(directory.resolve(PriceJournalImpl.JOURNAL_FILE), journaled::add);
+        assertThat(journaled).extracting(Price::getId).containsExactly(9);
+
+        PriceRepository restored = new PriceRepositoryImpl();
+        start(restored, 2).close();
+        assertThat(restored.get().get()).extracting(Price::getId).containsExactlyInAnyOrder(8, 9);
+    }
+
+    @Test
+    public void givenFullSegment_whenAppend_thenCompactedOffFeedThread() throws IOException {
+        PriceJournalImpl journal = start(new PriceRepositoryImpl(), 2);
+        for (int id = 1; id <= 5; id++) {
+            journal.append(batch(price(id, InstrumentName.EUR_USD)));
+        }
+        journal.compact();
+
+        // Both segments were full once, and compact() compacted the last one
+        assertThat(feedMetrics.getLatencyHistogram(FeedMetrics.Stage.JOURNAL_COMPACTION).getTotalCount()).isEqualTo(3);
+        List<Price> journaled = new ArrayList<>();
+        for (int segment = 0; segment < 2; segment++) {
+            PriceJournalReader.read(directory.resolve(PriceJournalImpl.journalFile(segment)), journaled::add);
+        }
+        assertThat(journaled).isEmpty();
+        List<Price> snapshot = new ArrayList<>();
+        PriceJournalReader.read(directory.resolve(PriceJournalImpl.SNAPSHOT_FILE), snapshot::add);
+        assertThat(snapshot).extracting(Price::getId).containsExactly(5);
+        journal.close();
+    }
+
+    @Test
+    public void givenJournal_whenReplay_thenFedAsPriceFeedMessages() throws IOException {
+        PriceJournalImpl journal = start(new PriceRepositoryImpl(), 100);
+        journal.append(batch(price(106, InstrumentName.EUR_USD), price(107, InstrumentName.GBP_USD)));
+        journal.append(batch(price(108, InstrumentName.EUR_USD)));
+        journal.close();
+
+        PriceFeedListener listener = Mockito.mock(PriceFeedListener.class);
+        int replayed = JournalReplay.replay(directory.resolve(PriceJournalImpl.JOURNAL_FILE), listener, 2);
+
+        ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(listener, Mockito.times(2)).onMessage(messages.capture());
+
+        assertThat(replayed).isEqualTo(3);
+        assertThat(messages.getAllValues().get(1)).isEqualTo("108, EUR/USD, 1.0989,1.2012,01-06-2020 12:01:01:001");
+    }
+}
@@ -0,0 +1,185 @@
+package com.domain.pricehandler.service;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.repository.PriceChange;
+import com.domain.pricehandler.service.repository.PriceRepository;
+import com.domain.pricehandler.service.repository.PriceRepositoryImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PriceRepositoryUnitTests {
+
+    private PriceRepository priceRepository;
+
+    @BeforeEach
+    public void setUp() {
+        priceRepository = new PriceRepositoryImpl();
+    }
+
+    private static Price price(int id, InstrumentName instrumentName) {
+        Price price = new Price();
+        price.setId(id);
+        price.setInstrumentName(instrumentName);
+        price.setBid(10000);
+        price.setAsk(20000);
+        return price;
+    }
+
+    @Test
+    public void givenNoPrices_whenGet_thenReturnEmptyList() {
+        assertThat(priceRepository.get()).hasValueSatisfying(list -> assertThat(list).isEmpty());
+        assertThat(priceRepository.getByInstrumentName(InstrumentName.EUR_USD)).isEmpty();
+    }
+
+    @Test
+    public void givenPrice_whenUpdateWithNewerOrOlder_thenOnlyNewerStored() {
+        Price initial = price(10, InstrumentName.EUR_USD);
+        Price older = price(9, InstrumentName.EUR_USD);
+        Price newer = price(11, InstrumentName.EUR_USD);
+
+        assertThat(priceRepository.update(initial)).isTrue();
+        assertThat(priceRepository.update(older)).isFalse();
+        assertThat(priceRepository.update(initial)).isFalse();
+        assertThat(priceRepository.update(newer)).isTrue();
+
+        assertThat(priceRepository.getByInstrumentName(InstrumentName.EUR_USD)).containsSame(newer);
+    }
+
+    @Test
+    public void givenSnapshot_whenUpdate_thenSnapshotNotChanged() {
+        priceRepository.update(price(10, InstrumentName.EUR_USD));
+        List<Price> snapshot = priceRepository.get().get();
+
+        priceRepository.update(price(11, InstrumentName.GBP_USD));
+
+        assertThat(snapshot).hasSize(1);
+        assertThat(priceRepository.get().get()).hasSize(2);
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(price(12, InstrumentName.EUR_JPY)));
+    }
+
+    @Test
+    public void givenUpdates_whenGet_thenSnapshotBuiltOnceAfterChange() {
+        priceRepository.update(price(10, InstrumentName.EUR_USD));
+        Price[] batch = new Price[InstrumentName.count()];
+        batch[InstrumentName.GBP_USD.id()] = price(11, InstrumentName.GBP_USD);
+        priceRepository.updateAll(batch);
+        priceRepository.markStale(priceRepository.getByInstrumentName(InstrumentName.GBP_USD).get());
+
+        // Built by the first read, after all changes
+        List<Price> snapshot = priceRepository.get().get();
+        assertThat(snapshot).extracting(Price::getId).containsExactly(10);
+        assertThat(priceRepository.get().get()).isSameAs(snapshot);
+
+        priceRepository.update(price(9, InstrumentName.EUR_USD));
+        assertThat(priceRepository.get().get()).isSameAs(snapshot);
+        priceRepository.update(price(12, InstrumentName.EUR_USD));
+        assertThat(priceRepository.get().get()).isNotSameAs(snapshot).extracting(Price::getId).containsExactly(12);
+    }
+
+    @Test
+    public void givenConcurrentWriters_whenUpdate_thenHighestIdWins() throws InterruptedException {
+        int writers = 4;
+        int pricesPerWriter = 10_000;
+        InstrumentName[] instrumentNames = {InstrumentName.EUR_USD, InstrumentName.EUR_JPY, InstrumentName.GBP_USD};
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int offset = w;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < pricesPerWriter; i++) {
+                    int id = i * writers + offset;
+                    priceRepository.update(price(id, instrumentNames[id % 3]));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int maxId = writers * pricesPerWriter - 1;
+        for (int i = 0; i < instrumentNames.length; i++) {
+            InstrumentName instrumentName = instrumentNames[i];
+            int expectedId = maxId - Math.floorMod(maxId - i, 3);
+            assertThat(priceRepository.getByInstrumentName(instrumentName).get().getId()).isEqualTo(expectedId);
+        }
+        assertThat(priceRepository.get().get())
+                .extracting(Price::getId)
+                .containsExactlyInAnyOrder(maxId, maxId - 1, maxId - 2);
+    }
+
+    @Test
+    public void givenStoredPrices_whenFind_thenStoredObjectsEmitted() {
+        Price storedEUR_USD = price(10, InstrumentName.EUR_USD);
+        Price storedGBP_USD = price(11, InstrumentName.GBP_USD);
+        priceRepository.update(storedEUR_USD);
+        priceRepository.update(storedGBP_USD);
+        priceRepository.markStale(storedGBP_USD);
+
+        StepVerifier.create(priceRepository.findAll())
+                .expectNextMatches(price -> price == storedEUR_USD)
+                .verifyComplete();
+        StepVerifier.create(priceRepository.findByInstrumentName(InstrumentName.EUR_USD))
+                .expectNextMatches(price -> price == storedEUR_USD)
+                .verifyComplete();
+        StepVerifier.create(priceRepository.findByInstrumentName(InstrumentName.GBP_USD))
+                .verifyComplete();
+    }
+
+    @Test
+    public void givenWatchedInstrument_whenPricesChange_thenOnlyItsChangesEmitted() {
+        Price storedEUR_USD = price(10, InstrumentName.EUR_USD);
+        Price updatedEUR_USD = price(12, InstrumentName.EUR_USD);
+        priceRepository.update(storedEUR_USD);
+
+        StepVerifier.create(priceRepository.watch(Set.of(InstrumentName.EUR_USD)))
+                .then(() -> {
+                    priceRepository.update(price(11, InstrumentName.GBP_USD));
+                    priceRepository.update(price(9, InstrumentName.EUR_USD));
+                    Price[] batch = new Price[InstrumentName.count()];
+                    batch[InstrumentName.EUR_USD.id()] = updatedEUR_USD;
+                    priceRepository.updateAll(batch);
+                    priceRepository.markStale(updatedEUR_USD);
+                    priceRepository.clear();
+                })
+                .expectNextMatches(change -> change.getType() == PriceChange.Type.UPDATED
+                        && change.getPrice() == updatedEUR_USD)
+                .expectNextMatches(change -> change.getType() == PriceChange.Type.STALE
+                        && change.getPrice() == updatedEUR_USD)
+                .expectNextMatches(change -> change.getType() == PriceChange.Type.CLEARED
+                        && change.getInstrumentName() == InstrumentName.EUR_USD)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void givenWatchOfAllInstruments_whenPricesUpdated_thenEveryUpdateEmitted() {
+        StepVerifier.create(priceRepository.watch(Set.of()))
+                .then(() -> {
+                    priceRepository.update(price(10, InstrumentName.EUR_USD));
+                    priceRepository.update(price(11, InstrumentName.GBP_USD));
+                })
+                .expectNextMatches(change -> change.getInstrumentName() == InstrumentName.EUR_USD)
+                .expectNextMatches(change -> change.getInstrumentName() == InstrumentName.GBP_USD)
+                .thenCancel()
+                .verify();
+    }
+}
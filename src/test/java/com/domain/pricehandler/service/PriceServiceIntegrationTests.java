@@ -2,6 +2,7 @@ package com.domain.pricehandler.service;
 
 import com.domain.pricehandler.model.InstrumentName;
 import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.metrics.FeedMetrics;
 import com.domain.pricehandler.service.repository.PriceRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,7 +15,6 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +36,9 @@ public class PriceServiceIntegrationTests {
     @Autowired
     private PriceRepository priceRepository;
 
+    @Autowired
+    private FeedMetrics feedMetrics;
+
     // EUR/USD
     Price priceEUR_USD_initial;
     Price priceEUR_USD_new_id_higher;
@@ -55,14 +58,14 @@ public class PriceServiceIntegrationTests {
         priceEUR_USD_initial = new Price();
         priceEUR_USD_initial.setId(10);
         priceEUR_USD_initial.setInstrumentName(InstrumentName.EUR_USD);
-        priceEUR_USD_initial.setAsk(new BigDecimal(106.0));
-        priceEUR_USD_initial.setBid(new BigDecimal(105.0));
+        priceEUR_USD_initial.setAsk(1060000);
+        priceEUR_USD_initial.setBid(1050000);
 
         priceEUR_JPY_initial = new Price();
         priceEUR_JPY_initial.setId(20);
         priceEUR_JPY_initial.setInstrumentName(InstrumentName.EUR_JPY);
-        priceEUR_JPY_initial.setAsk(new BigDecimal(1060.0));
-        priceEUR_JPY_initial.setBid(new BigDecimal(1050.0));
+        priceEUR_JPY_initial.setAsk(10600000);
+        priceEUR_JPY_initial.setBid(10500000);
 
         List<Price> prices = new ArrayList<>();
         prices.add(priceEUR_USD_initial);
@@ -73,38 +76,38 @@ public class PriceServiceIntegrationTests {
         priceEUR_USD_new_id_higher = new Price();
         priceEUR_USD_new_id_higher.setId(30);
         priceEUR_USD_new_id_higher.setInstrumentName(InstrumentName.EUR_USD);
-        priceEUR_USD_new_id_higher.setAsk(new BigDecimal(116.0));
-        priceEUR_USD_new_id_higher.setBid(new BigDecimal(115.0));
+        priceEUR_USD_new_id_higher.setAsk(1160000);
+        priceEUR_USD_new_id_higher.setBid(1150000);
 
         priceEUR_USD_new_id_lower = new Price();
         priceEUR_USD_new_id_lower.setId(8);
         priceEUR_USD_new_id_lower.setInstrumentName(InstrumentName.EUR_USD);
-        priceEUR_USD_new_id_lower.setAsk(new BigDecimal(126.0));
-        priceEUR_USD_new_id_lower.setBid(new BigDecimal(125.0));
+        priceEUR_USD_new_id_lower.setAsk(1260000);
+        priceEUR_USD_new_id_lower.setBid(1250000);
 
         priceEUR_JPY_new_id_higher = new Price();
         priceEUR_JPY_new_id_higher.setId(21);
         priceEUR_JPY_new_id_higher.setInstrumentName(InstrumentName.EUR_JPY);
-        priceEUR_JPY_new_id_higher.setAsk(new BigDecimal(1061.0));
-        priceEUR_JPY_new_id_higher.setBid(new BigDecimal(1051.0));
+        priceEUR_JPY_new_id_higher.setAsk(10610000);
+        priceEUR_JPY_new_id_higher.setBid(10510000);
 
         priceEUR_JPY_new_id_lower = new Price();
         priceEUR_JPY_new_id_lower.setId(19);
         priceEUR_JPY_new_id_lower.setInstrumentName(InstrumentName.EUR_JPY);
-        priceEUR_JPY_new_id_lower.setAsk(new BigDecimal(1091.0));
-        priceEUR_JPY_new_id_lower.setBid(new BigDecimal(1071.0));
+        priceEUR_JPY_new_id_lower.setAsk(10910000);
+        priceEUR_JPY_new_id_lower.setBid(10710000);
 
         priceGBP_USD_new = new Price();
         priceGBP_USD_new.setId(30);
         priceGBP_USD_new.setInstrumentName(InstrumentName.GBP_USD);
-        priceGBP_USD_new.setAsk(new BigDecimal(10061.0));
-        priceGBP_USD_new.setBid(new BigDecimal(10051.0));
+        priceGBP_USD_new.setAsk(100610000);
+        priceGBP_USD_new.setBid(100510000);
 
         priceGBP_USD_new_id_higher = new Price();
         priceGBP_USD_new_id_higher.setId(31);
         priceGBP_USD_new_id_higher.setInstrumentName(InstrumentName.GBP_USD);
-        priceGBP_USD_new_id_higher.setAsk(new BigDecimal(10191.0));
-        priceGBP_USD_new_id_higher.setBid(new BigDecimal(10181.0));
+        priceGBP_USD_new_id_higher.setAsk(101910000);
+        priceGBP_USD_new_id_higher.setBid(101810000);
     }
 
     @AfterEach
@@ -204,4 +207,90 @@ public class PriceServiceIntegrationTests {
         assertThat(pricesReadAsMap.get(InstrumentName.EUR_JPY).getId().equals(priceEUR_JPY_new_id_higher.getId()));
         assertThat(pricesReadAsMap.get(InstrumentName.GBP_USD).getId().equals(priceGBP_USD_new_id_higher.getId()));
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenPrices_whenUpdatePricesWithSupersededAndStaleOnes_thenCountedSeparately() {
+        PriceUpdateStatistics statistics = priceService.getUpdateStatistics();
+        long superseded = statistics.getSuperseded();
+        long stale = statistics.getStale();
+        long applied = statistics.getApplied();
+
+        List<Price> prices = new ArrayList<>();
+        prices.add(priceEUR_USD_new_id_lower);
+        prices.add(priceEUR_USD_new_id_higher);
+        prices.add(priceEUR_JPY_new_id_lower);
+        prices.add(priceGBP_USD_new_id_higher);
+        prices.add(priceGBP_USD_new);
+
+        priceService.updatePrices(prices);
+
+        // EUR/USD lower and GBP/USD new are superseded in batch, EUR/JPY lower is older than stored price
+        assertThat(statistics.getSuperseded() - superseded).isEqualTo(2);
+        assertThat(statistics.getStale() - stale).isEqualTo(1);
+        assertThat(statistics.getApplied() - applied).isEqualTo(2);
+
+        StepVerifier
+                .create(priceService.getPrice(InstrumentName.GBP_USD.label))
+                .expectNext(priceGBP_USD_new_id_higher)
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    void givenPrices_whenUpdatePricesWithSupersededAndStaleOnes_thenFeedMetricsCountedPerInstrument() {
+        priceService.updatePrices(List.of(priceEUR_JPY_initial));
+        long received = feedMetrics.getCount(FeedMetrics.Outcome.RECEIVED, InstrumentName.EUR_JPY);
+        long stale = feedMetrics.getCount(FeedMetrics.Outcome.STALE, InstrumentName.EUR_JPY);
+        long applied = feedMetrics.getCount(FeedMetrics.Outcome.APPLIED, InstrumentName.EUR_JPY);
+        long repositoryUpdates = feedMetrics.getLatencyHistogram(FeedMetrics.Stage.REPOSITORY_UPDATE).getTotalCount();
+
+        // Lower one is superseded in batch, higher one is applied
+        priceService.updatePrices(List.of(priceEUR_JPY_new_id_lower, priceEUR_JPY_new_id_higher));
+        // Older than stored price
+        priceService.updatePrices(List.of(priceEUR_JPY_new_id_lower));
+
+        assertThat(feedMetrics.getCount(FeedMetrics.Outcome.RECEIVED, InstrumentName.EUR_JPY) - received).isEqualTo(3);
+        assertThat(feedMetrics.getCount(FeedMetrics.Outcome.STALE, InstrumentName.EUR_JPY) - stale).isEqualTo(2);
+        assertThat(feedMetrics.getCount(FeedMetrics.Outcome.APPLIED, InstrumentName.EUR_JPY) - applied).isEqualTo(1);
+        assertThat(feedMetrics.getLatencyHistogram(FeedMetrics.Stage.REPOSITORY_UPDATE).getTotalCount()
+                - repositoryUpdates).isEqualTo(2);
+    }
+
+    // Feed threads, and checker of arbiter without async ingestion, call price service at the same time
+    @Test
+    void givenManyThreads_whenUpdatePricesConcurrently_thenNewestPricesStoredAndAllCounted()
+            throws InterruptedException {
+        int threads = 4;
+        int batches = 2_000;
+        long received = feedMetrics.getCount(FeedMetrics.Outcome.RECEIVED, InstrumentName.GBP_USD);
+        long stale = feedMetrics.getCount(FeedMetrics.Outcome.STALE, InstrumentName.GBP_USD);
+        long applied = feedMetrics.getCount(FeedMetrics.Outcome.APPLIED, InstrumentName.GBP_USD);
+
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int first = 100 + t;
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < batches; i++) {
+                    Price price = new Price();
+                    price.setId(first + i * threads);
+                    price.setInstrumentName(InstrumentName.GBP_USD);
+                    price.setBid(101810000);
+                    price.setAsk(101910000);
+                    priceService.updatePrices(List.of(price));
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertThat(priceService.getPrice(InstrumentName.GBP_USD).block().getId())
+                .isEqualTo(100 + threads * batches - 1);
+        assertThat(feedMetrics.getCount(FeedMetrics.Outcome.RECEIVED, InstrumentName.GBP_USD) - received)
+                .isEqualTo(threads * batches);
+        assertThat(feedMetrics.getCount(FeedMetrics.Outcome.STALE, InstrumentName.GBP_USD) - stale
+                + feedMetrics.getCount(FeedMetrics.Outcome.APPLIED, InstrumentName.GBP_USD) - applied)
+                .isEqualTo(threads * batches);
+    }
+}
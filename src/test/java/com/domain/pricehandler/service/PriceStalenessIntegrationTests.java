@@ -0,0 +1,96 @@
+package com.domain.pricehandler.service;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.repository.PriceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Scheduled sweeps are not run during tests (long sweep interval), so checks done when prices are served are tested
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {"staleness.maxAge=5s", "staleness.instruments.EUR_JPY=1h", "staleness.sweepInterval=1h"})
+public class PriceStalenessIntegrationTests {
+
+    @Autowired
+    private PriceService priceService;
+
+    @Autowired
+    private PriceRepository priceRepository;
+
+    private static Price price(int id, InstrumentName instrumentName, long ageMillis) {
+        Price price = new Price();
+        price.setId(id);
+        price.setInstrumentName(instrumentName);
+        price.setBid(10989);
+        price.setAsk(12012);
+        price.setTimestamp("not used");
+        price.setTimestampMillis(System.currentTimeMillis() - ageMillis);
+        return price;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        priceService.clearPrices();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        priceService.clearPrices();
+    }
+
+    @Test
+    void givenPriceOlderThanMaxAge_whenGetPrices_thenStalePriceNotServed() throws InterruptedException {
+        Price staleEUR_USD = price(1, InstrumentName.EUR_USD, 10_000);
+        // Max age of EUR/JPY is overridden
+        Price freshEUR_JPY = price(2, InstrumentName.EUR_JPY, 10_000);
+        priceService.updatePrices(List.of(staleEUR_USD, freshEUR_JPY));
+
+        StepVerifier
+                .create(priceService.getPrice(InstrumentName.EUR_USD.label))
+                .expectComplete()
+                .verify();
+        StepVerifier
+                .create(priceService.getPricesSnapshot())
+                .expectNext(List.of(freshEUR_JPY))
+                .expectComplete()
+                .verify();
+        // Marked by sweep requested when stale price was found
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (priceRepository.getByInstrumentName(InstrumentName.EUR_USD).isPresent()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(priceRepository.getByInstrumentName(InstrumentName.EUR_USD)).isEmpty();
+    }
+
+    @Test
+    void givenStalePriceMarked_whenUpdatePrices_thenOnlyNewerPriceServed() {
+        Price stale = price(10, InstrumentName.GBP_USD, 10_000);
+        priceService.updatePrices(List.of(stale));
+        assertThat(priceRepository.markStale(stale)).isTrue();
+
+        Price older = price(9, InstrumentName.GBP_USD, 0);
+        priceService.updatePrices(List.of(older));
+        assertThat(priceRepository.get().get()).isEmpty();
+
+        Price newer = price(11, InstrumentName.GBP_USD, 0);
+        priceService.updatePrices(List.of(newer));
+        StepVerifier
+                .create(priceService.getPrice(InstrumentName.GBP_USD.label))
+                .expectNext(newer)
+                .expectComplete()
+                .verify();
+    }
+}
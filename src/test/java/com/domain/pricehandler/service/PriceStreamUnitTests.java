@@ -0,0 +1,118 @@
+package com.domain.pricehandler.service;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.execution.ExecutionProperties;
+import com.domain.pricehandler.service.execution.FeedExecutors;
+import com.domain.pricehandler.service.metrics.FeedMetricsImpl;
+import com.domain.pricehandler.service.repository.PriceRepository;
+import com.domain.pricehandler.service.repository.PriceRepositoryImpl;
+import com.domain.pricehandler.service.streaming.PriceStream;
+import com.domain.pricehandler.service.streaming.PriceStreamImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+
+@ExtendWith(SpringExtension.class)
+@Import({PriceStreamImpl.class, PriceRepositoryImpl.class, FeedMetricsImpl.class, FeedExecutors.class,
+        ExecutionProperties.class})
+public class PriceStreamUnitTests {
+
+    @Autowired
+    private PriceStream priceStream;
+
+    @Autowired
+    private PriceRepository priceRepository;
+
+    private static Price price(int id, InstrumentName instrumentName) {
+        Price price = new Price();
+        price.setId(id);
+        price.setInstrumentName(instrumentName);
+        return price;
+    }
+
+    private void store(Price price) {
+        if (priceRepository.update(price)) {
+            priceStream.publish(price);
+        }
+    }
+
+    @Test
+    public void givenStoredPrices_whenSubscribe_thenSnapshotThenUpdatesOfSubscribedInstruments() {
+        priceRepository.clear();
+        Price storedEUR_USD = price(1, InstrumentName.EUR_USD);
+        Price storedEUR_JPY = price(2, InstrumentName.EUR_JPY);
+        store(storedEUR_USD);
+        store(storedEUR_JPY);
+        Price updatedEUR_USD = price(3, InstrumentName.EUR_USD);
+        Price updatedGBP_USD = price(4, InstrumentName.GBP_USD);
+
+        StepVerifier.create(priceStream.subscribe(Set.of(InstrumentName.EUR_USD, InstrumentName.GBP_USD), Duration.ZERO))
+                .expectNext(storedEUR_USD)
+                .then(() -> store(updatedEUR_USD))
+                .expectNext(updatedEUR_USD)
+                .then(() -> store(price(5, InstrumentName.EUR_JPY)))
+                .then(() -> store(updatedGBP_USD))
+                .expectNext(updatedGBP_USD)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void givenSlowSubscriber_whenManyUpdates_thenOnlyLatestPricePerInstrumentSent() {
+        priceRepository.clear();
+
+        StepVerifier.create(priceStream.subscribe(Collections.emptySet(), Duration.ZERO), 0)
+                .then(() -> {
+                    for (int id = 1; id <= 1000; id++) {
+                        store(price(id, id % 2 == 0 ? InstrumentName.EUR_USD : InstrumentName.GBP_USD));
+                    }
+                })
+                .thenRequest(Long.MAX_VALUE)
+                .expectNextMatches(price -> price.getId() == 1000)
+                .expectNextMatches(price -> price.getId() == 999)
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void givenThrottleWindow_whenManyUpdatesInWindow_thenLatestSentAtEndOfWindow() {
+        priceRepository.clear();
+        Price latest = price(3, InstrumentName.EUR_USD);
+
+        StepVerifier.withVirtualTime(() -> priceStream.subscribe(Collections.emptySet(), Duration.ofSeconds(1)))
+                .expectSubscription()
+                .then(() -> {
+                    store(price(1, InstrumentName.EUR_USD));
+                    store(price(2, InstrumentName.EUR_USD));
+                    store(latest);
+                })
+                .expectNoEvent(Duration.ofMillis(999))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNext(latest)
+                .thenAwait(Duration.ofSeconds(5))
+                .expectNoEvent(Duration.ofSeconds(1))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void givenFanOutThreads_whenPricePublished_thenSentOnFanOutThread() {
+        priceRepository.clear();
+
+        StepVerifier.create(priceStream.subscribe(Collections.emptySet(), Duration.ZERO)
+                        .map(price -> Thread.currentThread().getName()))
+                .then(() -> store(price(1, InstrumentName.EUR_USD)))
+                .expectNextMatches(thread -> thread.startsWith(FeedExecutors.FAN_OUT))
+                .thenCancel()
+                .verify();
+    }
+}
@@ -0,0 +1,101 @@
+package com.domain.pricehandler.service;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import com.domain.pricehandler.service.messaging.FeedTimestamp;
+import com.domain.pricehandler.service.messaging.network.LoopbackFeedPublisher;
+import com.domain.pricehandler.service.replication.LoopbackCluster;
+import com.domain.pricehandler.service.replication.ReplicationFollower;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicationIntegrationTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private static void publish(LoopbackCluster cluster, int messages) {
+        try (LoopbackFeedPublisher publisher = LoopbackFeedPublisher.connect(cluster.getFeedPort())) {
+            publisher.publish(Flux.range(0, messages).map(i -> LoopbackFeedPublisher.sampleMessage(1 + i * 3, 3)));
+        }
+    }
+
+    private static Price price(ConfigurableApplicationContext node, InstrumentName instrumentName) {
+        return node.getBean(PriceService.class).getPrice(instrumentName).block();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT.toMillis();
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private static boolean hasId(ConfigurableApplicationContext node, InstrumentName instrumentName, int id) {
+        Price price = price(node, instrumentName);
+        return price != null && price.getId() == id;
+    }
+
+    @Test
+    void givenFollowers_whenFeedPublishedToLeader_thenFollowersServeSamePrices() throws InterruptedException {
+        try (LoopbackCluster cluster = LoopbackCluster.start(2)) {
+            assertThat(cluster.awaitSynced(TIMEOUT)).isTrue();
+
+            publish(cluster, 100);
+
+            ConfigurableApplicationContext leader = cluster.getLeader();
+            await(() -> hasId(leader, InstrumentName.GBP_USD, 300));
+            assertThat(cluster.awaitReplicated(TIMEOUT)).isTrue();
+            for (ConfigurableApplicationContext follower : cluster.getFollowers()) {
+                assertThat(price(follower, InstrumentName.EUR_USD)).isEqualTo(price(leader, InstrumentName.EUR_USD));
+                assertThat(price(follower, InstrumentName.GBP_USD)).isEqualTo(price(leader, InstrumentName.GBP_USD));
+            }
+        }
+    }
+
+    @Test
+    void givenPricesOnLeader_whenFollowerStarts_thenItSyncsFromSnapshot() throws InterruptedException {
+        try (LoopbackCluster cluster = LoopbackCluster.start(0)) {
+            publish(cluster, 10);
+            await(() -> hasId(cluster.getLeader(), InstrumentName.GBP_USD, 30));
+
+            ConfigurableApplicationContext follower = cluster.startFollower();
+
+            assertThat(cluster.awaitSynced(TIMEOUT)).isTrue();
+            assertThat(cluster.awaitReplicated(TIMEOUT)).isTrue();
+            assertThat(price(follower, InstrumentName.GBP_USD).getId()).isEqualTo(30);
+            assertThat(follower.getBean(ReplicationFollower.class).getSnapshots()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void givenSyncedFollower_whenInstrumentRegisteredAfterSnapshot_thenFollowerResyncs() throws InterruptedException {
+        try (LoopbackCluster cluster = LoopbackCluster.start(1)) {
+            assertThat(cluster.awaitSynced(TIMEOUT)).isTrue();
+
+            // Not in snapshot follower got, so delta of it can not be applied
+            InstrumentName instrumentName = InstrumentName.register("NZD/USD", 4);
+            Price price = new Price();
+            price.setId(1);
+            price.setInstrumentName(instrumentName);
+            price.setBid(6100);
+            price.setAsk(6110);
+            price.setTimestampMillis(System.currentTimeMillis());
+            price.setTimestamp(FeedTimestamp.format(price.getTimestampMillis()));
+            cluster.getLeader().getBean(PriceService.class).updatePrices(List.of(price));
+
+            ConfigurableApplicationContext follower = cluster.getFollowers().get(0);
+            assertThat(cluster.awaitReplicated(TIMEOUT)).isTrue();
+            assertThat(price(follower, instrumentName)).isEqualTo(price);
+            assertThat(follower.getBean(ReplicationFollower.class).getResyncs()).isEqualTo(1);
+            assertThat(follower.getBean(ReplicationFollower.class).getSnapshots()).isEqualTo(2);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.domain.pricehandler.service.replication;
+
+import com.domain.pricehandler.model.InstrumentName;
+import com.domain.pricehandler.model.Price;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Nodes of LoopbackCluster share instrument registry, so ids of leader differ from local ones only here
+public class ReplicationFormatUnitTests {
+
+    private static void writeInstrument(ByteBuf message, int id, int scale, String label) {
+        message.writeShort(id);
+        message.writeByte(scale);
+        message.writeByte(label.length());
+        message.writeCharSequence(label, StandardCharsets.US_ASCII);
+    }
+
+    private static void writePrice(ByteBuf message, int instrumentId, int id, long bid, long ask) {
+        message.writeShort(instrumentId);
+        message.writeInt(id);
+        message.writeLong(bid);
+        message.writeLong(ask);
+        message.writeLong(1_600_000_000_000L);
+    }
+
+    @Test
+    public void givenLeaderWithOtherInstrumentIds_whenSnapshotAndDeltaRead_thenMappedToLocalInstruments() {
+        // Snapshot of leader, which registered its instruments in other order, and GBP/USD with scale 5
+        ByteBuf snapshot = Unpooled.buffer();
+        snapshot.writeShort(3);
+        writeInstrument(snapshot, 0, 4, "USD/SEK");
+        writeInstrument(snapshot, 1, 5, "GBP/USD");
+        writeInstrument(snapshot, 2, 4, "EUR/USD");
+        snapshot.writeShort(2);
+        writePrice(snapshot, 2, 10, 11000, 12000);
+        writePrice(snapshot, 1, 11, 123456, 123454);
+
+        InstrumentName[] instrumentNames = new InstrumentName[InstrumentName.CAPACITY];
+        int[] scales = new int[InstrumentName.CAPACITY];
+        ReplicationFormat.readInstruments(snapshot, instrumentNames, scales);
+        Price[] prices = ReplicationFormat.readPrices(snapshot, instrumentNames, scales);
+
+        InstrumentName usdSek = InstrumentName.valueOf("USD_SEK");
+        assertThat(instrumentNames[0]).isSameAs(usdSek);
+        assertThat(instrumentNames[1]).isSameAs(InstrumentName.GBP_USD);
+        assertThat(instrumentNames[2]).isSameAs(InstrumentName.EUR_USD);
+        assertThat(usdSek.scale).isEqualTo(4);
+        assertThat(prices[InstrumentName.EUR_USD.id()].getBid()).isEqualTo(11000);
+        assertThat(prices[InstrumentName.EUR_USD.id()].getInstrumentName()).isSameAs(InstrumentName.EUR_USD);
+        // Rescaled from 5 to 4 decimals as commission would round: bid down, ask up
+        assertThat(prices[InstrumentName.GBP_USD.id()].getBid()).isEqualTo(12345);
+        assertThat(prices[InstrumentName.GBP_USD.id()].getAsk()).isEqualTo(12346);
+        assertThat(prices[InstrumentName.GBP_USD.id()].getTimestamp()).isNotNull();
+
+        // Delta uses ids of leader only
+        ByteBuf delta = Unpooled.buffer();
+        delta.writeShort(3);
+        writePrice(delta, 0, 12, 101000, 102000);
+        writePrice(delta, 2, 14, 11001, 12001);
+        writePrice(delta, 2, 13, 11002, 12002);
+
+        prices = ReplicationFormat.readPrices(delta, instrumentNames, scales);
+
+        assertThat(prices[usdSek.id()].getId()).isEqualTo(12);
+        assertThat(prices[usdSek.id()].getInstrumentName()).isSameAs(usdSek);
+        // Newest one wins
+        assertThat(prices[InstrumentName.EUR_USD.id()].getId()).isEqualTo(14);
+        assertThat(prices[InstrumentName.GBP_USD.id()]).isNull();
+    }
+
+    @Test
+    public void givenInstrumentNotInSnapshot_whenDeltaRead_thenRejected() {
+        InstrumentName[] instrumentNames = new InstrumentName[InstrumentName.CAPACITY];
+        int[] scales = new int[InstrumentName.CAPACITY];
+        instrumentNames[5] = InstrumentName.EUR_USD;
+        scales[5] = 4;
+        ByteBuf delta = Unpooled.buffer();
+        delta.writeShort(1);
+        writePrice(delta, 6, 1, 11000, 12000);
+
+        assertThrows(IllegalStateException.class,
+                () -> ReplicationFormat.readPrices(delta, instrumentNames, scales));
+    }
+
+    @Test
+    public void givenPrices_whenSnapshotWritten_thenLengthAndLocalIdsEncoded() {
+        Price price = new Price();
+        price.setId(1);
+        price.setInstrumentName(InstrumentName.EUR_JPY);
+        price.setBid(11900);
+        price.setAsk(12000);
+
+        ByteBuf frame = ReplicationFormat.snapshot(new InstrumentName[]{InstrumentName.EUR_JPY}, List.of(price));
+
+        assertThat(frame.readInt()).isEqualTo(frame.readableBytes());
+        assertThat(frame.readByte()).isEqualTo(ReplicationFormat.SNAPSHOT);
+        InstrumentName[] instrumentNames = new InstrumentName[InstrumentName.CAPACITY];
+        int[] scales = new int[InstrumentName.CAPACITY];
+        ReplicationFormat.readInstruments(frame, instrumentNames, scales);
+        assertThat(instrumentNames[InstrumentName.EUR_JPY.id()]).isSameAs(InstrumentName.EUR_JPY);
+        assertThat(scales[InstrumentName.EUR_JPY.id()]).isEqualTo(2);
+        Price read = ReplicationFormat.readPrices(frame, instrumentNames, scales)[InstrumentName.EUR_JPY.id()];
+        assertThat(read.getBid()).isEqualTo(11900);
+        assertThat(read.getAsk()).isEqualTo(12000);
+    }
+}